@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonValue;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Maintains the hash of a list to which elements are only ever appended (e.g., a log),
+ * so that each append hashes only the appended element, e.g.:
+ * <pre>
+ *    AppendOnlyListHash log = new AppendOnlyListHash(hasherProvider);
+ *    log.append(entry1);
+ *    byte[] digest1 = log.digest();      // the hash of [entry1]
+ *    log.append(entry2);
+ *    byte[] digest2 = log.digest();      // the hash of [entry1, entry2]
+ * </pre>
+ * A list's hash is a digest of its elements' bytes, in order, followed by an end marker.
+ * This class updates a hasher with each appended element's bytes, and digest() finishes
+ * a {@link IonHasher#copy() copy} of that hasher, leaving the original free to accept
+ * more elements.  The hasher provider's hashers must therefore support copy(), as
+ * those of {@link MessageDigestIonHasherProvider} do.
+ * <p/>
+ * This class is not thread-safe.
+ */
+public final class AppendOnlyListHash implements Closeable {
+    private static final byte[] END_MARKER = new byte[] { HasherImpl.END_MARKER_BYTE };
+
+    private final IonHasher listHasher;
+    private final HasherImpl hasher;
+    private final IonValueHasher valueHasher;
+    private long size;
+
+    /**
+     * @throws UnsupportedOperationException if the provider's hashers don't support copy()
+     */
+    public AppendOnlyListHash(IonHasherProvider hasherProvider) {
+        if (hasherProvider == null) {
+            throw new NullPointerException("IonHasherProvider must not be null");
+        }
+        this.listHasher = hasherProvider.newHasher();
+        // fail now, rather than on the first call to digest()
+        listHasher.copy();
+
+        // the list is never stepped out of;  its end marker is provided to copies of its hasher
+        this.hasher = new HasherImpl(hasherProvider, null, null, null, listHasher, new HasherImpl.SymbolHasher(), null);
+        hasher.stepIn(IonType.LIST, null, null);
+        this.valueHasher = new IonValueHasher(hasher);
+    }
+
+    /**
+     * Appends the specified value to the list.  The value's field name (if any) is ignored.
+     *
+     * @throws IllegalArgumentException if the value is an IonDatagram
+     */
+    public void append(IonValue value) {
+        if (value.getType() == IonType.DATAGRAM) {
+            throw new IllegalArgumentException("A datagram can't be an element of a list");
+        }
+        valueHasher.hash(value, null);
+        size++;
+    }
+
+    /**
+     * Returns the number of elements appended to the list.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the hash of the list of the elements appended so far.
+     */
+    public byte[] digest() {
+        IonHasher snapshot = listHasher.copy();
+        snapshot.update(END_MARKER);
+        return snapshot.digest();
+    }
+
+    @Override
+    public void close() throws IOException {
+        hasher.close();
+    }
+}
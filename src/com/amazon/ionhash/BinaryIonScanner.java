@@ -0,0 +1,424 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a binary Ion stream into regions of consecutive top-level values, without
+ * parsing the values themselves (only type descriptors and lengths are read).
+ * <p/>
+ * Each region is accompanied by its symbol table context:  the Ion version marker
+ * and the local symbol tables in effect at the start of the region (all local
+ * symbol tables since the most recent version marker, or since the most recent
+ * local symbol table that doesn't append to the current one).  A reader over the
+ * context followed by the region's bytes reads the region's values exactly as a
+ * reader over the entire stream would.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class BinaryIonScanner {
+    static final byte[] IVM = new byte[] {(byte)0xE0, 0x01, 0x00, (byte)0xEA};
+
+    private static final int ION_SYMBOL_TABLE_SID = 3;
+    private static final int IMPORTS_SID = 6;
+
+    private static final int TYPE_NULL = 0x0;
+    private static final int TYPE_BOOL = 0x1;
+    private static final int TYPE_SYMBOL = 0x7;
+    private static final int TYPE_STRUCT = 0xD;
+    private static final int TYPE_ANNOTATION = 0xE;
+    private static final int L_VARUINT = 0xE;
+    private static final int L_NULL = 0xF;
+
+    // enough for the headers of an annotation wrapper and the value it wraps
+    private static final int MAX_HEADER_SIZE = 64;
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    /**
+     * A region of consecutive top-level values, and the symbol table context they require.
+     */
+    static final class Region {
+        final byte[] context;
+        final long start;
+        final long end;
+        // the index (within the stream) of the region's first value
+        final long firstIndex;
+        // the offsets of the region's values, if requested
+        final long[] valueOffsets;
+
+        private Region(byte[] context, long start, long end, long firstIndex, long[] valueOffsets) {
+            this.context = context;
+            this.start = start;
+            this.end = end;
+            this.firstIndex = firstIndex;
+            this.valueOffsets = valueOffsets;
+        }
+
+        // returns the context followed by the bytes of the region
+        byte[] read(FileChannel channel) throws IOException {
+            long length = context.length + end - start;
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IonHashException("Top-level value at offset " + start + " is too large to be hashed separately");
+            }
+            byte[] bytes = new byte[(int) length];
+            System.arraycopy(context, 0, bytes, 0, context.length);
+            readFully(channel, start, ByteBuffer.wrap(bytes, context.length, (int) (end - start)));
+            return bytes;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    private final long targetRegionSize;
+    private final boolean recordOffsets;
+    private final boolean splitAtSystemValues;
+
+    // window of the channel most recently read
+    private final ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+    private long windowStart;
+    private int windowLength;
+
+    private final List<byte[]> contextParts = new ArrayList<>();
+    private byte[] context;
+    private long position;
+    private long valueCount;
+    private long[] offsets = new long[0];
+
+    // position following the most recently read VarUInt
+    private long varUIntEnd;
+
+    BinaryIonScanner(FileChannel channel, long targetRegionSize) throws IOException {
+        this(channel, targetRegionSize, false);
+    }
+
+    /**
+     * @param recordOffsets whether regions should include the offsets of their values
+     */
+    BinaryIonScanner(FileChannel channel, long targetRegionSize, boolean recordOffsets) throws IOException {
+        this(channel, targetRegionSize, recordOffsets, false, 0, 0, null);
+    }
+
+    /**
+     * Scans from the specified position (a top-level value boundary), where the specified
+     * context is in effect, and the specified number of top-level values precede the position.
+     * Regions include the offsets of their values, and end before any system value (so the
+     * context of a region is in effect throughout the region).
+     *
+     * @param context the context in effect at the position, or null if the position is 0
+     */
+    BinaryIonScanner(FileChannel channel,
+                     long targetRegionSize,
+                     long position,
+                     long valueCount,
+                     byte[] context) throws IOException {
+        this(channel, targetRegionSize, true, true, position, valueCount, context);
+    }
+
+    private BinaryIonScanner(FileChannel channel,
+                             long targetRegionSize,
+                             boolean recordOffsets,
+                             boolean splitAtSystemValues,
+                             long position,
+                             long valueCount,
+                             byte[] context) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.targetRegionSize = targetRegionSize;
+        this.recordOffsets = recordOffsets;
+        this.splitAtSystemValues = splitAtSystemValues;
+        this.position = position;
+        this.valueCount = valueCount;
+        if (context != null) {
+            contextParts.add(context);
+        }
+
+        if (size < IVM.length || !isIvm(0)) {
+            throw new IonHashException("Not a binary Ion stream");
+        }
+    }
+
+    /**
+     * Returns the next region of at least targetRegionSize bytes (unless the end of the
+     * stream is reached first), or null if there are no more top-level values.
+     */
+    Region nextRegion() throws IOException {
+        long start = -1;
+        byte[] regionContext = null;
+        long firstIndex = valueCount;
+        int count = 0;
+        while (position < size) {
+            int td = byteAt(position);
+            long length;
+            if (start >= 0 && splitAtSystemValues && (td == (IVM[0] & 0xFF) || isLocalSymbolTable(position))) {
+                break;
+            }
+            if (td == (IVM[0] & 0xFF)) {
+                if (!isIvm(position)) {
+                    throw new IonHashException("Invalid Ion version marker at offset " + position);
+                }
+                length = IVM.length;
+                contextParts.clear();
+                contextParts.add(IVM);
+                context = null;
+            } else if (isLocalSymbolTable(position)) {
+                length = valueLength(position);
+                byte[] symbolTable = new byte[checkedLength(length)];
+                readFully(channel, position, ByteBuffer.wrap(symbolTable));
+                if (!appendsSymbols(symbolTable)) {
+                    contextParts.clear();
+                    contextParts.add(IVM);
+                }
+                contextParts.add(symbolTable);
+                context = null;
+            } else if (td >>> 4 == TYPE_NULL && (td & 0x0F) != L_NULL) {
+                // NOP padding
+                length = valueLength(position);
+            } else {
+                if (start < 0) {
+                    // system values preceding the region's first value are represented by its context
+                    start = position;
+                    regionContext = context();
+                }
+                if (recordOffsets) {
+                    if (count == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, Math.max(16, count * 2));
+                    }
+                    offsets[count] = position;
+                }
+                count++;
+                position += valueLength(position);
+                if (position - start >= targetRegionSize) {
+                    break;
+                }
+                continue;
+            }
+            position += length;
+        }
+
+        if (position > size) {
+            throw new EOFException("Unexpected end of binary Ion stream");
+        }
+        if (start < 0) {
+            return null;
+        }
+        valueCount += count;
+        long[] valueOffsets = recordOffsets ? Arrays.copyOf(offsets, count) : null;
+        return new Region(regionContext, start, position, firstIndex, valueOffsets);
+    }
+
+    private byte[] context() {
+        if (context == null) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            for (byte[] part : contextParts) {
+                baos.write(part, 0, part.length);
+            }
+            context = baos.toByteArray();
+        }
+        return context;
+    }
+
+    private boolean isIvm(long pos) throws IOException {
+        for (int i = 0; i < IVM.length; i++) {
+            if (pos + i >= size || byteAt(pos + i) != (IVM[i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // a top-level struct whose first annotation is $ion_symbol_table
+    private boolean isLocalSymbolTable(long pos) throws IOException {
+        int td = byteAt(pos);
+        if (td >>> 4 != TYPE_ANNOTATION || (td & 0x0F) == L_NULL) {
+            return false;
+        }
+        long cursor = pos + 1;
+        if ((td & 0x0F) == L_VARUINT) {
+            readVarUInt(cursor);
+            cursor = varUIntEnd;
+        }
+        long annotationsLength = readVarUInt(cursor);
+        long annotationsStart = varUIntEnd;
+        long firstAnnotation = readVarUInt(annotationsStart);
+        return firstAnnotation == ION_SYMBOL_TABLE_SID
+                && byteAt(annotationsStart + annotationsLength) >>> 4 == TYPE_STRUCT;
+    }
+
+    // returns the length of the value at the specified position, including its type descriptor and length
+    private long valueLength(long pos) throws IOException {
+        int td = byteAt(pos);
+        int type = td >>> 4;
+        int l = td & 0x0F;
+        if (type == 0xF) {
+            throw new IonHashException("Invalid type descriptor at offset " + pos);
+        }
+        if (type == TYPE_BOOL || l == L_NULL) {
+            return 1;
+        }
+        if (l == L_VARUINT || (type == TYPE_STRUCT && l == 1)) {
+            long length = readVarUInt(pos + 1);
+            return varUIntEnd - pos + length;
+        }
+        return 1 + l;
+    }
+
+    private long readVarUInt(long pos) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 10; i++) {
+            int b = byteAt(pos + i);
+            value = (value << 7) | (b & 0x7F);
+            if ((b & 0x80) != 0) {
+                varUIntEnd = pos + i + 1;
+                return value;
+            }
+        }
+        throw new IonHashException("VarUInt at offset " + pos + " is too large");
+    }
+
+    private int byteAt(long pos) throws IOException {
+        if (pos < windowStart || pos >= windowStart + windowLength) {
+            if (pos >= size) {
+                throw new EOFException("Unexpected end of binary Ion stream");
+            }
+            // start the window a little before pos, so the headers preceding pos remain available
+            windowStart = Math.max(0, Math.min(pos - MAX_HEADER_SIZE, size - WINDOW_SIZE));
+            ((Buffer) window).clear();
+            readFully(channel, windowStart, window);
+            windowLength = ((Buffer) window).position();
+        }
+        return window.get((int) (pos - windowStart)) & 0xFF;
+    }
+
+    private static int checkedLength(long length) {
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IonHashException("Local symbol table is too large");
+        }
+        return (int) length;
+    }
+
+    // fills the buffer from the channel (or up to the end of the channel), starting at the specified position
+    private static void readFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                break;
+            }
+            position += n;
+        }
+    }
+
+    // determines whether the specified local symbol table imports $ion_symbol_table,
+    // i.e., appends its symbols to those of the current symbol table
+    static boolean appendsSymbols(byte[] symbolTable) {
+        ArrayCursor cursor = new ArrayCursor(symbolTable);
+        int td = cursor.next();
+        if ((td & 0x0F) == L_VARUINT) {
+            cursor.varUInt();
+        }
+        long annotationsLength = cursor.varUInt();
+        cursor.position += annotationsLength;
+
+        td = cursor.next();
+        if ((td & 0x0F) == L_NULL) {
+            return false;
+        }
+        long end;
+        if ((td & 0x0F) == L_VARUINT || (td & 0x0F) == 1) {
+            long length = cursor.varUInt();
+            end = cursor.position + length;
+        } else {
+            end = cursor.position + (td & 0x0F);
+        }
+
+        while (cursor.position < end) {
+            long fieldSid = cursor.varUInt();
+            int valueStart = cursor.position;
+            int valueTd = cursor.next();
+            if (fieldSid == IMPORTS_SID && valueTd >>> 4 == TYPE_SYMBOL) {
+                int l = valueTd & 0x0F;
+                if (l == L_NULL || l > 8) {
+                    return false;
+                }
+                long sid = 0;
+                for (int i = 0; i < l; i++) {
+                    sid = (sid << 8) | cursor.next();
+                }
+                return sid == ION_SYMBOL_TABLE_SID;
+            }
+            cursor.position = valueStart;
+            cursor.position += cursor.valueLength();
+        }
+        return false;
+    }
+
+    /**
+     * Reads binary Ion headers from an array.
+     */
+    private static final class ArrayCursor {
+        private final byte[] bytes;
+        private int position;
+
+        private ArrayCursor(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int next() {
+            if (position >= bytes.length) {
+                throw new IonHashException("Unexpected end of local symbol table");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long varUInt() {
+            long value = 0;
+            for (int i = 0; i < 10; i++) {
+                int b = next();
+                value = (value << 7) | (b & 0x7F);
+                if ((b & 0x80) != 0) {
+                    return value;
+                }
+            }
+            throw new IonHashException("VarUInt is too large");
+        }
+
+        // returns the length of the value at the current position;  the position is not changed
+        long valueLength() {
+            int start = position;
+            int td = next();
+            int type = td >>> 4;
+            int l = td & 0x0F;
+            long length;
+            if (type == TYPE_BOOL || l == L_NULL) {
+                length = 1;
+            } else if (l == L_VARUINT || (type == TYPE_STRUCT && l == 1)) {
+                long bodyLength = varUInt();
+                length = position - start + bodyLength;
+            } else {
+                length = 1 + l;
+            }
+            position = start;
+            return length;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Blocked Bloom filter of digests, for cheaply ruling out digests that have never
+ * been added before consulting a larger (slower) store of digests, e.g.:
+ * <pre>
+ *    try (Stream&lt;TopLevelDigest&gt; digests = IonHash.stream(file, hasherProvider)) {
+ *        digests.filter(d -&gt; !filter.mightContain(d.getDigest()) || !store.contains(d.getDigest()))...
+ *    }
+ * </pre>
+ * or via {@link IonHashReaderBuilder#withKnownDigests(DigestBloomFilter, java.util.function.Predicate)}.
+ * <p/>
+ * Each digest sets bits in a single 512-bit (cache line sized) block, so a lookup
+ * touches one cache line.  The digest's own bits are used as the filter's hash bits
+ * (the first eight bytes select the block, and the next eight the bits within it)
+ * rather than being hashed again, so digests must be of at least 16 bytes and should
+ * be produced by a cryptographic hash function.
+ * <p/>
+ * This class is not thread-safe.
+ */
+public final class DigestBloomFilter {
+    /**
+     * The minimum length, in bytes, of digests.
+     */
+    public static final int MIN_DIGEST_LENGTH = 16;
+
+    private static final long MAGIC = 0x494f4e48424c4d31L; // "IONHBLM1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int BLOCK_WORDS = 8;
+    private static final int BLOCK_BITS = BLOCK_WORDS * 64;
+    // each bit position within a block is selected by 9 bits of the digest's second word
+    private static final int MAX_HASHES = 7;
+    private static final int MAX_BLOCKS = (Integer.MAX_VALUE - 8) / BLOCK_WORDS;
+
+    private final long[] bits;
+    private final int blocks;
+    private final int hashes;
+
+    /**
+     * Creates a filter for the specified number of digests, with approximately the
+     * specified false positive probability once that many digests have been added.
+     */
+    public DigestBloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        }
+        if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+            throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1");
+        }
+        double ln2 = Math.log(2);
+        double bitCount = Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (ln2 * ln2));
+        double blockCount = Math.ceil(bitCount / BLOCK_BITS);
+        if (blockCount > MAX_BLOCKS) {
+            throw new IllegalArgumentException("Filter would be too large");
+        }
+        this.blocks = Math.max(1, (int) blockCount);
+        this.hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitCount / expectedInsertions * ln2)));
+        this.bits = new long[blocks * BLOCK_WORDS];
+    }
+
+    private DigestBloomFilter(int blocks, int hashes, long[] bits) {
+        this.blocks = blocks;
+        this.hashes = hashes;
+        this.bits = bits;
+    }
+
+    /**
+     * Adds the specified digest to the filter.
+     *
+     * @throws IllegalArgumentException if the digest is shorter than {@link #MIN_DIGEST_LENGTH} bytes
+     */
+    public void add(byte[] digest) {
+        checkLength(digest.length);
+        add(IonHashDigest.word(digest, 0), IonHashDigest.word(digest, 1));
+    }
+
+    /**
+     * @see #add(byte[])
+     */
+    public void add(IonHashDigest digest) {
+        checkLength(digest.length());
+        add(digest.word(0), digest.word(1));
+    }
+
+    /**
+     * Returns false if the specified digest has definitely not been added to the filter,
+     * or true if it probably has.
+     *
+     * @throws IllegalArgumentException if the digest is shorter than {@link #MIN_DIGEST_LENGTH} bytes
+     */
+    public boolean mightContain(byte[] digest) {
+        checkLength(digest.length);
+        return mightContain(IonHashDigest.word(digest, 0), IonHashDigest.word(digest, 1));
+    }
+
+    /**
+     * @see #mightContain(byte[])
+     */
+    public boolean mightContain(IonHashDigest digest) {
+        checkLength(digest.length());
+        return mightContain(digest.word(0), digest.word(1));
+    }
+
+    void add(long w0, long w1) {
+        int base = block(w0);
+        for (int i = 0; i < hashes; i++) {
+            int bit = (int) (w1 >>> (9 * i)) & (BLOCK_BITS - 1);
+            bits[base + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(long w0, long w1) {
+        int base = block(w0);
+        for (int i = 0; i < hashes; i++) {
+            int bit = (int) (w1 >>> (9 * i)) & (BLOCK_BITS - 1);
+            if ((bits[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the filter to the specified file, replacing its contents.
+     */
+    public void writeTo(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.putLong(MAGIC);
+            buffer.putShort((short) VERSION);
+            buffer.putShort((short) hashes);
+            buffer.putInt(blocks);
+            for (long word : bits) {
+                if (!buffer.hasRemaining()) {
+                    write(channel, buffer);
+                }
+                buffer.putLong(word);
+            }
+            write(channel, buffer);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(Path)}.
+     *
+     * @throws IonHashException if the file doesn't contain a filter
+     */
+    public static DigestBloomFilter readFrom(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            read(channel, header);
+            if (header.remaining() < HEADER_SIZE || header.getLong() != MAGIC || header.getShort() != VERSION) {
+                throw new IonHashException("Not a digest Bloom filter: " + file);
+            }
+            int hashes = header.getShort();
+            int blocks = header.getInt();
+            if (hashes < 1 || hashes > MAX_HASHES || blocks < 1 || blocks > MAX_BLOCKS
+                    || channel.size() != HEADER_SIZE + (long) blocks * BLOCK_WORDS * 8) {
+                throw new IonHashException("Invalid digest Bloom filter: " + file);
+            }
+
+            long[] bits = new long[blocks * BLOCK_WORDS];
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            int i = 0;
+            while (i < bits.length) {
+                read(channel, buffer);
+                if (buffer.remaining() < 8) {
+                    throw new IonHashException("Truncated digest Bloom filter: " + file);
+                }
+                while (buffer.remaining() >= 8) {
+                    bits[i++] = buffer.getLong();
+                }
+                buffer.compact();
+            }
+            return new DigestBloomFilter(blocks, hashes, bits);
+        }
+    }
+
+    // selects a block using the high bits of the first word (a multiply-shift rather than a modulus)
+    private int block(long w0) {
+        return (int) (((w0 >>> 32) * blocks) >>> 32) * BLOCK_WORDS;
+    }
+
+    private static void checkLength(int length) {
+        if (length < MIN_DIGEST_LENGTH) {
+            throw new IllegalArgumentException("Digests of at least " + MIN_DIGEST_LENGTH + " bytes are required");
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        ((Buffer) buffer).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+
+    // fills the buffer from the channel's current position (or up to the end of the channel), then flips it
+    private static void read(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        ((Buffer) buffer).flip();
+    }
+}
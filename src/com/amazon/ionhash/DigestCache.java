@@ -0,0 +1,269 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe, size-bounded cache of recently seen digests, for de-duplicating values
+ * by their Ion Hash, e.g.:
+ * <pre>
+ *    try (Stream&lt;TopLevelDigest&gt; digests = IonHash.stream(file, hasherProvider)) {
+ *        digests.filter(d -&gt; !cache.seen(d.getDigest())).forEach(...);
+ *    }
+ * </pre>
+ * The cache is divided into independently locked segments (selected by the digest's
+ * bits), each of which is set-associative:  a digest may only be stored in one of the
+ * eight entries of its bucket, and when the bucket is full, an entry is evicted with
+ * the CLOCK algorithm (an entry that has been seen since the clock hand last passed it
+ * is given a second chance).  Lookups therefore examine at most eight entries.
+ * <p/>
+ * Digests may optionally be stored off-heap (in direct buffers), so large caches
+ * don't add to the garbage collector's work.
+ */
+public final class DigestCache {
+    private static final int WAYS = 8;
+
+    // entry flags
+    private static final byte VALID = 1;
+    private static final byte REFERENCED = 2;
+
+    private final int digestLength;
+    private final int words;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int bucketMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache of at least the specified capacity, stored on the heap.
+     *
+     * @param digestLength the length of the digests, in bytes (at most {@link IonHashDigest#MAX_LENGTH})
+     * @param capacity the number of digests the cache should hold
+     */
+    public DigestCache(int digestLength, int capacity) {
+        this(digestLength, capacity, false);
+    }
+
+    /**
+     * Creates a cache of at least the specified capacity.
+     *
+     * @param digestLength the length of the digests, in bytes (at most {@link IonHashDigest#MAX_LENGTH})
+     * @param capacity the number of digests the cache should hold
+     * @param offHeap whether digests should be stored in direct buffers
+     */
+    public DigestCache(int digestLength, int capacity, boolean offHeap) {
+        if (digestLength <= 0 || digestLength > IonHashDigest.MAX_LENGTH) {
+            throw new IllegalArgumentException("digestLength must be between 1 and " + IonHashDigest.MAX_LENGTH);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.digestLength = digestLength;
+        this.words = (digestLength + 7) >> 3;
+
+        // enough segments that threads rarely contend for one;  segments are selected by
+        // the high bits of the mixed digest, and buckets by the low bits
+        int segmentCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+        int bucketsPerSegment = 1;
+        while ((long) segmentCount * bucketsPerSegment * WAYS < capacity) {
+            bucketsPerSegment <<= 1;
+        }
+        if ((long) bucketsPerSegment * WAYS * words * 8 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity is too large");
+        }
+        this.segmentMask = segmentCount - 1;
+        this.bucketMask = bucketsPerSegment - 1;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(bucketsPerSegment, offHeap);
+        }
+    }
+
+    /**
+     * Returns true if the specified digest is in the cache;  otherwise, adds it
+     * (possibly evicting another digest) and returns false.
+     *
+     * @throws IllegalArgumentException if the digest isn't of this cache's digest length
+     */
+    public boolean seen(byte[] digest) {
+        checkLength(digest.length);
+        return seen(IonHashDigest.word(digest, 0), IonHashDigest.word(digest, 1),
+                IonHashDigest.word(digest, 2), IonHashDigest.word(digest, 3));
+    }
+
+    /**
+     * @see #seen(byte[])
+     */
+    public boolean seen(IonHashDigest digest) {
+        checkLength(digest.length());
+        return seen(digest.word(0), digest.word(1), digest.word(2), digest.word(3));
+    }
+
+    /**
+     * Returns true if the specified digest is in the cache, without adding it or
+     * affecting its eviction;  not counted as a hit or miss.
+     *
+     * @throws IllegalArgumentException if the digest isn't of this cache's digest length
+     */
+    public boolean contains(byte[] digest) {
+        checkLength(digest.length);
+        long w0 = IonHashDigest.word(digest, 0);
+        long w1 = IonHashDigest.word(digest, 1);
+        long w2 = IonHashDigest.word(digest, 2);
+        long w3 = IonHashDigest.word(digest, 3);
+        long h = DigestTable.mix(w0, w1, w2, w3);
+        Segment segment = segments[(int) (h >>> 32) & segmentMask];
+        synchronized (segment) {
+            return segment.find((int) h & bucketMask, w0, w1, w2, w3) >= 0;
+        }
+    }
+
+    /**
+     * Returns the number of calls to seen() that found their digest in the cache.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of calls to seen() that didn't find their digest in the cache.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of digests evicted from the cache.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the maximum number of digests the cache can hold.
+     */
+    public long capacity() {
+        return (long) segments.length * (bucketMask + 1) * WAYS;
+    }
+
+    private boolean seen(long w0, long w1, long w2, long w3) {
+        long h = DigestTable.mix(w0, w1, w2, w3);
+        Segment segment = segments[(int) (h >>> 32) & segmentMask];
+        int bucket = (int) h & bucketMask;
+        boolean found;
+        boolean evicted = false;
+        synchronized (segment) {
+            int entry = segment.find(bucket, w0, w1, w2, w3);
+            found = entry >= 0;
+            if (found) {
+                segment.flags[entry] |= REFERENCED;
+            } else {
+                entry = segment.victim(bucket);
+                evicted = (segment.flags[entry] & VALID) != 0;
+                segment.store(entry, w0, w1, w2, w3);
+            }
+        }
+        if (found) {
+            hits.increment();
+        } else {
+            misses.increment();
+            if (evicted) {
+                evictions.increment();
+            }
+        }
+        return found;
+    }
+
+    private void checkLength(int length) {
+        if (length != digestLength) {
+            throw new IllegalArgumentException("Expected a digest of " + digestLength + " bytes");
+        }
+    }
+
+    /**
+     * Buckets of WAYS entries;  guarded by the segment's monitor.
+     */
+    private final class Segment {
+        private final LongBuffer keys;
+        private final byte[] flags;
+        private final byte[] hands;
+
+        private Segment(int buckets, boolean offHeap) {
+            int entries = buckets * WAYS;
+            keys = offHeap
+                    ? ByteBuffer.allocateDirect(entries * words * 8).order(ByteOrder.nativeOrder()).asLongBuffer()
+                    : LongBuffer.wrap(new long[entries * words]);
+            flags = new byte[entries];
+            hands = new byte[buckets];
+        }
+
+        // returns the entry holding the digest, or -1
+        private int find(int bucket, long w0, long w1, long w2, long w3) {
+            int first = bucket * WAYS;
+            for (int entry = first; entry < first + WAYS; entry++) {
+                if ((flags[entry] & VALID) == 0) {
+                    continue;
+                }
+                int k = entry * words;
+                if (keys.get(k) == w0
+                        && (words < 2 || keys.get(k + 1) == w1)
+                        && (words < 3 || keys.get(k + 2) == w2)
+                        && (words < 4 || keys.get(k + 3) == w3)) {
+                    return entry;
+                }
+            }
+            return -1;
+        }
+
+        // returns an empty entry of the bucket, or the entry to be evicted
+        private int victim(int bucket) {
+            int first = bucket * WAYS;
+            for (int entry = first; entry < first + WAYS; entry++) {
+                if ((flags[entry] & VALID) == 0) {
+                    return entry;
+                }
+            }
+            int hand = hands[bucket];
+            while ((flags[first + hand] & REFERENCED) != 0) {
+                flags[first + hand] &= ~REFERENCED;
+                hand = (hand + 1) & (WAYS - 1);
+            }
+            hands[bucket] = (byte) ((hand + 1) & (WAYS - 1));
+            return first + hand;
+        }
+
+        private void store(int entry, long w0, long w1, long w2, long w3) {
+            int k = entry * words;
+            keys.put(k, w0);
+            if (words > 1) {
+                keys.put(k + 1, w1);
+            }
+            if (words > 2) {
+                keys.put(k + 2, w2);
+            }
+            if (words > 3) {
+                keys.put(k + 3, w3);
+            }
+            flags[entry] = VALID;
+        }
+    }
+}
@@ -0,0 +1,580 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent map from digests of a fixed length to long values (e.g., the offsets of
+ * the values they're the digests of), which survives process restarts.
+ * <p/>
+ * An index consists of two files in its directory:
+ * <ul>
+ *   <li>digests.log, the source of truth:  an append-only sequence of fixed-size
+ *       records (digest, value, CRC32 of both)</li>
+ *   <li>digests.idx, a memory-mapped open-addressing (linear probing) hash table of
+ *       the logged records, preceded by a header that records how much of the log
+ *       the table reflects, and whether the table has been modified since it was
+ *       last checkpointed</li>
+ *   <li>digests.bloom, optionally, a {@link DigestBloomFilter} of the table's digests,
+ *       written when the index is closed</li>
+ * </ul>
+ * Additions are durable once {@link #checkpoint()} (or {@link #close()}) returns.
+ * When an index is opened after a crash, records torn by the crash (incomplete, or
+ * failing their CRC) are truncated from the log, and the hash table is rebuilt from
+ * the log, which requires only a sequential read of the log rather than re-hashing
+ * any Ion data.  After a clean shutdown, the hash table is used as is.
+ * <p/>
+ * An index opened with a Bloom filter consults the filter before probing the hash
+ * table, so looking up a digest that isn't in the index rarely touches the (possibly
+ * not resident) mapped table.  The filter is kept in memory, and is read from
+ * digests.bloom when it's consistent with the table, or otherwise rebuilt from the table.
+ * <p/>
+ * This class is thread-safe.
+ */
+public final class DigestIndex implements Closeable {
+    static final String LOG_FILE = "digests.log";
+    static final String INDEX_FILE = "digests.idx";
+    static final String FILTER_FILE = "digests.bloom";
+    private static final String TEMP_INDEX_FILE = "digests.idx.tmp";
+
+    private static final long MAGIC = 0x494f4e4849445831L; // "IONHIDX1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4096;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 8;
+    private static final int H_DIGEST_LENGTH = 12;
+    private static final int H_CAPACITY = 16;
+    private static final int H_SIZE = 24;
+    private static final int H_LOG_LENGTH = 32;
+    private static final int H_DIRTY = 40;
+    // the size of the table when the filter file was written, or -1 if the table has changed since
+    private static final int H_FILTER_SIZE = 48;
+
+    private static final long MIN_CAPACITY = 1024;
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    private static final int LOG_BUFFER_RECORDS = 4096;
+    private static final double FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final Path directory;
+    private final int digestLength;
+    private final int words;
+    // slot:  occupied flag, digest words, value
+    private final int slotSize;
+    // record:  digest, value, CRC32
+    private final int recordSize;
+    private final boolean useFilter;
+
+    private final FileChannel log;
+    private final ByteBuffer logBuffer;
+    private final CRC32 crc = new CRC32();
+    // the length of the log, including buffered records
+    private long logLength;
+
+    // null unless useFilter
+    private DigestBloomFilter filter;
+    private FileChannel indexChannel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] chunks;
+    private int chunkShift;
+    private long capacity;
+    private long size;
+    private boolean dirty;
+    private boolean closed;
+
+    private DigestIndex(Path directory, int digestLength, boolean useFilter) throws IOException {
+        this.directory = directory;
+        this.digestLength = digestLength;
+        this.useFilter = useFilter;
+        this.words = (digestLength + 7) >> 3;
+        this.slotSize = 8 * (words + 2);
+        this.recordSize = digestLength + 8 + 4;
+        this.logBuffer = ByteBuffer.allocate(recordSize * LOG_BUFFER_RECORDS);
+        this.log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Opens the index in the specified directory, creating it if necessary.
+     *
+     * @param digestLength the length of the digests, in bytes (at most {@link IonHashDigest#MAX_LENGTH})
+     * @throws IonHashException if the directory contains an index of a different digest length
+     */
+    public static DigestIndex open(Path directory, int digestLength) throws IOException {
+        return open(directory, digestLength, false);
+    }
+
+    /**
+     * Opens the index in the specified directory, creating it if necessary.
+     *
+     * @param digestLength the length of the digests, in bytes (at most {@link IonHashDigest#MAX_LENGTH})
+     * @param bloomFilter whether lookups should consult a {@link DigestBloomFilter} first
+     *     (which requires digests of at least {@link DigestBloomFilter#MIN_DIGEST_LENGTH} bytes)
+     * @throws IonHashException if the directory contains an index of a different digest length
+     */
+    public static DigestIndex open(Path directory, int digestLength, boolean bloomFilter) throws IOException {
+        if (digestLength <= 0 || digestLength > IonHashDigest.MAX_LENGTH) {
+            throw new IllegalArgumentException("digestLength must be between 1 and " + IonHashDigest.MAX_LENGTH);
+        }
+        if (bloomFilter && digestLength < DigestBloomFilter.MIN_DIGEST_LENGTH) {
+            throw new IllegalArgumentException("A Bloom filter requires digests of at least "
+                    + DigestBloomFilter.MIN_DIGEST_LENGTH + " bytes");
+        }
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(TEMP_INDEX_FILE));
+
+        DigestIndex index = new DigestIndex(directory, digestLength, bloomFilter);
+        try {
+            index.load();
+        } catch (IOException | RuntimeException e) {
+            index.closeChannels();
+            throw e;
+        }
+        return index;
+    }
+
+    /**
+     * Adds the specified digest and value to the index, unless the index already contains the digest.
+     *
+     * @return true if the digest was added
+     * @throws IllegalArgumentException if the digest isn't of this index's digest length
+     */
+    public synchronized boolean add(byte[] digest, long value) throws IOException {
+        checkOpen();
+        checkLength(digest);
+        long w0 = IonHashDigest.word(digest, 0);
+        long w1 = IonHashDigest.word(digest, 1);
+        long w2 = IonHashDigest.word(digest, 2);
+        long w3 = IonHashDigest.word(digest, 3);
+        long slot = find(w0, w1, w2, w3);
+        if (slot >= 0) {
+            return false;
+        }
+        markDirty();
+        appendRecord(digest, value);
+        insert(slot, w0, w1, w2, w3, value);
+        return true;
+    }
+
+    /**
+     * Returns the value associated with the specified digest, or defaultValue if the
+     * index doesn't contain the digest.
+     *
+     * @throws IllegalArgumentException if the digest isn't of this index's digest length
+     */
+    public synchronized long get(byte[] digest, long defaultValue) {
+        checkOpen();
+        checkLength(digest);
+        long slot = lookup(digest);
+        return slot >= 0 ? chunk(slot).getLong(offset(slot) + 8 * (words + 1)) : defaultValue;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the digest isn't of this index's digest length
+     */
+    public synchronized boolean contains(byte[] digest) {
+        checkOpen();
+        checkLength(digest);
+        return lookup(digest) >= 0;
+    }
+
+    /**
+     * Returns the number of digests in the index.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Makes all additions durable:  flushes the log and the hash table to storage,
+     * and marks the hash table as consistent with the log.
+     */
+    public synchronized void checkpoint() throws IOException {
+        checkOpen();
+        flushLog();
+        log.force(false);
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        header.putLong(H_SIZE, size);
+        header.putLong(H_LOG_LENGTH, logLength);
+        header.putInt(H_DIRTY, 0);
+        header.force();
+        dirty = false;
+    }
+
+    /**
+     * Discards the hash table, and rebuilds it from the log.
+     */
+    public synchronized void rebuild() throws IOException {
+        checkOpen();
+        flushLog();
+        rebuildIndex();
+    }
+
+    /**
+     * Checkpoints and closes the index.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (filter != null) {
+                flushLog();
+                filter.writeTo(directory.resolve(FILTER_FILE));
+                header.putLong(H_FILTER_SIZE, size);
+            }
+            checkpoint();
+        } finally {
+            closed = true;
+            closeChannels();
+        }
+    }
+
+    private void load() throws IOException {
+        Path indexPath = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexPath) && Files.size(indexPath) >= HEADER_SIZE) {
+            indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            header = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (header.getLong(H_MAGIC) == MAGIC && header.getInt(H_VERSION) == VERSION) {
+                if (header.getInt(H_DIGEST_LENGTH) != digestLength) {
+                    throw new IonHashException("Index in " + directory + " is of digests of "
+                            + header.getInt(H_DIGEST_LENGTH) + " bytes, not " + digestLength);
+                }
+                long checkpointedLogLength = header.getLong(H_LOG_LENGTH);
+                if (header.getInt(H_DIRTY) == 0 && checkpointedLogLength <= log.size()) {
+                    mapIndex(header.getLong(H_CAPACITY));
+                    size = header.getLong(H_SIZE);
+                    logLength = checkpointedLogLength;
+                    if (useFilter) {
+                        loadFilter();
+                    }
+                    // the log may contain records that were flushed after the last checkpoint
+                    replayLog(checkpointedLogLength);
+                    checkpoint();
+                    return;
+                }
+            }
+            indexChannel.close();
+        }
+        rebuildIndex();
+    }
+
+    private void rebuildIndex() throws IOException {
+        long records = log.size() / recordSize;
+        createIndex(directory.resolve(INDEX_FILE), capacityFor(records));
+        replayLog(0);
+        checkpoint();
+    }
+
+    // adds the log's records from the specified position to the hash table, and
+    // truncates any incomplete or corrupt records at the end of the log
+    private void replayLog(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(recordSize * LOG_BUFFER_RECORDS);
+        byte[] digest = new byte[digestLength];
+        long end = log.size();
+        long validEnd = position;
+        scan:
+        while (position < end) {
+            ((Buffer) buffer).clear();
+            while (buffer.hasRemaining()) {
+                int n = log.read(buffer, position + buffer.position());
+                if (n < 0) {
+                    break;
+                }
+            }
+            ((Buffer) buffer).flip();
+            if (buffer.remaining() < recordSize) {
+                break;
+            }
+            while (buffer.remaining() >= recordSize) {
+                int start = buffer.position();
+                buffer.get(digest);
+                long value = buffer.getLong();
+                int storedCrc = buffer.getInt();
+                crc.reset();
+                crc.update(buffer.array(), start, digestLength + 8);
+                if ((int) crc.getValue() != storedCrc) {
+                    break scan;
+                }
+                long w0 = IonHashDigest.word(digest, 0);
+                long w1 = IonHashDigest.word(digest, 1);
+                long w2 = IonHashDigest.word(digest, 2);
+                long w3 = IonHashDigest.word(digest, 3);
+                long slot = find(w0, w1, w2, w3);
+                if (slot < 0) {
+                    markDirty();
+                    insert(slot, w0, w1, w2, w3, value);
+                }
+                validEnd += recordSize;
+            }
+            position = validEnd;
+        }
+        if (validEnd < end) {
+            // records torn by a crash
+            log.truncate(validEnd);
+        }
+        logLength = validEnd;
+    }
+
+    // reads the filter file if it reflects the (clean) table, or otherwise rebuilds the filter from the table
+    private void loadFilter() throws IOException {
+        Path filterPath = directory.resolve(FILTER_FILE);
+        if (header.getLong(H_FILTER_SIZE) == size && Files.exists(filterPath)) {
+            try {
+                filter = DigestBloomFilter.readFrom(filterPath);
+                return;
+            } catch (IonHashException e) {
+                // rebuild it
+            }
+        }
+        filter = newFilter(capacity);
+        long chunkSlots = 1L << chunkShift;
+        for (MappedByteBuffer chunk : chunks) {
+            for (long i = 0; i < chunkSlots; i++) {
+                int offset = (int) (i * slotSize);
+                if (chunk.getLong(offset) != 0) {
+                    filter.add(chunk.getLong(offset + 8), chunk.getLong(offset + 16));
+                }
+            }
+        }
+    }
+
+    // returns the slot of the specified digest, or a negative number if the index doesn't contain it
+    private long lookup(byte[] digest) {
+        long w0 = IonHashDigest.word(digest, 0);
+        long w1 = IonHashDigest.word(digest, 1);
+        if (filter != null && !filter.mightContain(w0, w1)) {
+            return -1;
+        }
+        return find(w0, w1, IonHashDigest.word(digest, 2), IonHashDigest.word(digest, 3));
+    }
+
+    // returns the slot of the specified digest, or (-slot - 1) where slot is the empty slot at which it may be inserted
+    private long find(long w0, long w1, long w2, long w3) {
+        long mask = capacity - 1;
+        long slot = DigestTable.mix(w0, w1, w2, w3) & mask;
+        while (true) {
+            MappedByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            if (chunk.getLong(offset) == 0) {
+                return -slot - 1;
+            }
+            if (chunk.getLong(offset + 8) == w0
+                    && (words < 2 || chunk.getLong(offset + 16) == w1)
+                    && (words < 3 || chunk.getLong(offset + 24) == w2)
+                    && (words < 4 || chunk.getLong(offset + 32) == w3)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insert(long notFound, long w0, long w1, long w2, long w3, long value) throws IOException {
+        long slot = -notFound - 1;
+        if (size + 1 > capacity / 4 * 3) {
+            grow();
+            slot = -find(w0, w1, w2, w3) - 1;
+        }
+        MappedByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + 8, w0);
+        if (words > 1) {
+            chunk.putLong(offset + 16, w1);
+        }
+        if (words > 2) {
+            chunk.putLong(offset + 24, w2);
+        }
+        if (words > 3) {
+            chunk.putLong(offset + 32, w3);
+        }
+        chunk.putLong(offset + 8 * (words + 1), value);
+        chunk.putLong(offset, 1);
+        size++;
+        if (filter != null) {
+            filter.add(w0, w1);
+        }
+    }
+
+    // rehashes the table into a new file of twice the capacity, which then replaces the current one
+    private void grow() throws IOException {
+        MappedByteBuffer[] oldChunks = chunks;
+        int oldChunkShift = chunkShift;
+        long oldCapacity = capacity;
+        FileChannel oldChannel = indexChannel;
+
+        Path tempPath = directory.resolve(TEMP_INDEX_FILE);
+        createIndex(tempPath, oldCapacity * 2);
+        // the new filter is sized for the new capacity
+        long mask = capacity - 1;
+        long oldChunkMask = (1L << oldChunkShift) - 1;
+        for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            MappedByteBuffer oldChunk = oldChunks[(int) (oldSlot >>> oldChunkShift)];
+            int oldOffset = (int) ((oldSlot & oldChunkMask) * slotSize);
+            if (oldChunk.getLong(oldOffset) == 0) {
+                continue;
+            }
+            long w0 = oldChunk.getLong(oldOffset + 8);
+            long w1 = words > 1 ? oldChunk.getLong(oldOffset + 16) : 0;
+            long w2 = words > 2 ? oldChunk.getLong(oldOffset + 24) : 0;
+            long w3 = words > 3 ? oldChunk.getLong(oldOffset + 32) : 0;
+            long slot = DigestTable.mix(w0, w1, w2, w3) & mask;
+            while (chunk(slot).getLong(offset(slot)) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            MappedByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            for (int i = 0; i < slotSize; i += 8) {
+                chunk.putLong(offset + i, oldChunk.getLong(oldOffset + i));
+            }
+            size++;
+            if (filter != null) {
+                filter.add(w0, w1);
+            }
+        }
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        header.putLong(H_SIZE, size);
+        header.force();
+
+        oldChannel.close();
+        Files.move(tempPath, directory.resolve(INDEX_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // creates an empty (dirty) hash table of the specified capacity in the specified file, and maps it
+    private void createIndex(Path path, long newCapacity) throws IOException {
+        if (indexChannel != null && indexChannel.isOpen() && path.endsWith(INDEX_FILE)) {
+            indexChannel.close();
+        }
+        Files.deleteIfExists(path);
+        indexChannel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.putLong(H_MAGIC, MAGIC);
+        header.putInt(H_VERSION, VERSION);
+        header.putInt(H_DIGEST_LENGTH, digestLength);
+        header.putLong(H_CAPACITY, newCapacity);
+        header.putLong(H_SIZE, 0);
+        header.putLong(H_LOG_LENGTH, 0);
+        header.putInt(H_DIRTY, 1);
+        header.putLong(H_FILTER_SIZE, -1);
+        header.force();
+        dirty = true;
+        size = 0;
+        mapIndex(newCapacity);
+        if (useFilter) {
+            filter = newFilter(newCapacity);
+        }
+    }
+
+    private void mapIndex(long newCapacity) throws IOException {
+        long chunkSlots = Math.min(newCapacity, Long.highestOneBit(MAX_CHUNK_SIZE / slotSize));
+        chunkShift = Long.numberOfTrailingZeros(chunkSlots);
+        capacity = newCapacity;
+        chunks = new MappedByteBuffer[(int) (newCapacity / chunkSlots)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = indexChannel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + i * chunkSlots * slotSize, chunkSlots * slotSize);
+        }
+    }
+
+    private MappedByteBuffer chunk(long slot) {
+        return chunks[(int) (slot >>> chunkShift)];
+    }
+
+    private int offset(long slot) {
+        return (int) ((slot & ((1L << chunkShift) - 1)) * slotSize);
+    }
+
+    // a power of two with a load factor of at most 0.75 for the specified number of digests
+    private static long capacityFor(long digests) {
+        long capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 < digests + 1) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static DigestBloomFilter newFilter(long capacity) {
+        return new DigestBloomFilter(capacity / 4 * 3, FILTER_FALSE_POSITIVE_PROBABILITY);
+    }
+
+    private void markDirty() {
+        if (!dirty) {
+            header.putInt(H_DIRTY, 1);
+            header.putLong(H_FILTER_SIZE, -1);
+            header.force();
+            dirty = true;
+        }
+    }
+
+    private void appendRecord(byte[] digest, long value) throws IOException {
+        if (logBuffer.remaining() < recordSize) {
+            flushLog();
+        }
+        int start = logBuffer.position();
+        logBuffer.put(digest);
+        logBuffer.putLong(value);
+        crc.reset();
+        crc.update(logBuffer.array(), start, digestLength + 8);
+        logBuffer.putInt((int) crc.getValue());
+        logLength += recordSize;
+    }
+
+    private void flushLog() throws IOException {
+        ((Buffer) logBuffer).flip();
+        long position = logLength - logBuffer.remaining();
+        while (logBuffer.hasRemaining()) {
+            position += log.write(logBuffer, position);
+        }
+        ((Buffer) logBuffer).clear();
+    }
+
+    private void closeChannels() throws IOException {
+        try {
+            log.close();
+        } finally {
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("DigestIndex is closed");
+        }
+    }
+
+    private void checkLength(byte[] digest) {
+        if (digest.length != digestLength) {
+            throw new IllegalArgumentException("Expected a digest of " + digestLength + " bytes");
+        }
+    }
+}
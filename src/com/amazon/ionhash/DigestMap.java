@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+/**
+ * Map from digests of a fixed length to long values (e.g., counts or offsets), stored
+ * in flat long[] tables rather than as objects.
+ * <p/>
+ * Digests may be provided as byte arrays or as {@link IonHashDigest}s.  Entries can't
+ * be removed individually.
+ * <p/>
+ * This class is not thread-safe.
+ */
+public final class DigestMap extends DigestTable {
+    /**
+     * Receives the entries of a DigestMap.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(IonHashDigest digest, long value);
+    }
+
+    /**
+     * @param digestLength the length of the digests, in bytes (at most {@link IonHashDigest#MAX_LENGTH})
+     */
+    public DigestMap(int digestLength) {
+        this(digestLength, 0);
+    }
+
+    /**
+     * @param digestLength the length of the digests, in bytes (at most {@link IonHashDigest#MAX_LENGTH})
+     * @param expectedSize the number of entries the map should hold without being resized
+     */
+    public DigestMap(int digestLength, int expectedSize) {
+        super(digestLength, expectedSize, true);
+    }
+
+    /**
+     * Associates the specified value with the specified digest.
+     *
+     * @return true if the map did not already contain the digest
+     * @throws IllegalArgumentException if the digest isn't of this map's digest length
+     */
+    public boolean put(byte[] digest, long value) {
+        int slot = find(digest);
+        boolean added = slot < 0;
+        if (added) {
+            slot = insert(slot, digest);
+        }
+        setValue(slot, value);
+        return added;
+    }
+
+    /**
+     * Associates the specified value with the specified digest.
+     *
+     * @return true if the map did not already contain the digest
+     * @throws IllegalArgumentException if the digest isn't of this map's digest length
+     */
+    public boolean put(IonHashDigest digest, long value) {
+        int slot = find(digest);
+        boolean added = slot < 0;
+        if (added) {
+            slot = insert(slot, digest);
+        }
+        setValue(slot, value);
+        return added;
+    }
+
+    /**
+     * Adds the specified delta to the value associated with the specified digest
+     * (or associates the delta with the digest, if the map doesn't contain it).
+     *
+     * @return the new value
+     * @throws IllegalArgumentException if the digest isn't of this map's digest length
+     */
+    public long addTo(byte[] digest, long delta) {
+        int slot = find(digest);
+        long value = delta;
+        if (slot < 0) {
+            slot = insert(slot, digest);
+        } else {
+            value += value(slot);
+        }
+        setValue(slot, value);
+        return value;
+    }
+
+    /**
+     * Returns the value associated with the specified digest, or defaultValue if the map
+     * doesn't contain the digest.
+     *
+     * @throws IllegalArgumentException if the digest isn't of this map's digest length
+     */
+    public long get(byte[] digest, long defaultValue) {
+        int slot = find(digest);
+        return slot >= 0 ? value(slot) : defaultValue;
+    }
+
+    /**
+     * Returns the value associated with the specified digest, or defaultValue if the map
+     * doesn't contain the digest.
+     *
+     * @throws IllegalArgumentException if the digest isn't of this map's digest length
+     */
+    public long get(IonHashDigest digest, long defaultValue) {
+        int slot = find(digest);
+        return slot >= 0 ? value(slot) : defaultValue;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the digest isn't of this map's digest length
+     */
+    public boolean containsKey(byte[] digest) {
+        return find(digest) >= 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the digest isn't of this map's digest length
+     */
+    public boolean containsKey(IonHashDigest digest) {
+        return find(digest) >= 0;
+    }
+
+    /**
+     * Provides each entry of the map (in no particular order) to the specified consumer.
+     */
+    public void forEach(EntryConsumer action) {
+        for (int slot = nextOccupied(0); slot >= 0; slot = nextOccupied(slot + 1)) {
+            action.accept(digest(slot), value(slot));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.util.function.Consumer;
+
+/**
+ * Set of digests of a fixed length, stored in a flat long[] table (e.g., four longs per
+ * SHA-256 digest) rather than as objects, for de-duplicating large numbers of values.
+ * <p/>
+ * Digests may be provided as byte arrays or as {@link IonHashDigest}s.  Digests can't
+ * be removed individually.
+ * <p/>
+ * This class is not thread-safe.
+ */
+public final class DigestSet extends DigestTable {
+    /**
+     * @param digestLength the length of the digests, in bytes (at most {@link IonHashDigest#MAX_LENGTH})
+     */
+    public DigestSet(int digestLength) {
+        this(digestLength, 0);
+    }
+
+    /**
+     * @param digestLength the length of the digests, in bytes (at most {@link IonHashDigest#MAX_LENGTH})
+     * @param expectedSize the number of digests the set should hold without being resized
+     */
+    public DigestSet(int digestLength, int expectedSize) {
+        super(digestLength, expectedSize, false);
+    }
+
+    /**
+     * Adds the specified digest to the set.
+     *
+     * @return true if the set did not already contain the digest
+     * @throws IllegalArgumentException if the digest isn't of this set's digest length
+     */
+    public boolean add(byte[] digest) {
+        int slot = find(digest);
+        if (slot >= 0) {
+            return false;
+        }
+        insert(slot, digest);
+        return true;
+    }
+
+    /**
+     * Adds the specified digest to the set.
+     *
+     * @return true if the set did not already contain the digest
+     * @throws IllegalArgumentException if the digest isn't of this set's digest length
+     */
+    public boolean add(IonHashDigest digest) {
+        int slot = find(digest);
+        if (slot >= 0) {
+            return false;
+        }
+        insert(slot, digest);
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the digest isn't of this set's digest length
+     */
+    public boolean contains(byte[] digest) {
+        return find(digest) >= 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the digest isn't of this set's digest length
+     */
+    public boolean contains(IonHashDigest digest) {
+        return find(digest) >= 0;
+    }
+
+    /**
+     * Provides each digest in the set (in no particular order) to the specified consumer.
+     */
+    public void forEach(Consumer<IonHashDigest> action) {
+        for (int slot = nextOccupied(0); slot >= 0; slot = nextOccupied(slot + 1)) {
+            action.accept(digest(slot));
+        }
+    }
+}
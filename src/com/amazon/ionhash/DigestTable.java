@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing (linear probing) hash table of fixed-length digests, stored as
+ * consecutive words of a flat long[], with an optional long value per digest.
+ * Occupied slots are tracked in a separate bitmap, so any digest (including all
+ * zeros) may be stored.
+ * <p/>
+ * This class is not thread-safe.
+ */
+abstract class DigestTable {
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    final int digestLength;
+    private final int words;
+    private final boolean hasValues;
+
+    private long[] keys;
+    private long[] values;
+    private long[] occupied;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    DigestTable(int digestLength, int expectedSize, boolean hasValues) {
+        if (digestLength <= 0 || digestLength > IonHashDigest.MAX_LENGTH) {
+            throw new IllegalArgumentException("digestLength must be between 1 and " + IonHashDigest.MAX_LENGTH);
+        }
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative");
+        }
+        this.digestLength = digestLength;
+        this.words = (digestLength + 7) >> 3;
+        this.hasValues = hasValues;
+
+        // a load factor of at most 0.75
+        long capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(checkCapacity(capacity));
+    }
+
+    /**
+     * Returns the number of digests in the table.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the table contains no digests.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all digests from the table.
+     */
+    public void clear() {
+        Arrays.fill(occupied, 0);
+        size = 0;
+    }
+
+    // returns the slot of the specified digest, or (-slot - 1) where slot is the empty slot at which it may be inserted
+    final int find(long w0, long w1, long w2, long w3) {
+        int slot = (int) mix(w0, w1, w2, w3) & mask;
+        while (isOccupied(slot)) {
+            int k = slot * words;
+            if (keys[k] == w0
+                    && (words < 2 || keys[k + 1] == w1)
+                    && (words < 3 || keys[k + 2] == w2)
+                    && (words < 4 || keys[k + 3] == w3)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    final int find(byte[] digest) {
+        checkLength(digest);
+        return find(IonHashDigest.word(digest, 0), IonHashDigest.word(digest, 1),
+                IonHashDigest.word(digest, 2), IonHashDigest.word(digest, 3));
+    }
+
+    final int find(IonHashDigest digest) {
+        if (digest.length() != digestLength) {
+            throw new IllegalArgumentException("Expected a digest of " + digestLength + " bytes");
+        }
+        return find(digest.word(0), digest.word(1), digest.word(2), digest.word(3));
+    }
+
+    // inserts a digest at a slot returned by find();  returns the slot in which it was stored
+    final int insert(int notFound, long w0, long w1, long w2, long w3) {
+        int slot = -notFound - 1;
+        if (size >= resizeAt) {
+            grow();
+            slot = -find(w0, w1, w2, w3) - 1;
+        }
+        int k = slot * words;
+        keys[k] = w0;
+        if (words > 1) {
+            keys[k + 1] = w1;
+        }
+        if (words > 2) {
+            keys[k + 2] = w2;
+        }
+        if (words > 3) {
+            keys[k + 3] = w3;
+        }
+        occupied[slot >>> 6] |= 1L << slot;
+        size++;
+        return slot;
+    }
+
+    final int insert(int notFound, byte[] digest) {
+        return insert(notFound, IonHashDigest.word(digest, 0), IonHashDigest.word(digest, 1),
+                IonHashDigest.word(digest, 2), IonHashDigest.word(digest, 3));
+    }
+
+    final int insert(int notFound, IonHashDigest digest) {
+        return insert(notFound, digest.word(0), digest.word(1), digest.word(2), digest.word(3));
+    }
+
+    final long value(int slot) {
+        return values[slot];
+    }
+
+    final void setValue(int slot, long value) {
+        values[slot] = value;
+    }
+
+    final IonHashDigest digest(int slot) {
+        int k = slot * words;
+        return new IonHashDigest(
+                keys[k],
+                words > 1 ? keys[k + 1] : 0,
+                words > 2 ? keys[k + 2] : 0,
+                words > 3 ? keys[k + 3] : 0,
+                digestLength);
+    }
+
+    // returns the first occupied slot at or after the specified slot, or -1
+    final int nextOccupied(int slot) {
+        int capacity = mask + 1;
+        while (slot < capacity) {
+            long bits = occupied[slot >>> 6] >>> slot;
+            if (bits != 0) {
+                return slot + Long.numberOfTrailingZeros(bits);
+            }
+            slot = (slot | 63) + 1;
+        }
+        return -1;
+    }
+
+    private boolean isOccupied(int slot) {
+        return (occupied[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private void checkLength(byte[] digest) {
+        if (digest.length != digestLength) {
+            throw new IllegalArgumentException("Expected a digest of " + digestLength + " bytes");
+        }
+    }
+
+    private int checkCapacity(long capacity) {
+        if (capacity * words > MAX_ARRAY_LENGTH) {
+            throw new IllegalStateException("Digest table capacity exceeded");
+        }
+        return (int) capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity * words];
+        values = hasValues ? new long[capacity] : null;
+        occupied = new long[Math.max(1, capacity >>> 6)];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * 3L / 4);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        long[] oldOccupied = occupied;
+        int oldCapacity = mask + 1;
+
+        allocate(checkCapacity(oldCapacity * 2L));
+        for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            if ((oldOccupied[oldSlot >>> 6] & (1L << oldSlot)) == 0) {
+                continue;
+            }
+            int k = oldSlot * words;
+            long w0 = oldKeys[k];
+            long w1 = words > 1 ? oldKeys[k + 1] : 0;
+            long w2 = words > 2 ? oldKeys[k + 2] : 0;
+            long w3 = words > 3 ? oldKeys[k + 3] : 0;
+            int slot = (int) mix(w0, w1, w2, w3) & mask;
+            while (isOccupied(slot)) {
+                slot = (slot + 1) & mask;
+            }
+            System.arraycopy(oldKeys, k, keys, slot * words, words);
+            if (hasValues) {
+                values[slot] = oldValues[oldSlot];
+            }
+            occupied[slot >>> 6] |= 1L << slot;
+        }
+    }
+
+    // digests of cryptographic hash functions are already uniform, but test and
+    // non-cryptographic hashers' aren't;  a cheap finalizer spreads them regardless
+    static long mix(long w0, long w1, long w2, long w3) {
+        long h = w0 ^ Long.rotateLeft(w1, 17) ^ Long.rotateLeft(w2, 31) ^ Long.rotateLeft(w3, 47);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.util.List;
+
+/**
+ * Computes the digests of the fields of a struct.  The bytes of each field (its name
+ * and value) are provided by update(), followed by a call to fieldCompleted().
+ * <p/>
+ * A struct sorts the digests of its fields before hashing them, so an implementation
+ * may defer a field's digest, e.g., to compute it on another thread, or together with
+ * the digests of other fields.
+ * <p/>
+ * Implementations of this interface are not expected to be thread-safe.
+ */
+interface FieldHasher {
+    void update(byte[] bytes);
+
+    /**
+     * Completes the field whose bytes were provided since the previous call;  its digest
+     * is added to the specified list now, or by a subsequent call to this method or flush().
+     */
+    void fieldCompleted(List<byte[]> hashes);
+
+    /**
+     * Adds the digests of any deferred fields to the specified list.
+     */
+    default void flush(List<byte[]> hashes) {
+    }
+}
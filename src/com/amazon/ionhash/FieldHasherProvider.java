@@ -0,0 +1,29 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+/**
+ * Implemented by an IonHasherProvider that provides its own FieldHashers for the
+ * fields of structs (e.g., to digest several fields together);  otherwise, each
+ * field is digested by an IonHasher obtained from the provider.
+ * <p/>
+ * Implementations must be thread-safe.
+ */
+interface FieldHasherProvider {
+    /**
+     * Returns a new FieldHasher, which computes the same digests as the provider's IonHashers.
+     */
+    FieldHasher newFieldHasher();
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The state of a hash of the top-level values of a binary Ion file, as saved by
+ * {@link IonHash#digestTopLevelValues(Path, IonHasherProvider, Path, long, java.util.function.Consumer)}:
+ * the offset within the file at which hashing resumes, and everything required to resume
+ * there (the symbol table context in effect, the containers of the top-level value in
+ * progress, if any, and the state of the hasher).
+ * <p/>
+ * A checkpoint is a few hundred bytes, plus the size of the local symbol tables in
+ * effect, plus 32 bytes (for SHA-256) per completed field of each struct in progress.
+ */
+public final class HashCheckpoint {
+    private static final long MAGIC = 0x494f4e48434b5031L; // "IONHCKP1"
+    private static final int VERSION = 1;
+
+    final long offset;
+    final long index;
+    // the offset of the top-level value in progress, or -1 if the offset is between top-level values
+    final long valueOffset;
+    // the IVM and local symbol tables in effect at the offset
+    final byte[] context;
+    // the containers (outermost first) of the value in progress, and the offsets at which they end
+    final IonType[] types;
+    final long[] ends;
+    // written by HasherImpl.writeState()
+    final byte[] hasherState;
+
+    HashCheckpoint(long offset, long index, long valueOffset, byte[] context, IonType[] types, long[] ends, byte[] hasherState) {
+        this.offset = offset;
+        this.index = index;
+        this.valueOffset = valueOffset;
+        this.context = context;
+        this.types = types;
+        this.ends = ends;
+        this.hasherState = hasherState;
+    }
+
+    /**
+     * Returns the offset within the file at which hashing resumes;  this may be
+     * within a top-level value.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of top-level values preceding the offset, i.e., the index of the
+     * value whose digest will be provided next.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns true if the offset is within a top-level value.
+     */
+    public boolean isWithinValue() {
+        return types.length > 0;
+    }
+
+    /**
+     * Reads a checkpoint written by IonHash.
+     *
+     * @throws IonHashException if the file doesn't contain a checkpoint
+     */
+    public static HashCheckpoint readFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            if (in.readLong() != MAGIC || in.readShort() != VERSION) {
+                throw new IonHashException("Not a hash checkpoint: " + file);
+            }
+            long offset = in.readLong();
+            long index = in.readLong();
+            long valueOffset = in.readLong();
+            byte[] context = new byte[in.readInt()];
+            in.readFully(context);
+            int depth = in.readInt();
+            if (offset < 0 || index < 0 || depth < 0 || depth > 0 && valueOffset < 0) {
+                throw new IonHashException("Invalid hash checkpoint: " + file);
+            }
+            IonType[] types = new IonType[depth];
+            long[] ends = new long[depth];
+            for (int i = 0; i < depth; i++) {
+                int ordinal = in.readUnsignedByte();
+                if (ordinal >= IonType.values().length) {
+                    throw new IonHashException("Invalid hash checkpoint: " + file);
+                }
+                types[i] = IonType.values()[ordinal];
+                ends[i] = in.readLong();
+                if (!IonType.isContainer(types[i]) || types[i] == IonType.DATAGRAM || ends[i] < offset) {
+                    throw new IonHashException("Invalid hash checkpoint: " + file);
+                }
+            }
+            byte[] hasherState = new byte[in.readInt()];
+            in.readFully(hasherState);
+            return new HashCheckpoint(offset, index, valueOffset, context, types, ends, hasherState);
+        } catch (EOFException e) {
+            throw new IonHashException("Truncated hash checkpoint: " + file);
+        }
+    }
+
+    // replaces the specified file atomically, so a crash leaves either the previous checkpoint or this one
+    void writeTo(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + context.length + hasherState.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(offset);
+            out.writeLong(index);
+            out.writeLong(valueOffset);
+            out.writeInt(context.length);
+            out.write(context);
+            out.writeInt(types.length);
+            for (int i = 0; i < types.length; i++) {
+                out.writeByte(types[i].ordinal());
+                out.writeLong(ends[i]);
+            }
+            out.writeInt(hasherState.length);
+            out.write(hasherState);
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
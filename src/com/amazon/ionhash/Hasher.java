@@ -43,6 +43,29 @@ interface Hasher extends Closeable {
 
     byte[] digest();
 
+    /**
+     * Provides the digest computed by each hash function, in the order the
+     * hash functions were specified;  the first is the same as digest().
+     */
+    default byte[][] digests() {
+        return new byte[][] { digest() };
+    }
+
+    /**
+     * Returns the number of hash functions, i.e., the length of the array
+     * returned by digests().
+     */
+    default int hashFunctionCount() {
+        return 1;
+    }
+
+    /**
+     * Determines whether the next value, which has the specified field name (if any),
+     * is excluded from the hash.  If so, the value is considered consumed, and the
+     * caller must skip it rather than stepping in or updating the hash with it.
+     */
+    boolean exclude(SymbolToken fieldName);
+
     ScalarHasher scalar();
 
     /**
@@ -53,7 +76,6 @@ interface Hasher extends Closeable {
     interface ScalarHasher extends Closeable {
         ScalarHasher withFieldName(SymbolToken fieldName);
         ScalarHasher withAnnotations(SymbolToken[] annotations);
-        ScalarHasher withHasher(IonHasher hasher);
         void prepare();
 
         void updateBlob(byte[] value) throws IOException;
@@ -64,6 +86,7 @@ interface Hasher extends Closeable {
         void updateDecimal(BigDecimal value) throws IOException;
         void updateFloat(double value) throws IOException;
         void updateInt(BigInteger value) throws IOException;
+        void updateInt(long value) throws IOException;
         void updateNull() throws IOException;
         void updateNull(IonType type) throws IOException;
         void updateString(String value) throws IOException;
@@ -21,6 +21,7 @@ import com.amazon.ion.Timestamp;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 
 import static com.amazon.ionhash.HasherImpl.EMPTY_BYTE_ARRAY;
 
@@ -78,6 +79,26 @@ final class HasherEngagerImpl implements Hasher {
         return EMPTY_BYTE_ARRAY;
     }
 
+    @Override
+    public byte[][] digests() {
+        if (enabled) {
+            return delegate.digests();
+        }
+        byte[][] digests = new byte[delegate.hashFunctionCount()][];
+        Arrays.fill(digests, EMPTY_BYTE_ARRAY);
+        return digests;
+    }
+
+    @Override
+    public int hashFunctionCount() {
+        return delegate.hashFunctionCount();
+    }
+
+    @Override
+    public boolean exclude(SymbolToken fieldName) {
+        return enabled && delegate.exclude(fieldName);
+    }
+
     @Override
     public void close() throws IOException {
         delegate.close();
@@ -91,7 +112,6 @@ final class HasherEngagerImpl implements Hasher {
     private static final ScalarHasher NOOP_SCALAR_HASHER = new ScalarHasher() {
         @Override public ScalarHasher withFieldName(SymbolToken fieldName) { return this; }
         @Override public ScalarHasher withAnnotations(SymbolToken[] annotations) { return this; }
-        @Override public ScalarHasher withHasher(IonHasher hasher) { return this; }
         @Override public void prepare() { }
         @Override public void updateBlob(byte[] value) throws IOException { }
         @Override public void updateBlob(byte[] value, int start, int len) throws IOException { }
@@ -101,6 +121,7 @@ final class HasherEngagerImpl implements Hasher {
         @Override public void updateDecimal(BigDecimal value) throws IOException { }
         @Override public void updateFloat(double value) throws IOException { }
         @Override public void updateInt(BigInteger value) throws IOException { }
+        @Override public void updateInt(long value) throws IOException { }
         @Override public void updateNull() throws IOException { }
         @Override public void updateNull(IonType type) throws IOException { }
         @Override public void updateString(String value) throws IOException { }
@@ -18,20 +18,28 @@ import com.amazon.ion.IonType;
 import com.amazon.ion.IonWriter;
 import com.amazon.ion.SymbolToken;
 import com.amazon.ion.Timestamp;
+import com.amazon.ion.UnknownSymbolException;
 
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Provides core hash functionality for use by streaming hash readers and writers.
@@ -44,7 +52,7 @@ import java.util.List;
  */
 class HasherImpl implements Hasher {
     private static final byte BEGIN_MARKER_BYTE      = 0x0B;
-    private static final byte END_MARKER_BYTE        = 0x0E;
+    static final byte END_MARKER_BYTE                = 0x0E;
     private static final byte ESCAPE_BYTE            = 0x0C;
     private static final byte[] BEGIN_MARKER         = new byte[] { BEGIN_MARKER_BYTE };
     private static final byte[] END_MARKER           = new byte[] { END_MARKER_BYTE };
@@ -60,35 +68,263 @@ class HasherImpl implements Hasher {
 
     private static final byte[][] FLOAT_POSITIVE_ZERO_PARTS = new byte[][] {new byte[] {0x40}};
 
+    // a symbol with unknown text, i.e., $0
+    private static final SymbolToken SYMBOL_ZERO = new SymbolToken() {
+        @Override
+        public String getText() {
+            return null;
+        }
+
+        @Override
+        public String assumeText() {
+            throw new UnknownSymbolException(0);
+        }
+
+        @Override
+        public int getSid() {
+            return 0;
+        }
+    };
+
     private final IonHasherProvider hasherProvider;
     private final IonHasher hasher;
+    private final ByteSink topLevelSink;
     private final SymbolHasher symbolHasher;
-    private final ScalarHasher scalarHasher;
+    private final ScalarHasherImpl scalarHasher;
     private final Deque<ContainerHasher> containerHasherStack = new ArrayDeque<>();
 
+    // digest listener and path exclusion support;  the position of each value
+    // is only tracked if a listener or exclusions were specified
+    private final IonHashListener listener;
+    private final IonHashPathFilter listenerFilter;
+    private final IonHashPathFilter exclusions;
+    private final boolean tracking;
+    private final Deque<TeeHasher> teeHashers = new ArrayDeque<>();
+    private int topLevelCount;
+    private byte[] topLevelDigest;
+
+    // if specified, the digests of large struct fields are computed by this executor
+    private final Executor fieldDigestExecutor;
+
     HasherImpl(IonHasherProvider hasherProvider) {
+        this(hasherProvider, null, null, null);
+    }
+
+    HasherImpl(IonHasherProvider hasherProvider,
+               IonHashListener listener,
+               IonHashPathFilter listenerFilter,
+               IonHashPathFilter exclusions) {
+        this(hasherProvider, listener, listenerFilter, exclusions, null, new SymbolHasher(), null);
+    }
+
+    // if topLevelHasher is specified, top-level values are provided to it rather than
+    // to an IonHasher obtained from the hasherProvider
+    HasherImpl(IonHasherProvider hasherProvider,
+               IonHashListener listener,
+               IonHashPathFilter listenerFilter,
+               IonHashPathFilter exclusions,
+               IonHasher topLevelHasher,
+               SymbolHasher symbolHasher,
+               Executor fieldDigestExecutor) {
+        if (hasherProvider == null) {
+            throw new NullPointerException("IonHasherProvider must not be null");
+        }
+
         this.hasherProvider = hasherProvider;
-        this.hasher = hasherProvider.newHasher();
-        this.symbolHasher = new SymbolHasher();
-        this.scalarHasher = new ScalarHasherImpl(hasher);
+        this.listener = listener;
+        this.listenerFilter = listenerFilter;
+        this.exclusions = exclusions;
+        this.tracking = listener != null || exclusions != null;
+        this.hasher = topLevelHasher != null ? topLevelHasher : hasherProvider.newHasher();
+        this.topLevelSink = hasher::update;
+        this.symbolHasher = symbolHasher;
+        this.scalarHasher = new ScalarHasherImpl(topLevelSink);
+        this.fieldDigestExecutor = fieldDigestExecutor;
     }
 
     public ScalarHasher scalar() {
         return scalarHasher;
     }
 
-    IonHasher currentHasher() {
+    // the type of the scalar most recently hashed
+    IonType lastScalarType() {
+        return scalarHasher.lastType;
+    }
+
+    // the TQ and representation of the scalar most recently hashed;  these do not depend
+    // on the hash function, so may be provided to other HasherImpls via updateScalarParts()
+    byte[][] lastScalarParts() {
+        return scalarHasher.lastParts;
+    }
+
+    // updates the hash with a scalar previously encoded by another HasherImpl;
+    // as with the ScalarHasher update methods, prepare() must be called first
+    void updateScalarParts(IonType ionType, byte[][] tqAndRepresentation) throws IOException {
+        scalarHasher.writeScalar(ionType, null, tqAndRepresentation);
+    }
+
+    // updates the hash with the field name of a struct field;  at the top level, this allows
+    // the digest of a single field (to be provided to another HasherImpl's updateFieldDigest())
+    // to be computed by hashing the field's value after its name
+    void updateFieldName(SymbolToken fieldName) {
+        scalarHasher.beginMarker();
+        scalarHasher.updateTQandRepresentation(symbolHasher.symbolParts(fieldName));
+        scalarHasher.endMarker();
+    }
+
+    // updates the current struct with the digest of one of its fields, computed by another HasherImpl;
+    // not supported if a listener or exclusions were specified
+    void updateFieldDigest(byte[] fieldDigest) {
+        ContainerHasher containerHasher = containerHasherStack.peekFirst();
+        if (!(containerHasher instanceof StructHasher)) {
+            throw new IllegalStateException("Field digests may only be provided within a struct");
+        }
+        ((StructHasher)containerHasher).hashes.add(fieldDigest);
+    }
+
+    // updates the hash with the bytes of a value (e.g., a list element) encoded by another HasherImpl,
+    // whose top-level hasher retained the bytes rather than digesting them;  not supported if a
+    // listener or exclusions were specified
+    void updateEncodedValue(byte[] bytes) {
+        currentChildHasher().update(bytes);
+        ContainerHasher containerHasher = containerHasherStack.peekFirst();
+        if (containerHasher instanceof StructHasher) {
+            ((StructHasher)containerHasher).fieldCompleted();
+        }
+    }
+
+    // writes the state of a hash in progress (the containers stepped into, the digests of the
+    // completed fields of structs, and the state of each IonHasher), so that another HasherImpl
+    // may resume the hash via readState();  requires StatefulIonHashers, and isn't supported if
+    // a listener, exclusions, or a fieldDigestExecutor were specified
+    void writeState(DataOutput out) throws IOException {
+        checkStateSupported();
+        for (ContainerHasher containerHasher : containerHasherStack) {
+            if (containerHasher instanceof StructHasher) {
+                ((StructHasher)containerHasher).flushFieldDigests();
+            }
+        }
+        List<StructHasher> structs = new ArrayList<>();
+        out.writeInt(containerHasherStack.size());
+        Iterator<ContainerHasher> iter = containerHasherStack.descendingIterator();
+        while (iter.hasNext()) {
+            ContainerHasher containerHasher = iter.next();
+            out.writeByte(containerHasher.ionType.ordinal());
+            writeSymbol(out, containerHasher.fieldName);
+            SymbolToken[] annotations = containerHasher.annotations;
+            out.writeInt(annotations == null ? 0 : annotations.length);
+            if (annotations != null) {
+                for (SymbolToken annotation : annotations) {
+                    writeSymbol(out, annotation);
+                }
+            }
+            if (containerHasher instanceof StructHasher) {
+                StructHasher structHasher = (StructHasher)containerHasher;
+                structs.add(structHasher);
+                out.writeInt(structHasher.hashes.size());
+                for (byte[] hash : structHasher.hashes) {
+                    out.writeShort(hash.length);
+                    out.write(hash);
+                }
+            }
+        }
+
+        // the hashers of nested lists and sexps are those of their parents
+        ((StatefulIonHasher)hasher).writeState(out);
+        for (StructHasher structHasher : structs) {
+            ((StatefulFieldHasher)structHasher.fieldHasher).writeState(out);
+        }
+    }
+
+    // restores the state written by another HasherImpl's writeState();  this HasherImpl
+    // must be at the top level, and its hasherProvider must be the same kind as the other's
+    void readState(DataInput in) throws IOException {
+        checkStateSupported();
         if (!containerHasherStack.isEmpty()) {
-            return containerHasherStack.peekFirst().hasher();
+            throw new IllegalStateException("State may only be restored at the top level");
         }
+
+        // stepping in updates the hashers;  their states are then replaced by those that were written
+        List<StructHasher> structs = new ArrayList<>();
+        int depth = in.readInt();
+        IonType[] types = IonType.values();
+        for (int i = 0; i < depth; i++) {
+            int ordinal = in.readUnsignedByte();
+            if (ordinal >= types.length || !IonType.isContainer(types[ordinal]) || types[ordinal] == IonType.DATAGRAM) {
+                throw new IonHashException("Invalid hasher state");
+            }
+            SymbolToken fieldName = readSymbol(in);
+            SymbolToken[] annotations = new SymbolToken[in.readInt()];
+            for (int j = 0; j < annotations.length; j++) {
+                annotations[j] = readSymbol(in);
+            }
+            stepIn(types[ordinal], fieldName, annotations);
+            if (types[ordinal] == IonType.STRUCT) {
+                StructHasher structHasher = (StructHasher)containerHasherStack.peekFirst();
+                structs.add(structHasher);
+                int count = in.readInt();
+                for (int j = 0; j < count; j++) {
+                    byte[] hash = new byte[in.readUnsignedShort()];
+                    in.readFully(hash);
+                    structHasher.hashes.add(hash);
+                }
+            }
+        }
+
+        ((StatefulIonHasher)hasher).readState(in);
+        for (StructHasher structHasher : structs) {
+            ((StatefulFieldHasher)structHasher.fieldHasher).readState(in);
+        }
+    }
+
+    private void checkStateSupported() {
+        if (tracking || fieldDigestExecutor != null) {
+            throw new UnsupportedOperationException(
+                    "Hasher state can't be saved if a listener, exclusions, or a field digest executor were specified");
+        }
+        if (!(hasher instanceof StatefulIonHasher)) {
+            throw new UnsupportedOperationException(hasher.getClass().getName() + " does not support saving its state");
+        }
+    }
+
+    // writes the text of a symbol, or a negative length if it's null or has unknown text (i.e., $0)
+    private static void writeSymbol(DataOutput out, SymbolToken symbol) throws IOException {
+        String text = symbol == null ? null : symbol.getText();
+        if (text == null) {
+            out.writeInt(symbol == null ? -1 : -2);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static SymbolToken readSymbol(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length == -2) {
+            return SYMBOL_ZERO;
+        }
+        if (length < 0) {
+            throw new IonHashException("Invalid hasher state");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return Hasher.newSymbolToken(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    // the hasher of top-level values
+    IonHasher topLevelHasher() {
         return hasher;
     }
 
-    IonHasher currentChildHasher() {
+    ByteSink currentChildHasher() {
         if (!containerHasherStack.isEmpty()) {
             return containerHasherStack.peekFirst().childHasher();
         }
-        return hasher;
+        return topLevelSink;
     }
 
     @Override
@@ -128,36 +364,83 @@ class HasherImpl implements Hasher {
         if (!containerHasherStack.isEmpty()) {
             ContainerHasher ch = containerHasherStack.peekFirst();
             if (ch instanceof StructHasher) {
-                ((StructHasher)ch).updateWithDigest(containerHasher.hasher().digest());
+                ((StructHasher)ch).fieldCompleted();
             }
         }
+        if (tracking) {
+            containerHasher.completed(containerHasher.ionType);
+        }
         scalarHasher.withHasher(currentChildHasher());
     }
 
+    @Override
+    public boolean exclude(SymbolToken fieldName) {
+        if (exclusions == null) {
+            return false;
+        }
+
+        ContainerHasher parent = containerHasherStack.peekFirst();
+        int depth = containerHasherStack.size();
+        long state = exclusions.step(
+                parent == null ? exclusions.initialState() : parent.exclusionState,
+                depth,
+                parent instanceof StructHasher ? fieldName : null,
+                parent == null ? topLevelCount : parent.childCount);
+        if (!exclusions.matches(state, depth)) {
+            return false;
+        }
+
+        // the caller skips the value, but it still occupies a position in its container
+        if (parent == null) {
+            topLevelCount++;
+        } else {
+            parent.childCount++;
+        }
+        return true;
+    }
+
     public byte[] digest() {
         if (!containerHasherStack.isEmpty()) {
             return EMPTY_BYTE_ARRAY;
         }
-        return currentHasher().digest();
+        if (topLevelDigest != null) {
+            // the digest was already computed on behalf of the listener
+            byte[] digest = topLevelDigest;
+            topLevelDigest = null;
+            return digest;
+        }
+        return hasher.digest();
     }
 
     @Override
     public void close() throws IOException {
         symbolHasher.close();
         scalarHasher.close();
+        if (hasher instanceof Closeable) {
+            ((Closeable)hasher).close();
+        }
     }
 
 
     /**
      * Centralizes logic for constructing the bytes for symbols;  this includes
-     * annotations, field names, and values that are symbols.
+     * annotations, field names, and values that are symbols.  The bytes do not
+     * depend on the hash function, so a SymbolHasher may be shared by HasherImpls
+     * that hash the same values;  the most recently constructed symbols are
+     * remembered (by SymbolToken identity) so that each HasherImpl need not
+     * construct them again.
      */
-    class SymbolHasher implements Closeable {
+    static final class SymbolHasher implements Closeable {
+        private static final int MEMO_SIZE = 8;     // must be a power of two
+
         private final ByteArrayOutputStream baos;
         private final IonWriter writer;
+        private final SymbolToken[] memoSymbols = new SymbolToken[MEMO_SIZE];
+        private final byte[][][] memoParts = new byte[MEMO_SIZE][][];
+        private int memoNext;
 
         @SuppressWarnings("deprecation")
-        private SymbolHasher() {
+        SymbolHasher() {
             try {
                 this.baos = new ByteArrayOutputStream();
                 writer = com.amazon.ion.impl.bin._PrivateIon_HashTrampoline.newIonWriter(baos);
@@ -168,6 +451,22 @@ class HasherImpl implements Hasher {
 
         // returns TQ, representation
         private byte[][] symbolParts(SymbolToken symbol) {
+            if (symbol != null) {
+                for (int i = 0; i < MEMO_SIZE; i++) {
+                    if (memoSymbols[i] == symbol) {
+                        return memoParts[i];
+                    }
+                }
+            }
+
+            byte[][] parts = newSymbolParts(symbol);
+            memoSymbols[memoNext] = symbol;
+            memoParts[memoNext] = parts;
+            memoNext = (memoNext + 1) & (MEMO_SIZE - 1);
+            return parts;
+        }
+
+        private byte[][] newSymbolParts(SymbolToken symbol) {
             String text = symbol == null ? null : symbol.getText();
             if (text == null && (symbol == null || symbol.getSid() != 0)) {
                 throw new IonHashException("Unable to resolve SID "
@@ -204,11 +503,19 @@ class HasherImpl implements Hasher {
      * Centralizes fieldname and annotation handling for scalar and container values.
      */
     private abstract class AbstractHasher {
-        IonHasher hasher;
+        ByteSink hasher;
         SymbolToken fieldName;
         SymbolToken[] annotations;
 
-        private AbstractHasher(IonHasher hasher, SymbolToken fieldName, SymbolToken[] annotations) {
+        // position of this value, maintained only when tracking
+        int depth;
+        int index;
+        SymbolToken pathFieldName;
+        long listenerState;
+        long exclusionState;
+        boolean listening;
+
+        private AbstractHasher(ByteSink hasher, SymbolToken fieldName, SymbolToken[] annotations) {
             this.hasher = hasher;
             this.fieldName = fieldName;
             this.annotations = annotations;
@@ -223,6 +530,10 @@ class HasherImpl implements Hasher {
                 endMarker();
             }
 
+            if (tracking) {
+                track();
+            }
+
             if (annotations != null && annotations.length > 0) {
                 beginMarker();
                 hasher.update(TQ_ANNOTATED_VALUE);
@@ -234,8 +545,66 @@ class HasherImpl implements Hasher {
             }
         }
 
-        final IonHasher hasher() {
-            return hasher;
+        // records the position of this value and determines whether the listener is interested in it;
+        // if so, and this value is not at the top level, tees its bytes (excluding its field name)
+        // to a separate hasher
+        private void track() {
+            ContainerHasher parent = containerHasherStack.peekFirst();
+            depth = containerHasherStack.size();
+            index = parent == null ? topLevelCount : parent.childCount;
+            pathFieldName = parent instanceof StructHasher ? fieldName : null;
+
+            if (exclusions != null) {
+                long parentState = parent == null ? exclusions.initialState() : parent.exclusionState;
+                exclusionState = exclusions.step(parentState, depth, pathFieldName, index);
+            }
+
+            if (listener == null) {
+                listening = false;
+            } else if (listenerFilter == null) {
+                listening = true;
+            } else {
+                long parentState = parent == null ? listenerFilter.initialState() : parent.listenerState;
+                listenerState = listenerFilter.step(parentState, depth, pathFieldName, index);
+                listening = listenerFilter.matches(listenerState, depth);
+            }
+
+            if (listening && parent != null) {
+                TeeHasher tee = teeHashers.isEmpty() ? new TeeHasher(hasherProvider.newHasher()) : teeHashers.pop();
+                tee.primary = hasher;
+                hasher = tee;
+            }
+        }
+
+        // impl assumes this method is called AFTER this object is removed from the containerHasherStack (if present),
+        // and after the parent has been updated with this value's digest
+        final void completed(IonType ionType) {
+            ContainerHasher parent = containerHasherStack.peekFirst();
+            if (parent == null) {
+                topLevelCount++;
+            } else {
+                parent.childCount++;
+            }
+            if (listener == null) {
+                return;
+            }
+
+            byte[] digest;
+            if (parent == null) {
+                // always digest top-level values, so the listener never relies on the caller to reset the hasher
+                digest = topLevelDigest = HasherImpl.this.hasher.digest();
+            } else if (!listening) {
+                return;
+            } else {
+                TeeHasher tee = (TeeHasher)hasher;
+                hasher = tee.primary;
+                digest = tee.secondary.digest();
+                teeHashers.push(tee);
+            }
+
+            if (listening) {
+                listener.onDigest(depth, path(this), ionType, digest);
+            }
         }
 
         final void beginMarker() {
@@ -271,8 +640,9 @@ class HasherImpl implements Hasher {
      */
     class ContainerHasher extends AbstractHasher {
         private IonType ionType;
+        int childCount;
 
-        ContainerHasher(IonHasher hasher, IonType ionType, SymbolToken fieldName, SymbolToken[] annotations) {
+        ContainerHasher(ByteSink hasher, IonType ionType, SymbolToken fieldName, SymbolToken[] annotations) {
             super(hasher, fieldName, annotations);
             assert IonType.isContainer(ionType);
             this.ionType = ionType;
@@ -280,20 +650,20 @@ class HasherImpl implements Hasher {
             beginMarker();
             switch (ionType) {
                 case LIST:
-                    hasher.update(TQ_LIST);
+                    this.hasher.update(TQ_LIST);
                     break;
                 case SEXP:
-                    hasher.update(TQ_SEXP);
+                    this.hasher.update(TQ_SEXP);
                     break;
                 case STRUCT:
-                    hasher.update(TQ_STRUCT);
+                    this.hasher.update(TQ_STRUCT);
                     break;
                 default:
                     throw new IonHashException("Unexpected container type " + ionType);
             }
         }
 
-        IonHasher childHasher() {
+        ByteSink childHasher() {
             return hasher;
         }
 
@@ -306,27 +676,38 @@ class HasherImpl implements Hasher {
 
     /**
      * Collects and sorts hashes of struct fields before providing a digest.
+     * The bytes of each field are provided to a FieldHasher, which may defer
+     * the field's digest (see newFieldHasher()).
      */
     class StructHasher extends ContainerHasher {
         private final List<byte[]> hashes = new ArrayList<>();
-        private final IonHasher childHasher;
+        private final FieldHasher fieldHasher;
+        private final ByteSink childHasher;
 
-        StructHasher(IonHasher hasher, SymbolToken fieldName, SymbolToken[] annotations) {
+        StructHasher(ByteSink hasher, SymbolToken fieldName, SymbolToken[] annotations) {
             super(hasher, IonType.STRUCT, fieldName, annotations);
-            childHasher = hasherProvider.newHasher();
+            fieldHasher = newFieldHasher();
+            childHasher = fieldHasher::update;
         }
 
         @Override
-        IonHasher childHasher() {
+        ByteSink childHasher() {
             return childHasher;
         }
 
-        void updateWithDigest(byte[] hash) {
-            hashes.add(hash);
+        // impl assumes this method is called after the bytes of each field have been provided to childHasher
+        void fieldCompleted() {
+            fieldHasher.fieldCompleted(hashes);
+        }
+
+        // adds the digests of any fields whose digests were deferred by the fieldHasher
+        void flushFieldDigests() {
+            fieldHasher.flush(hashes);
         }
 
         @Override
         void finish() {
+            flushFieldDigests();
             Collections.sort(hashes, BYTE_ARRAY_COMPARATOR);
             for(byte[] hash : hashes) {
                 hasher.update(escape(hash));
@@ -344,9 +725,11 @@ class HasherImpl implements Hasher {
     class ScalarHasherImpl extends AbstractHasher implements ScalarHasher {
         private final IonWriter scalarWriter;
         private final ByteArrayOutputStream scalarBaos;
+        private IonType lastType;
+        private byte[][] lastParts;
 
         @SuppressWarnings("deprecation")
-        ScalarHasherImpl(IonHasher hasher) {
+        ScalarHasherImpl(ByteSink hasher) {
             super(hasher, null, null);
             try {
                 this.scalarBaos = new ByteArrayOutputStream();
@@ -366,9 +749,9 @@ class HasherImpl implements Hasher {
             return this;
         }
 
-        public ScalarHasher withHasher(IonHasher hasher) {
+        // the hasher of the current container changes as containers are stepped into and out of
+        void withHasher(ByteSink hasher) {
             this.hasher = hasher;
-            return this;
         }
 
         @Override
@@ -414,6 +797,10 @@ class HasherImpl implements Hasher {
             writeScalar(IonType.INT, () -> scalarWriter.writeInt(value));
         }
 
+        public void updateInt(long value) throws IOException {
+            writeScalar(IonType.INT, () -> scalarWriter.writeInt(value));
+        }
+
         public void updateNull() throws IOException {
             updateNull(IonType.NULL);
         }
@@ -450,14 +837,19 @@ class HasherImpl implements Hasher {
                 scalarWriter.finish();
                 tqAndRepresentation = scalarOrNullSplitParts(ionType, scalarBaos.toByteArray());
             }
+            lastType = ionType;
+            lastParts = tqAndRepresentation;
             updateTQandRepresentation(tqAndRepresentation);
             finish();
             if (!containerHasherStack.isEmpty()) {
                 ContainerHasher containerHasher = containerHasherStack.peekFirst();
                 if (containerHasher instanceof StructHasher) {
-                    ((StructHasher)containerHasher).updateWithDigest(hasher.digest());
+                    ((StructHasher)containerHasher).fieldCompleted();
                 }
             }
+            if (tracking) {
+                completed(ionType);
+            }
         }
 
         @Override
@@ -492,6 +884,166 @@ class HasherImpl implements Hasher {
         }
     }
 
+    /**
+     * The destination of the bytes of a value:  the top-level IonHasher, or the
+     * FieldHasher of the enclosing struct.
+     */
+    interface ByteSink {
+        void update(byte[] bytes);
+    }
+
+    // returns a FieldHasher for a new struct
+    private FieldHasher newFieldHasher() {
+        if (fieldDigestExecutor != null) {
+            return new DeferringFieldHasher();
+        }
+        if (hasherProvider instanceof FieldHasherProvider) {
+            return ((FieldHasherProvider)hasherProvider).newFieldHasher();
+        }
+        return new DigestingFieldHasher(hasherProvider.newHasher());
+    }
+
+    /**
+     * Digests each field with an IonHasher as soon as the field is completed.
+     */
+    private static final class DigestingFieldHasher implements StatefulFieldHasher {
+        private final IonHasher hasher;
+
+        private DigestingFieldHasher(IonHasher hasher) {
+            this.hasher = hasher;
+        }
+
+        @Override
+        public void update(byte[] bytes) {
+            hasher.update(bytes);
+        }
+
+        @Override
+        public void fieldCompleted(List<byte[]> hashes) {
+            hashes.add(hasher.digest());
+        }
+
+        // HasherImpl.checkStateSupported() verifies that the provider's hashers are StatefulIonHashers
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            ((StatefulIonHasher)hasher).writeState(out);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            ((StatefulIonHasher)hasher).readState(in);
+        }
+    }
+
+    // fields smaller than this are digested by the calling thread even if a fieldDigestExecutor was specified
+    private static final int DEFERRED_FIELD_MIN_SIZE = 4096;
+
+    /**
+     * Digests each field in place until it reaches DEFERRED_FIELD_MIN_SIZE bytes;  the rest
+     * of a larger field is buffered, and the fieldDigestExecutor completes its digest (with
+     * the hasher that was given the field's first bytes) while subsequent fields are encoded.
+     */
+    private final class DeferringFieldHasher implements FieldHasher {
+        private final List<CompletableFuture<byte[]>> pendingHashes = new ArrayList<>();
+        private IonHasher hasher = hasherProvider.newHasher();
+        private int fieldSize;
+        // the bytes of the current field that weren't provided to the hasher, if it's large
+        private ByteArrayOutputStream rest;
+
+        @Override
+        public void update(byte[] bytes) {
+            if (rest != null) {
+                rest.write(bytes, 0, bytes.length);
+                return;
+            }
+            hasher.update(bytes);
+            fieldSize += bytes.length;
+            if (fieldSize >= DEFERRED_FIELD_MIN_SIZE) {
+                rest = new ByteArrayOutputStream(fieldSize);
+            }
+        }
+
+        @Override
+        public void fieldCompleted(List<byte[]> hashes) {
+            fieldSize = 0;
+            if (rest == null) {
+                hashes.add(hasher.digest());
+                return;
+            }
+
+            IonHasher fieldHasher = hasher;
+            byte[] bytes = rest.toByteArray();
+            hasher = hasherProvider.newHasher();
+            rest = null;
+            pendingHashes.add(CompletableFuture.supplyAsync(() -> {
+                fieldHasher.update(bytes);
+                return fieldHasher.digest();
+            }, fieldDigestExecutor));
+        }
+
+        @Override
+        public void flush(List<byte[]> hashes) {
+            for (CompletableFuture<byte[]> pendingHash : pendingHashes) {
+                try {
+                    hashes.add(pendingHash.join());
+                } catch (CompletionException e) {
+                    throw new IonHashException(e.getCause());
+                }
+            }
+            pendingHashes.clear();
+        }
+    }
+
+    /**
+     * Retains the bytes of top-level values rather than digesting them (digest() returns
+     * the bytes), so they may be provided to another HasherImpl's updateEncodedValue().
+     */
+    static final class EncodedValue extends ByteArrayOutputStream implements IonHasher {
+        @Override
+        public void update(byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public byte[] digest() {
+            byte[] bytes = toByteArray();
+            reset();
+            return bytes;
+        }
+    }
+
+    // returns the path of the specified value, which has already been removed from the containerHasherStack
+    private String path(AbstractHasher value) {
+        StringBuilder sb = new StringBuilder();
+        Iterator<ContainerHasher> iter = containerHasherStack.descendingIterator();
+        while (iter.hasNext()) {
+            ContainerHasher ancestor = iter.next();
+            IonHashPathFilter.appendComponent(sb, ancestor.pathFieldName, ancestor.index);
+        }
+        IonHashPathFilter.appendComponent(sb, value.pathFieldName, value.index);
+        return sb.toString();
+    }
+
+    /**
+     * Forwards updates to the hasher of the enclosing container as well as to a separate
+     * hasher, so the digest of a nested value can be provided to the listener without
+     * hashing the value twice.
+     */
+    private static final class TeeHasher implements ByteSink {
+        private ByteSink primary;
+        private final IonHasher secondary;
+
+        private TeeHasher(IonHasher secondary) {
+            this.secondary = secondary;
+        }
+
+        @Override
+        public void update(byte[] bytes) {
+            primary.update(bytes);
+            secondary.update(bytes);
+        }
+    }
+
     // if bytes contains one or more BEGIN_MARKER_BYTEs, END_MARKER_BYTEs, or ESCAPE_BYTEs,
     // returns a new array with such bytes preceeded by a ESCAPE_BYTE;
     // otherwise, returns the original array unchanged
@@ -522,7 +1074,7 @@ class HasherImpl implements Hasher {
         return escapedBytes;
     }
 
-    private static final ByteArrayComparator BYTE_ARRAY_COMPARATOR = new ByteArrayComparator();
+    static final ByteArrayComparator BYTE_ARRAY_COMPARATOR = new ByteArrayComparator();
     static class ByteArrayComparator implements Comparator<byte[]>, Serializable {
         @Override
         public int compare(byte[] a, byte[] b) {
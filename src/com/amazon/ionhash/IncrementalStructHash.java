@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonValue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains the hash of a struct whose fields are added and removed over time, without
+ * hashing the struct's other fields again, e.g.:
+ * <pre>
+ *    IncrementalStructHash record = new IncrementalStructHash(hasherProvider);
+ *    record.put("id", ion.newInt(1));
+ *    record.put("status", ion.newString("pending"));
+ *    ...
+ *    record.remove("status", ion.newString("pending"));
+ *    record.put("status", ion.newString("shipped"));
+ *    byte[] digest = record.digest();
+ * </pre>
+ * The struct's field digests are kept sorted (as the struct's hash requires) in a
+ * balanced tree, so put() and remove() hash only the specified field, plus O(log n)
+ * comparisons;  digest() then hashes the sorted field digests, without hashing any
+ * field's value.  The result is the same as the hash of a struct with the same fields.
+ * <p/>
+ * As in a struct, a field name may occur more than once (with the same or different
+ * values).  This class is not thread-safe.
+ */
+public final class IncrementalStructHash implements Closeable {
+    // field digest -> the number of fields with that digest
+    private final TreeMap<byte[], Integer> fieldDigests = new TreeMap<>(HasherImpl.BYTE_ARRAY_COMPARATOR);
+    private final HasherImpl fieldHasher;
+    private final IonValueHasher valueHasher;
+    private final HasherImpl structHasher;
+    private int size;
+
+    public IncrementalStructHash(IonHasherProvider hasherProvider) {
+        HasherImpl.SymbolHasher symbolHasher = new HasherImpl.SymbolHasher();
+        this.fieldHasher = new HasherImpl(hasherProvider, null, null, null, null, symbolHasher, null);
+        this.valueHasher = new IonValueHasher(fieldHasher);
+        this.structHasher = new HasherImpl(hasherProvider, null, null, null, null, symbolHasher, null);
+    }
+
+    /**
+     * Adds a field with the specified name and value to the struct.  The value's own
+     * field name (if any) is ignored.
+     */
+    public void put(String fieldName, IonValue value) {
+        fieldDigests.merge(fieldDigest(fieldName, value), 1, Integer::sum);
+        size++;
+    }
+
+    /**
+     * Removes a field with the specified name and value (or an equivalent value) from the struct.
+     *
+     * @return true if the struct contained such a field
+     */
+    public boolean remove(String fieldName, IonValue value) {
+        byte[] fieldDigest = fieldDigest(fieldName, value);
+        Integer count = fieldDigests.get(fieldDigest);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            fieldDigests.remove(fieldDigest);
+        } else {
+            fieldDigests.put(fieldDigest, count - 1);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the number of fields in the struct.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the hash of the struct.
+     */
+    public byte[] digest() {
+        structHasher.stepIn(IonType.STRUCT, null, null);
+        for (Map.Entry<byte[], Integer> entry : fieldDigests.entrySet()) {
+            for (int i = entry.getValue(); i > 0; i--) {
+                structHasher.updateFieldDigest(entry.getKey());
+            }
+        }
+        structHasher.stepOut();
+        return structHasher.digest();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            fieldHasher.close();
+        } finally {
+            structHasher.close();
+        }
+    }
+
+    private byte[] fieldDigest(String fieldName, IonValue value) {
+        if (fieldName == null) {
+            throw new NullPointerException("fieldName must not be null");
+        }
+        if (value.getType() == IonType.DATAGRAM) {
+            throw new IllegalArgumentException("A datagram can't be the value of a field");
+        }
+        fieldHasher.updateFieldName(Hasher.newSymbolToken(fieldName));
+        return valueHasher.digest(value);
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.system.IonReaderBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Convenience methods for computing the hashes of Ion data.
+ */
+public final class IonHash {
+    // regions of a file that are hashed concurrently are at least this large
+    private static final long REGION_SIZE = 4 * 1024 * 1024;
+    // regions of a file that a parallel stream may traverse concurrently are at least this large
+    private static final long STREAM_REGION_SIZE = 1024 * 1024;
+    // containers of an IonValue that are hashed concurrently hold at least this many values
+    private static final int PARALLEL_MIN_VALUES = 4096;
+
+    // no instances
+    private IonHash() {
+    }
+
+    /**
+     * Computes the hash of the specified value, walking the value directly rather than
+     * reading it through an IonHashReader.  The value's field name (if any) is not
+     * included in the hash, so the result is the same as the hash of the value when
+     * it's read at the top level.
+     *
+     * @throws IllegalArgumentException if the value is an IonDatagram
+     */
+    public static byte[] digest(IonValue value, IonHasherProvider hasherProvider) {
+        HasherImpl hasher = new HasherImpl(hasherProvider);
+        try {
+            return new IonValueHasher(hasher).digest(value);
+        } finally {
+            close(hasher);
+        }
+    }
+
+    /**
+     * Computes the hash of the specified value, using the specified pool to hash large
+     * containers within the value (struct fields, and list or sexp elements, holding
+     * thousands of values) concurrently.  The result is the same as that of
+     * {@link #digest(IonValue, IonHasherProvider)};  values too small to benefit are
+     * hashed by the calling thread.
+     * <p/>
+     * The value must not be modified while it's being hashed.
+     *
+     * @throws IllegalArgumentException if the value is an IonDatagram
+     */
+    public static byte[] digest(IonValue value, IonHasherProvider hasherProvider, ForkJoinPool pool) {
+        return digest(value, hasherProvider, pool, PARALLEL_MIN_VALUES);
+    }
+
+    static byte[] digest(IonValue value, IonHasherProvider hasherProvider, ForkJoinPool pool, int minValues) {
+        return new ParallelIonValueHasher(hasherProvider, pool, minValues).digest(value);
+    }
+
+    /**
+     * Computes the hash of each top-level value in the specified Ion file (text or binary).
+     *
+     * @return the hashes of the top-level values, in the order the values appear in the file
+     * @see #digestTopLevelValues(Path, IonHasherProvider, Consumer)
+     */
+    public static List<byte[]> digestTopLevelValues(Path file,
+                                                    IonHasherProvider hasherProvider) throws IOException {
+        List<byte[]> digests = new ArrayList<>();
+        digestTopLevelValues(file, hasherProvider, digests::add);
+        return digests;
+    }
+
+    /**
+     * Computes the hash of each top-level value in the specified Ion file (text or binary),
+     * and provides the hashes to the specified consumer in the order the values appear in
+     * the file.
+     * <p/>
+     * The file is memory-mapped in chunks, and read directly from the mapped buffers.
+     *
+     * @throws IonHashException if a value can't be hashed
+     * @see #digestTopLevelValues(Path, IonHasherProvider, Consumer, Consumer)
+     */
+    public static void digestTopLevelValues(Path file,
+                                            IonHasherProvider hasherProvider,
+                                            Consumer<byte[]> digestConsumer) throws IOException {
+        digestTopLevelValues(file, hasherProvider, digestConsumer, IonHash::rethrow);
+    }
+
+    /**
+     * Computes the hash of each top-level value in the specified Ion file (text or binary),
+     * and provides the hashes to digestConsumer in the order the values appear in the file.
+     * A value that can't be hashed (e.g., a value containing a symbol whose text is unknown)
+     * is reported to errorConsumer in place of its hash, and hashing continues with the
+     * next value;  failures to read the file are thrown.
+     * <p/>
+     * The file is memory-mapped in chunks, and read directly from the mapped buffers.
+     */
+    public static void digestTopLevelValues(Path file,
+                                            IonHasherProvider hasherProvider,
+                                            Consumer<byte[]> digestConsumer,
+                                            Consumer<? super IonHashException> errorConsumer) throws IOException {
+        if (hasherProvider == null) {
+            throw new NullPointerException("IonHasherProvider must not be null");
+        }
+
+        try (InputStream inputStream = new MappedFileInputStream(file);
+             IonReader reader = IonReaderBuilder.standard().build(inputStream)) {
+            digestTopLevelValues(reader, hasherProvider, digestConsumer, errorConsumer);
+        }
+    }
+
+    // if a value can't be hashed, the reader is stepped out to the top level, and the values that
+    // follow are hashed by a new IonHashReader, as the state of the previous one (its containers,
+    // and the bytes provided to its hasher) is that of the failed value
+    private static void digestTopLevelValues(IonReader reader,
+                                             IonHasherProvider hasherProvider,
+                                             Consumer<byte[]> digestConsumer,
+                                             Consumer<? super IonHashException> errorConsumer) throws IOException {
+        IonHashReader hashReader = newHashReader(reader, hasherProvider);
+        try {
+            IonType type = hashReader.next();
+            while (type != null) {
+                byte[] digest;
+                try {
+                    type = hashReader.next();
+                    digest = hashReader.digest();
+                } catch (IonHashException e) {
+                    errorConsumer.accept(e);
+                    while (reader.getDepth() > 0) {
+                        reader.stepOut();
+                    }
+                    hashReader.close();
+                    hashReader = newHashReader(reader, hasherProvider);
+                    // moves past the failed value
+                    type = hashReader.next();
+                    continue;
+                }
+                digestConsumer.accept(digest);
+            }
+        } finally {
+            hashReader.close();
+        }
+    }
+
+    private static IonHashReader newHashReader(IonReader reader, IonHasherProvider hasherProvider) {
+        return IonHashReaderBuilder.standard()
+                .withReader(reader)
+                .withHasherProvider(hasherProvider)
+                .build();
+    }
+
+    private static void rethrow(IonHashException e) {
+        throw e;
+    }
+
+    /**
+     * Computes the hash of each top-level value in the specified binary Ion file, and
+     * provides the hashes to the specified consumer in the order the values appear in
+     * the file, saving a {@link HashCheckpoint} to checkpointFile whenever at least
+     * checkpointInterval bytes of the file have been hashed since the previous one.
+     * Checkpoints are saved between values, including values within containers, so
+     * progress within a large top-level value isn't lost.
+     * <p/>
+     * If checkpointFile exists, hashing resumes at the checkpoint's offset;  the
+     * hashes of values completed after the checkpoint was saved (if any) are provided
+     * again.  The checkpoint is deleted once every value has been hashed.  The
+     * {@link TopLevelDigest#getIndex() index} and {@link TopLevelDigest#getOffset() offset}
+     * of each value are provided with its hash.
+     * <p/>
+     * The hasher provider's hashers must support saving their state, as those of
+     * {@link Sha256IonHasherProvider} do.
+     *
+     * @throws UnsupportedOperationException if the provider's hashers can't save their state
+     * @throws IonHashException if the file is not binary Ion
+     */
+    public static void digestTopLevelValues(Path file,
+                                            IonHasherProvider hasherProvider,
+                                            Path checkpointFile,
+                                            long checkpointInterval,
+                                            Consumer<TopLevelDigest> digestConsumer) throws IOException {
+        if (hasherProvider == null) {
+            throw new NullPointerException("IonHasherProvider must not be null");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            new ResumableDigester(channel, hasherProvider, checkpointFile, checkpointInterval, digestConsumer).run();
+        }
+    }
+
+    /**
+     * Returns a sequential stream of the hashes of the top-level values of the
+     * specified reader, in order.  Values are read (and hashed) as the stream is
+     * consumed;  the reader is not closed.
+     * <p/>
+     * The stream can't be split (an IonReader can only be read sequentially), so
+     * parallel processing of the stream doesn't parallelize the hashing.
+     */
+    public static Stream<TopLevelDigest> stream(IonReader reader, IonHasherProvider hasherProvider) {
+        IonHashReader hashReader = IonHashReaderBuilder.standard()
+                .withReader(reader)
+                .withHasherProvider(hasherProvider)
+                .build();
+        return StreamSupport.stream(new ReaderSpliterator(hashReader, 0, null), false)
+                .onClose(() -> close(hashReader));
+    }
+
+    /**
+     * Returns a sequential stream of the hashes of the top-level values of the
+     * specified Ion file (text or binary), in order.  The stream must be closed
+     * (e.g., via try-with-resources) to close the file.
+     * <p/>
+     * For binary Ion, the stream's spliterator splits the file into regions of
+     * consecutive values (as {@link #digestTopLevelValues(Path, IonHasherProvider, ForkJoinPool)}
+     * does), so {@link Stream#parallel()} hashes regions concurrently, and each
+     * {@link TopLevelDigest} includes the offset of its value.
+     */
+    public static Stream<TopLevelDigest> stream(Path file, IonHasherProvider hasherProvider) throws IOException {
+        return stream(file, hasherProvider, STREAM_REGION_SIZE);
+    }
+
+    static Stream<TopLevelDigest> stream(Path file,
+                                         IonHasherProvider hasherProvider,
+                                         long regionSize) throws IOException {
+        if (hasherProvider == null) {
+            throw new NullPointerException("IonHasherProvider must not be null");
+        }
+
+        if (isBinary(file)) {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                BinaryIonScanner scanner = new BinaryIonScanner(channel, regionSize, true);
+                return StreamSupport.stream(new RegionSpliterator(channel, hasherProvider, scanner), false)
+                        .onClose(() -> close(channel));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        InputStream inputStream = new MappedFileInputStream(file);
+        IonReader reader = IonReaderBuilder.standard().build(inputStream);
+        return stream(reader, hasherProvider)
+                .onClose(() -> close(reader))
+                .onClose(() -> close(inputStream));
+    }
+
+    /**
+     * Computes the hash of each top-level value in the specified binary Ion file,
+     * using the specified pool to hash regions of the file concurrently.
+     *
+     * @return the hashes of the top-level values, in the order the values appear in the file
+     * @see #digestTopLevelValues(Path, IonHasherProvider, ForkJoinPool, Consumer)
+     */
+    public static List<byte[]> digestTopLevelValues(Path file,
+                                                    IonHasherProvider hasherProvider,
+                                                    ForkJoinPool pool) throws IOException {
+        List<byte[]> digests = new ArrayList<>();
+        digestTopLevelValues(file, hasherProvider, pool, digests::add);
+        return digests;
+    }
+
+    /**
+     * Computes the hash of each top-level value in the specified binary Ion file,
+     * using the specified pool to hash regions of the file concurrently, and provides
+     * the hashes to the specified consumer (on the calling thread) in the order the
+     * values appear in the file.
+     * <p/>
+     * The file is split into regions at top-level value boundaries;  the local symbol
+     * tables in effect at the start of each region are provided to the region's reader,
+     * so each value is hashed exactly as a single IonHashReader over the entire file
+     * would hash it.  Only a bounded number of regions are read ahead of the consumer.
+     *
+     * @throws IonHashException if the file is not binary Ion, or a value can't be hashed
+     * @see #digestTopLevelValues(Path, IonHasherProvider, ForkJoinPool, Consumer, Consumer)
+     */
+    public static void digestTopLevelValues(Path file,
+                                            IonHasherProvider hasherProvider,
+                                            ForkJoinPool pool,
+                                            Consumer<byte[]> digestConsumer) throws IOException {
+        digestTopLevelValues(file, hasherProvider, pool, digestConsumer, IonHash::rethrow, REGION_SIZE);
+    }
+
+    /**
+     * As {@link #digestTopLevelValues(Path, IonHasherProvider, ForkJoinPool, Consumer)}, except
+     * that a value that can't be hashed is reported to errorConsumer (on the calling thread) in
+     * place of its hash, and hashing continues with the next value.
+     *
+     * @throws IonHashException if the file is not binary Ion
+     */
+    public static void digestTopLevelValues(Path file,
+                                            IonHasherProvider hasherProvider,
+                                            ForkJoinPool pool,
+                                            Consumer<byte[]> digestConsumer,
+                                            Consumer<? super IonHashException> errorConsumer) throws IOException {
+        digestTopLevelValues(file, hasherProvider, pool, digestConsumer, errorConsumer, REGION_SIZE);
+    }
+
+    static void digestTopLevelValues(Path file,
+                                     IonHasherProvider hasherProvider,
+                                     ForkJoinPool pool,
+                                     Consumer<byte[]> digestConsumer,
+                                     Consumer<? super IonHashException> errorConsumer,
+                                     long regionSize) throws IOException {
+        if (hasherProvider == null) {
+            throw new NullPointerException("IonHasherProvider must not be null");
+        }
+
+        int maxPending = pool.getParallelism() * 2;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BinaryIonScanner scanner = new BinaryIonScanner(channel, regionSize);
+            Deque<ForkJoinTask<List<Object>>> pending = new ArrayDeque<>();
+            boolean scanned = false;
+            while (true) {
+                while (!scanned && pending.size() < maxPending) {
+                    BinaryIonScanner.Region region = scanner.nextRegion();
+                    if (region == null) {
+                        scanned = true;
+                    } else {
+                        pending.add(pool.submit(() -> digestRegion(channel, region, hasherProvider)));
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                for (Object result : pending.remove().join()) {
+                    if (result instanceof byte[]) {
+                        digestConsumer.accept((byte[]) result);
+                    } else {
+                        errorConsumer.accept((IonHashException) result);
+                    }
+                }
+            }
+        }
+    }
+
+    // returns the hashes of the region's values in order, with the IonHashException
+    // of each value that couldn't be hashed in place of its hash
+    private static List<Object> digestRegion(FileChannel channel,
+                                             BinaryIonScanner.Region region,
+                                             IonHasherProvider hasherProvider) {
+        List<Object> results = new ArrayList<>();
+        try (IonReader reader = IonReaderBuilder.standard().build(region.read(channel))) {
+            digestTopLevelValues(reader, hasherProvider, results::add, results::add);
+        } catch (IOException e) {
+            throw new IonHashException(e);
+        }
+        return results;
+    }
+
+    /**
+     * Returns whether the specified file begins with the binary Ion version marker,
+     * i.e., whether its values can be hashed concurrently by
+     * {@link #digestTopLevelValues(Path, IonHasherProvider, ForkJoinPool, Consumer)}.
+     */
+    public static boolean isBinary(Path file) throws IOException {
+        byte[] ivm = BinaryIonScanner.IVM;
+        ByteBuffer buffer = ByteBuffer.allocate(ivm.length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+        }
+        return Arrays.equals(ivm, buffer.array());
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+/**
+ * Immutable digest of up to 32 bytes (e.g., MD5, SHA-1, SHA-256), held in four longs
+ * rather than an array, and suitable for use as a key.
+ * <p/>
+ * Digests are compared by length and content;  hashCode() uses the leading bytes
+ * of the digest, which are uniformly distributed for cryptographic hash functions.
+ */
+public final class IonHashDigest {
+    /**
+     * The maximum length, in bytes, of a digest.
+     */
+    public static final int MAX_LENGTH = 32;
+
+    private final long w0;
+    private final long w1;
+    private final long w2;
+    private final long w3;
+    private final int length;
+
+    IonHashDigest(long w0, long w1, long w2, long w3, int length) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+        this.length = length;
+    }
+
+    /**
+     * Returns an IonHashDigest with the specified bytes.
+     *
+     * @throws IllegalArgumentException if the digest is longer than {@link #MAX_LENGTH} bytes
+     */
+    public static IonHashDigest of(byte[] digest) {
+        checkLength(digest);
+        return new IonHashDigest(word(digest, 0), word(digest, 1), word(digest, 2), word(digest, 3), digest.length);
+    }
+
+    /**
+     * Returns the length of the digest, in bytes.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the bytes of the digest.
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (word(i >> 3) >>> (56 - 8 * (i & 7)));
+        }
+        return bytes;
+    }
+
+    // returns the specified word (big-endian, zero-padded) of the digest
+    long word(int index) {
+        switch (index) {
+            case 0:
+                return w0;
+            case 1:
+                return w1;
+            case 2:
+                return w2;
+            default:
+                return w3;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof IonHashDigest)) {
+            return false;
+        }
+        IonHashDigest that = (IonHashDigest) other;
+        return length == that.length && w0 == that.w0 && w1 == that.w1 && w2 == that.w2 && w3 == that.w3;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (w0 >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int b = (int) (word(i >> 3) >>> (56 - 8 * (i & 7)));
+            chars[i * 2] = Character.forDigit((b >> 4) & 0x0F, 16);
+            chars[i * 2 + 1] = Character.forDigit(b & 0x0F, 16);
+        }
+        return new String(chars);
+    }
+
+    static void checkLength(byte[] digest) {
+        if (digest.length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Digests longer than " + MAX_LENGTH + " bytes are not supported");
+        }
+    }
+
+    // returns the specified word (big-endian, zero-padded) of the digest
+    static long word(byte[] digest, int index) {
+        int start = index << 3;
+        int end = Math.min(start + 8, digest.length);
+        long word = 0;
+        for (int i = start; i < end; i++) {
+            word |= (digest[i] & 0xFFL) << (56 - 8 * (i - start));
+        }
+        return word;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *  
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonType;
+
+/**
+ * Receives the hash of each value (including values nested within containers)
+ * as it is computed by an {@link IonHashReader} or {@link IonHashWriter}.
+ * <p/>
+ * The hash provided for a nested value is identical to the hash that would
+ * be computed if the value were hashed on its own;  it does not incorporate
+ * the value's field name.
+ *
+ * @see IonHashReaderBuilder#withDigestListener(IonHashListener, IonHashPathFilter)
+ * @see IonHashWriterBuilder#withDigestListener(IonHashListener, IonHashPathFilter)
+ */
+public interface IonHashListener {
+    /**
+     * Invoked after a value has been completely hashed.  Values nested within
+     * a container are reported before the container itself.
+     *
+     * @param depth the depth of the value, where top-level values have a depth of 0
+     * @param path the path of the value, as described by {@link IonHashPathFilter}
+     *             (e.g., "/0/metadata/3")
+     * @param type the type of the value
+     * @param digest the hash of the value
+     */
+    void onDigest(int depth, String path, IonType type, byte[] digest);
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *  
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.SymbolToken;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled set of path patterns that select values by their position within
+ * a stream of Ion values.
+ * <p/>
+ * A path consists of one component per level of nesting, each preceded by a '/'.
+ * The first component is the zero-based index of the top-level value;  each
+ * subsequent component is either a field name (for values within a struct) or
+ * a zero-based index (for values within a list or sexp).  For example, the path
+ * of the value 5 in the second top-level value of <code>1 {a:[4,5]}</code> is
+ * "/1/a/1".
+ * <p/>
+ * Within a pattern, a component of "*" matches any single component, and a final
+ * component of "**" matches the preceding path and everything nested within it.
+ * For example, "/*&#47;metadata/traceId" matches the traceId field of the metadata
+ * struct of every top-level value, and "/*&#47;*" matches every value at depth 1.
+ * A '/', '*', or '\' that is part of a field name must be escaped with a '\'.
+ * <p/>
+ * Instances of this class are immutable and thread-safe.
+ */
+public final class IonHashPathFilter {
+    private static final int MAX_PATTERNS = Long.SIZE;
+
+    private final Pattern[] patterns;
+
+    private IonHashPathFilter(Pattern[] patterns) {
+        this.patterns = patterns;
+    }
+
+    /**
+     * Compiles the specified path patterns;  a value is selected by the
+     * resulting filter if it matches any of the patterns.
+     *
+     * @param patterns the path patterns;  at most 64 patterns may be specified
+     * @throws IllegalArgumentException if a pattern is malformed
+     */
+    public static IonHashPathFilter compile(String... patterns) {
+        if (patterns.length == 0 || patterns.length > MAX_PATTERNS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_PATTERNS + " patterns must be specified");
+        }
+        Pattern[] compiled = new Pattern[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            compiled[i] = Pattern.compile(patterns[i]);
+        }
+        return new IonHashPathFilter(compiled);
+    }
+
+    // the state of a value is a bitmask of the patterns that match the value's path so far;
+    // a value's state is derived from the state of its parent, so matching is O(patterns) per value
+    long initialState() {
+        return patterns.length == MAX_PATTERNS ? -1L : (1L << patterns.length) - 1;
+    }
+
+    long step(long parentState, int depth, SymbolToken fieldName, int index) {
+        long state = 0;
+        for (int i = 0; i < patterns.length; i++) {
+            long bit = 1L << i;
+            if ((parentState & bit) != 0 && patterns[i].matches(depth, fieldName, index)) {
+                state |= bit;
+            }
+        }
+        return state;
+    }
+
+    boolean matches(long state, int depth) {
+        for (int i = 0; i < patterns.length; i++) {
+            if ((state & (1L << i)) != 0 && depth + 1 >= patterns[i].components.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // appends the path component of a value;  fieldName is null unless the value is in a struct
+    static void appendComponent(StringBuilder sb, SymbolToken fieldName, int index) {
+        sb.append('/');
+        if (fieldName == null) {
+            sb.append(index);
+            return;
+        }
+        String text = fieldName.getText();
+        if (text == null) {
+            sb.append('$').append(fieldName.getSid());
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '/' || c == '*' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Pattern pattern : patterns) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(pattern.source);
+        }
+        return sb.toString();
+    }
+
+    private static final class Pattern {
+        private final String source;
+        private final Component[] components;
+        private final boolean descendants;
+
+        private Pattern(String source, Component[] components, boolean descendants) {
+            this.source = source;
+            this.components = components;
+            this.descendants = descendants;
+        }
+
+        private boolean matches(int depth, SymbolToken fieldName, int index) {
+            if (depth >= components.length) {
+                return descendants;
+            }
+            return components[depth].matches(fieldName, index);
+        }
+
+        private static Pattern compile(String pattern) {
+            if (pattern == null || pattern.isEmpty() || pattern.charAt(0) != '/') {
+                throw new IllegalArgumentException("Path pattern must begin with '/': " + pattern);
+            }
+
+            List<Component> components = new ArrayList<>();
+            boolean descendants = false;
+            int i = 1;
+            while (i <= pattern.length()) {
+                if (descendants) {
+                    throw new IllegalArgumentException("'**' may only be the last component: " + pattern);
+                }
+                StringBuilder text = new StringBuilder();
+                boolean escaped = false;
+                while (i < pattern.length() && pattern.charAt(i) != '/') {
+                    char c = pattern.charAt(i++);
+                    if (c == '\\') {
+                        if (i == pattern.length()) {
+                            throw new IllegalArgumentException("Incomplete escape sequence: " + pattern);
+                        }
+                        c = pattern.charAt(i++);
+                        escaped = true;
+                    }
+                    text.append(c);
+                }
+                i++;
+
+                String component = text.toString();
+                if (component.isEmpty()) {
+                    throw new IllegalArgumentException("Empty path component: " + pattern);
+                }
+                if (!escaped && component.equals("**")) {
+                    descendants = true;
+                } else if (!escaped && component.equals("*")) {
+                    components.add(Component.WILDCARD);
+                } else {
+                    components.add(new Component(component));
+                }
+            }
+            return new Pattern(pattern, components.toArray(new Component[0]), descendants);
+        }
+    }
+
+    private static final class Component {
+        private static final Component WILDCARD = new Component(null);
+
+        private final String text;
+        private final int index;
+
+        private Component(String text) {
+            this.text = text;
+            this.index = parseIndex(text);
+        }
+
+        private boolean matches(SymbolToken fieldName, int index) {
+            if (this == WILDCARD) {
+                return true;
+            }
+            if (fieldName == null) {
+                return index == this.index;
+            }
+            String fieldText = fieldName.getText();
+            return fieldText == null
+                    ? text.equals("$" + fieldName.getSid())
+                    : text.equals(fieldText);
+        }
+
+        // returns the index denoted by the text, or -1 if the text is not an index
+        private static int parseIndex(String text) {
+            if (text == null || text.isEmpty() || text.length() > 9) {
+                return -1;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                    return -1;
+                }
+            }
+            return Integer.parseInt(text);
+        }
+    }
+}
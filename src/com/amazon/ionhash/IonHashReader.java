@@ -16,6 +16,8 @@ package com.amazon.ionhash;
 
 import com.amazon.ion.IonReader;
 
+import java.util.function.Predicate;
+
 /**
  * IonReader extension that provides the hash of the IonValue just nexted
  * past or stepped out of, as defined by the Amazon Ion Hash Specification.
@@ -38,4 +40,35 @@ public interface IonHashReader extends IonReader {
      * nexted past;  if there is no hash, returns an empty array
      */
     byte[] digest();
+
+    /**
+     * Provides the hashes of the IonValue just nexted past or stepped out of,
+     * one per hash function, in the order the hash functions were specified
+     * (see {@link IonHashReaderBuilder#withHasherProviders(IonHasherProvider...)}).
+     * The first is the hash provided by digest().
+     * <p/>
+     * As with digest(), calling this method consumes the current hashes.
+     *
+     * @return array of hashes of the IonValue just nexted past;  if there
+     * is no hash, each hash is an empty array
+     */
+    default byte[][] digests() {
+        return new byte[][] { digest() };
+    }
+
+    /**
+     * Provides the hash of the IonValue just nexted past or stepped out of, as
+     * digest() does, unless the hash is one of the known digests specified by
+     * {@link IonHashReaderBuilder#withKnownDigests(DigestBloomFilter, Predicate)},
+     * in which case null is returned.  The store of known digests is consulted only
+     * for hashes that the filter doesn't rule out.
+     * <p/>
+     * As with digest(), calling this method consumes the current hash.
+     *
+     * @return the hash of the IonValue just nexted past, or null if it's known;
+     * if there is no hash, returns an empty array
+     */
+    default byte[] digestIfUnknown() {
+        return digest();
+    }
 }
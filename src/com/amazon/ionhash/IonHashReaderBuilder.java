@@ -16,6 +16,10 @@ package com.amazon.ionhash;
 
 import com.amazon.ion.IonReader;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
 /**
  * Build a new {@link IonHashReader} for the given {@link IonReader} and {@link IonHasherProvider}.
  * <p/>
@@ -24,6 +28,15 @@ import com.amazon.ion.IonReader;
 public class IonHashReaderBuilder {
     private IonReader reader;
     private IonHasherProvider hasherProvider;
+    private IonHasherProvider[] hasherProviders;
+    private IonHasher topLevelHasher;
+    private Executor pipelineExecutor;
+    private IonHashListener listener;
+    private IonHashPathFilter listenerFilter;
+    private IonHashPathFilter exclusions;
+    private IonReader lazyReader;
+    private DigestBloomFilter knownDigestFilter;
+    private Predicate<? super byte[]> knownDigests;
 
     /**
      * The standard builder of {@link IonHashReaderBuilder}s.
@@ -49,6 +62,126 @@ public class IonHashReaderBuilder {
      */
     public IonHashReaderBuilder withHasherProvider(IonHasherProvider hasherProvider) {
         this.hasherProvider = hasherProvider;
+        this.hasherProviders = null;
+        return this;
+    }
+
+    /**
+     * Specifies several hash function implementations to use;  each value is
+     * traversed and encoded once, and hashed by every hash function.  digest()
+     * provides the hash computed by the first hash function, and digests()
+     * provides the hashes computed by all of them.  A digest listener is
+     * provided the hashes computed by the first hash function.
+     */
+    public IonHashReaderBuilder withHasherProviders(IonHasherProvider... hasherProviders) {
+        this.hasherProvider = null;
+        this.hasherProviders = hasherProviders.clone();
+        return this;
+    }
+
+    /**
+     * Enables lazy hashing:  rather than hashing each value as it is nexted past,
+     * the IonHashReader records the span of the value and computes its hash only
+     * if digest() is called, so values whose digest is never requested are simply
+     * skipped by the underlying reader.
+     * <p/>
+     * The specified reader must be a separate reader over the same data as the
+     * reader provided to {@link #withReader(IonReader)};  it is used to re-read
+     * values when their digests are requested.  Both readers must support the
+     * {@link com.amazon.ion.SpanProvider} and
+     * {@link com.amazon.ion.SeekableReader} facets (as readers over byte
+     * arrays, Strings, and IonValues do).
+     */
+    public IonHashReaderBuilder withLazyDigest(IonReader lazyReader) {
+        this.lazyReader = lazyReader;
+        return this;
+    }
+
+    /**
+     * Specifies the IonHasher that the bytes representing each top-level value
+     * are provided to, in place of one obtained from the hasher provider (which
+     * is still used to compute the digests of struct fields).  digest() returns
+     * the result of the specified IonHasher's digest() method.
+     * <p/>
+     * For example, specifying an {@link OutputStreamIonHasher} provides the
+     * bytes that would otherwise be hashed, so they can be saved, or hashed
+     * separately.
+     */
+    public IonHashReaderBuilder withTopLevelHasher(IonHasher topLevelHasher) {
+        this.topLevelHasher = topLevelHasher;
+        return this;
+    }
+
+    /**
+     * Enables pipelined hashing, using the common ForkJoinPool to compute
+     * digests of struct fields.
+     *
+     * @see #withPipelining(Executor)
+     */
+    public IonHashReaderBuilder withPipelining() {
+        return withPipelining(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Enables pipelined hashing:  the bytes representing each top-level value are
+     * handed in batches to a separate thread that provides them to the hash function,
+     * and the digests of large struct fields are computed by the specified executor,
+     * so encoding values for hashing overlaps with the hash function itself.  This
+     * benefits large values;  digests are identical to those computed without
+     * pipelining.
+     * <p/>
+     * The separate thread is stopped when the IonHashReader is closed.
+     */
+    public IonHashReaderBuilder withPipelining(Executor executor) {
+        this.pipelineExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Specifies a listener that is provided the hash of every value, including
+     * values nested within containers, as a by-product of hashing.
+     */
+    public IonHashReaderBuilder withDigestListener(IonHashListener listener) {
+        return withDigestListener(listener, null);
+    }
+
+    /**
+     * Specifies a listener that is provided the hash of each value selected by
+     * the filter, including values nested within containers, as a by-product
+     * of hashing.  If the filter is null, every value is selected.
+     */
+    public IonHashReaderBuilder withDigestListener(IonHashListener listener, IonHashPathFilter filter) {
+        this.listener = listener;
+        this.listenerFilter = filter;
+        return this;
+    }
+
+    /**
+     * Specifies values to exclude from hashing.  Values selected by the filter,
+     * and everything nested within them, are still read but contribute nothing
+     * to the hash;  the digest is that of the same data with those values removed.
+     */
+    public IonHashReaderBuilder withExcludedPaths(IonHashPathFilter exclusions) {
+        this.exclusions = exclusions;
+        return this;
+    }
+
+    /**
+     * Specifies a store of known digests (e.g., a large set of digests on disk), and
+     * a filter of the same digests that is checked first, so that
+     * {@link IonHashReader#digestIfUnknown()} consults the store only for hashes that
+     * the filter doesn't rule out.  The filter requires hashes of at least
+     * {@link DigestBloomFilter#MIN_DIGEST_LENGTH} bytes.
+     */
+    public IonHashReaderBuilder withKnownDigests(DigestBloomFilter filter, Predicate<? super byte[]> store) {
+        if (filter == null) {
+            throw new NullPointerException("DigestBloomFilter must not be null");
+        }
+        if (store == null) {
+            throw new NullPointerException("Store of known digests must not be null");
+        }
+        this.knownDigestFilter = filter;
+        this.knownDigests = store;
         return this;
     }
 
@@ -58,6 +191,49 @@ public class IonHashReaderBuilder {
      * @return a new IonHashReader object
      */
     public IonHashReader build() {
-        return new IonHashReaderImpl(reader, hasherProvider);
+        IonHashReaderImpl hashReader = newHashReader();
+        if (knownDigests != null) {
+            hashReader.setKnownDigests(knownDigestFilter, knownDigests);
+        }
+        return hashReader;
+    }
+
+    private IonHashReaderImpl newHashReader() {
+        if (lazyReader == null) {
+            return new IonHashReaderImpl(reader, newHasher());
+        }
+        if (listener != null) {
+            throw new IllegalStateException("A digest listener cannot be combined with lazy digests");
+        }
+        if (exclusions != null) {
+            throw new IllegalStateException("Excluded paths cannot be combined with lazy digests");
+        }
+        if (hasherProviders != null) {
+            throw new IllegalStateException("Multiple hasher providers cannot be combined with lazy digests");
+        }
+        return new IonHashReaderImpl(reader, newHasher(), lazyReader, newHasher());
+    }
+
+    private Hasher newHasher() {
+        if (hasherProviders != null) {
+            if (topLevelHasher != null) {
+                throw new IllegalStateException("A top-level hasher cannot be combined with multiple hasher providers");
+            }
+            if (pipelineExecutor != null) {
+                throw new IllegalStateException("Pipelining cannot be combined with multiple hasher providers");
+            }
+            return new MultiHasherImpl(hasherProviders, listener, listenerFilter, exclusions);
+        }
+        if (pipelineExecutor == null) {
+            return new HasherImpl(hasherProvider, listener, listenerFilter, exclusions,
+                    topLevelHasher, new HasherImpl.SymbolHasher(), null);
+        }
+        if (hasherProvider == null) {
+            throw new NullPointerException("IonHasherProvider must not be null");
+        }
+        IonHasher pipelinedHasher = new PipelinedIonHasher(
+                topLevelHasher != null ? topLevelHasher : hasherProvider.newHasher());
+        return new HasherImpl(hasherProvider, listener, listenerFilter, exclusions,
+                pipelinedHasher, new HasherImpl.SymbolHasher(), pipelineExecutor);
     }
 }
@@ -18,6 +18,9 @@ import com.amazon.ion.Decimal;
 import com.amazon.ion.IntegerSize;
 import com.amazon.ion.IonReader;
 import com.amazon.ion.IonType;
+import com.amazon.ion.SeekableReader;
+import com.amazon.ion.Span;
+import com.amazon.ion.SpanProvider;
 import com.amazon.ion.SymbolTable;
 import com.amazon.ion.SymbolToken;
 import com.amazon.ion.Timestamp;
@@ -27,90 +30,137 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.function.Predicate;
+
+import static com.amazon.ionhash.HasherImpl.EMPTY_BYTE_ARRAY;
 
 /**
  * This IonReader decorator calculates a hash over the Ion data model.
  * The hash of the IonValue just nexted past or stepped out of is available via digest().
  * <p/>
+ * In lazy mode, values are not hashed as they are nexted past;  instead, the span
+ * of the value is recorded, and its hash is computed by a second reader over the
+ * same data only if digest() is called.
+ * <p/>
  * This class is not thread-safe.
  */
 class IonHashReaderImpl implements IonHashReader {
     private final IonReader delegate;
     private final Hasher hasher;
 
+    // lazy mode state;  replayReader is null unless lazy mode is enabled
+    private final SpanProvider spanProvider;
+    private final SeekableReader replaySeeker;
+    private final IonHashReaderImpl replayReader;
+    private Span pendingSpan;
+    private int depth;
+
+    // known digests, consulted by digestIfUnknown();  null unless specified
+    private DigestBloomFilter knownDigestFilter;
+    private Predicate<? super byte[]> knownDigests;
+
+    // depth within a container that is excluded from the hash
+    private int excludedDepth;
+
     private IonType ionType;
 
     IonHashReaderImpl(IonReader delegate, IonHasherProvider hasherProvider) {
+        this(delegate, new HasherImpl(hasherProvider), null, null);
+    }
+
+    IonHashReaderImpl(IonReader delegate, Hasher hasher) {
+        this(delegate, hasher, null, null);
+    }
+
+    IonHashReaderImpl(IonReader delegate, Hasher hasher, IonReader lazyReader, Hasher lazyHasher) {
         if (delegate == null) {
             throw new NullPointerException("IonReader must not be null");
         }
-        if (hasherProvider == null) {
-            throw new NullPointerException("IonHasherProvider must not be null");
-        }
 
         this.delegate = delegate;
-        this.hasher = new HasherEngagerImpl(new HasherImpl(hasherProvider));
+        this.hasher = new HasherEngagerImpl(hasher);
+
+        if (lazyReader != null) {
+            spanProvider = delegate.asFacet(SpanProvider.class);
+            replaySeeker = lazyReader.asFacet(SeekableReader.class);
+            if (spanProvider == null || replaySeeker == null) {
+                throw new IonHashException("Lazy digests require readers that support the SpanProvider and SeekableReader facets");
+            }
+            replayReader = new IonHashReaderImpl(lazyReader, lazyHasher);
+        } else {
+            spanProvider = null;
+            replaySeeker = null;
+            replayReader = null;
+        }
     }
 
     @Override
     public byte[] digest() {
+        if (replayReader != null) {
+            return lazyDigest();
+        }
         return hasher.digest();
     }
 
+    @Override
+    public byte[] digestIfUnknown() {
+        byte[] digest = digest();
+        if (knownDigests != null && digest.length > 0
+                && knownDigestFilter.mightContain(digest) && knownDigests.test(digest)) {
+            return null;
+        }
+        return digest;
+    }
+
+    void setKnownDigests(DigestBloomFilter filter, Predicate<? super byte[]> store) {
+        this.knownDigestFilter = filter;
+        this.knownDigests = store;
+    }
+
+    @Override
+    public byte[][] digests() {
+        if (replayReader != null) {
+            return new byte[][] { lazyDigest() };
+        }
+        return hasher.digests();
+    }
+
+    // hoists the span of the value just nexted past (or stepped out of) into the replay
+    // reader, and computes its hash;  each recorded span is hashed at most once
+    private byte[] lazyDigest() {
+        if (depth > 0 || pendingSpan == null) {
+            return EMPTY_BYTE_ARRAY;
+        }
+
+        replaySeeker.hoist(pendingSpan);
+        pendingSpan = null;
+        replayReader.next();    // position the replay reader on the value
+        replayReader.next();    // ... and hash it
+        return replayReader.digest();
+    }
+
     @Override
     public IonType next() {
         if (ionType != null) {
-            if (!isNullValue() && IonType.isContainer(ionType)) {
-                // caller is skipping over a container;  step in and consume it
-                // in order to compute the currentHash correctly
-                stepIn();
-                consumeRemainder();
-                stepOut();
+            if (replayReader != null) {
+                // lazy mode:  remember where the value is, and let the delegate skip over it
+                if (depth == 0) {
+                    pendingSpan = spanProvider.currentSpan();
+                }
+            } else if (excludedDepth > 0) {
+                // within an excluded container;  nothing to hash
             } else {
-                hasher.scalar().withFieldName(getFieldNameSymbol())
-                               .withAnnotations(getTypeAnnotationSymbols());
-                hasher.scalar().prepare();
-
-                try {
-                    // update such that currentHash always represents
-                    // the hash of the value we just "nexted" past
-                    if (isNullValue()) {
-                        hasher.scalar().updateNull(ionType);
-                    } else {
-                        switch (ionType) {
-                            case BLOB:
-                                hasher.scalar().updateBlob(newBytes());
-                                break;
-                            case BOOL:
-                                hasher.scalar().updateBool(booleanValue());
-                                break;
-                            case CLOB:
-                                hasher.scalar().updateClob(newBytes());
-                                break;
-                            case DECIMAL:
-                                hasher.scalar().updateDecimal(decimalValue());
-                                break;
-                            case FLOAT:
-                                hasher.scalar().updateFloat(doubleValue());
-                                break;
-                            case INT:
-                                hasher.scalar().updateInt(bigIntegerValue());
-                                break;
-                            case STRING:
-                                hasher.scalar().updateString(stringValue());
-                                break;
-                            case SYMBOL:
-                                hasher.scalar().updateSymbolToken(symbolValue());
-                                break;
-                            case TIMESTAMP:
-                                hasher.scalar().updateTimestamp(timestampValue());
-                                break;
-                            default:
-                                throw new IonHashException("Unsupported IonType (" + ionType + ")");
-                        }
-                    }
-                } catch (IOException e) {
-                    throw new IonHashException(e);
+                SymbolToken fieldName = getFieldNameSymbol();
+                if (hasher.exclude(fieldName)) {
+                    // the value is excluded from the hash;  let the delegate skip over it
+                } else if (!isNullValue() && IonType.isContainer(ionType)) {
+                    // caller is skipping over a container;  step in and consume it
+                    // in order to compute the currentHash correctly
+                    stepIn(fieldName);
+                    consumeRemainder();
+                    exitContainer();
+                } else {
+                    hashScalar(fieldName);
                 }
             }
         }
@@ -120,9 +170,85 @@ class IonHashReaderImpl implements IonHashReader {
         return ionType;
     }
 
+    // update such that currentHash always represents the hash of the value we just "nexted" past
+    private void hashScalar(SymbolToken fieldName) {
+        hashScalar(hasher, this, ionType, fieldName);
+    }
+
+    // updates the hasher with the scalar or null value on which the reader is positioned
+    static void hashScalar(Hasher hasher, IonReader reader, IonType ionType, SymbolToken fieldName) {
+        hasher.scalar().withFieldName(fieldName)
+                       .withAnnotations(reader.getTypeAnnotationSymbols());
+        hasher.scalar().prepare();
+
+        try {
+            if (reader.isNullValue()) {
+                hasher.scalar().updateNull(ionType);
+            } else {
+                switch (ionType) {
+                    case BLOB:
+                        hasher.scalar().updateBlob(reader.newBytes());
+                        break;
+                    case BOOL:
+                        hasher.scalar().updateBool(reader.booleanValue());
+                        break;
+                    case CLOB:
+                        hasher.scalar().updateClob(reader.newBytes());
+                        break;
+                    case DECIMAL:
+                        hasher.scalar().updateDecimal(reader.decimalValue());
+                        break;
+                    case FLOAT:
+                        hasher.scalar().updateFloat(reader.doubleValue());
+                        break;
+                    case INT:
+                        hasher.scalar().updateInt(reader.bigIntegerValue());
+                        break;
+                    case STRING:
+                        hasher.scalar().updateString(reader.stringValue());
+                        break;
+                    case SYMBOL:
+                        hasher.scalar().updateSymbolToken(reader.symbolValue());
+                        break;
+                    case TIMESTAMP:
+                        hasher.scalar().updateTimestamp(reader.timestampValue());
+                        break;
+                    default:
+                        throw new IonHashException("Unsupported IonType (" + ionType + ")");
+                }
+            }
+        } catch (IOException e) {
+            throw new IonHashException(e);
+        }
+    }
+
     @Override
     public void stepIn() {
-        hasher.stepIn(ionType, getFieldNameSymbol(), getTypeAnnotationSymbols());
+        if (replayReader != null) {
+            if (depth == 0) {
+                pendingSpan = spanProvider.currentSpan();
+            }
+            depth++;
+            delegate.stepIn();
+            ionType = null;
+        } else if (excludedDepth > 0) {
+            excludedDepth++;
+            delegate.stepIn();
+            ionType = null;
+        } else {
+            SymbolToken fieldName = getFieldNameSymbol();
+            if (hasher.exclude(fieldName)) {
+                excludedDepth++;
+                delegate.stepIn();
+                ionType = null;
+            } else {
+                stepIn(fieldName);
+            }
+        }
+    }
+
+    private void stepIn(SymbolToken fieldName) {
+        hasher.stepIn(ionType, fieldName, getTypeAnnotationSymbols());
         delegate.stepIn();
 
         ionType = null;
@@ -130,23 +256,51 @@ class IonHashReaderImpl implements IonHashReader {
 
     @Override
     public void stepOut() {
-        // the caller may be bailing on the current container;
-        // ensure we consume the rest of it in order to compute currentHash correctly
-        consumeRemainder();
+        // there's nothing to consume if the container is hashed lazily (from its span,
+        // if requested) or excluded from the hash
+        if (replayReader == null && excludedDepth == 0) {
+            // the caller may be bailing on the current container;
+            // ensure we consume the rest of it in order to compute currentHash correctly
+            consumeRemainder();
+        }
+        exitContainer();
+    }
 
-        hasher.stepOut();
+    private void exitContainer() {
+        if (replayReader != null) {
+            depth--;
+        } else if (excludedDepth > 0) {
+            excludedDepth--;
+        } else {
+            hasher.stepOut();
+        }
         delegate.stepOut();
+        ionType = null;
     }
 
     // the caller may opt to skip over portions of a value;  when a caller decides
-    // to skip, invoking this method recursively next()s over everything at the
-    // current depth to ensure correct hashing
+    // to skip, invoking this method next()s over everything at the current depth
+    // (stepping into and out of nested containers) to ensure correct hashing;
+    // nested containers are tracked with a counter rather than by recursion, so
+    // arbitrarily deep data can be consumed
     private void consumeRemainder() {
-        while ((ionType = next()) != null) {
-            if (IonType.isContainer(ionType) && !isNullValue()) {
+        int nestedDepth = 0;
+        while (true) {
+            IonType type = next();
+            if (type == null) {
+                if (nestedDepth == 0) {
+                    return;
+                }
+                exitContainer();
+                nestedDepth--;
+            } else if (IonType.isContainer(type) && !isNullValue()) {
                 stepIn();
-                consumeRemainder();
-                stepOut();
+                if (excludedDepth > 0) {
+                    // the container is excluded from the hash;  let the delegate skip the rest of it
+                    exitContainer();
+                } else {
+                    nestedDepth++;
+                }
             }
         }
     }
@@ -154,6 +308,9 @@ class IonHashReaderImpl implements IonHashReader {
     @Override
     public void close() throws IOException {
         hasher.close();
+        if (replayReader != null) {
+            replayReader.close();
+        }
     }
 
 
@@ -34,4 +34,19 @@ public interface IonHashWriter extends IonWriter {
      * written or stepped out of;  if there is no hash, returns an empty array
      */
     byte[] digest();
+
+    /**
+     * Provides the hashes of the IonValue just written or stepped out of,
+     * one per hash function, in the order the hash functions were specified
+     * (see {@link IonHashWriterBuilder#withHasherProviders(IonHasherProvider...)}).
+     * The first is the hash provided by digest().
+     * <p/>
+     * As with digest(), calling this method consumes the current hashes.
+     *
+     * @return array of hashes of the IonValue just written or stepped out of;
+     * if there is no hash, each hash is an empty array
+     */
+    default byte[][] digests() {
+        return new byte[][] { digest() };
+    }
 }
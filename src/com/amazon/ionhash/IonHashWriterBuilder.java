@@ -17,6 +17,8 @@ package com.amazon.ionhash;
 import com.amazon.ion.IonWriter;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Build a new {@link IonHashWriter} for the given {@link IonWriter} and {@link IonHasherProvider}.
@@ -25,7 +27,14 @@ import java.io.IOException;
  */
 public class IonHashWriterBuilder {
     private IonWriter writer;
+    private boolean hashOnly;
     private IonHasherProvider hasherProvider;
+    private IonHasherProvider[] hasherProviders;
+    private IonHasher topLevelHasher;
+    private Executor pipelineExecutor;
+    private IonHashListener listener;
+    private IonHashPathFilter listenerFilter;
+    private IonHashPathFilter exclusions;
 
     /**
      * The standard builder of {@link IonHashWriterBuilder}s.
@@ -43,6 +52,19 @@ public class IonHashWriterBuilder {
      */
     public IonHashWriterBuilder withWriter(IonWriter writer) {
         this.writer = writer;
+        this.hashOnly = false;
+        return this;
+    }
+
+    /**
+     * Specifies that the IonHashWriter only computes hashes, and has no stream
+     * writer to write to.  This avoids the cost of serializing data that would
+     * be discarded anyway (e.g., when fingerprinting in-memory values);
+     * digest() behaves exactly as it does when a stream writer is specified.
+     */
+    public IonHashWriterBuilder withoutWriter() {
+        this.writer = null;
+        this.hashOnly = true;
         return this;
     }
 
@@ -51,6 +73,89 @@ public class IonHashWriterBuilder {
      */
     public IonHashWriterBuilder withHasherProvider(IonHasherProvider hasherProvider) {
         this.hasherProvider = hasherProvider;
+        this.hasherProviders = null;
+        return this;
+    }
+
+    /**
+     * Specifies several hash function implementations to use;  each value is
+     * traversed and encoded once, and hashed by every hash function.  digest()
+     * provides the hash computed by the first hash function, and digests()
+     * provides the hashes computed by all of them.  A digest listener is
+     * provided the hashes computed by the first hash function.
+     */
+    public IonHashWriterBuilder withHasherProviders(IonHasherProvider... hasherProviders) {
+        this.hasherProvider = null;
+        this.hasherProviders = hasherProviders.clone();
+        return this;
+    }
+
+    /**
+     * Specifies the IonHasher that the bytes representing each top-level value
+     * are provided to, in place of one obtained from the hasher provider (which
+     * is still used to compute the digests of struct fields).  digest() returns
+     * the result of the specified IonHasher's digest() method.
+     * <p/>
+     * For example, specifying an {@link OutputStreamIonHasher} provides the
+     * bytes that would otherwise be hashed, so they can be saved, or hashed
+     * separately.
+     */
+    public IonHashWriterBuilder withTopLevelHasher(IonHasher topLevelHasher) {
+        this.topLevelHasher = topLevelHasher;
+        return this;
+    }
+
+    /**
+     * Enables pipelined hashing, using the common ForkJoinPool to compute
+     * digests of struct fields.
+     *
+     * @see #withPipelining(Executor)
+     */
+    public IonHashWriterBuilder withPipelining() {
+        return withPipelining(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Enables pipelined hashing:  the bytes representing each top-level value are
+     * handed in batches to a separate thread that provides them to the hash function,
+     * and the digests of large struct fields are computed by the specified executor,
+     * so encoding values for hashing overlaps with the hash function itself.  This
+     * benefits large values;  digests are identical to those computed without
+     * pipelining.
+     * <p/>
+     * The separate thread is stopped when the IonHashWriter is closed.
+     */
+    public IonHashWriterBuilder withPipelining(Executor executor) {
+        this.pipelineExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Specifies a listener that is provided the hash of every value, including
+     * values nested within containers, as a by-product of hashing.
+     */
+    public IonHashWriterBuilder withDigestListener(IonHashListener listener) {
+        return withDigestListener(listener, null);
+    }
+
+    /**
+     * Specifies a listener that is provided the hash of each value selected by
+     * the filter, including values nested within containers, as a by-product
+     * of hashing.  If the filter is null, every value is selected.
+     */
+    public IonHashWriterBuilder withDigestListener(IonHashListener listener, IonHashPathFilter filter) {
+        this.listener = listener;
+        this.listenerFilter = filter;
+        return this;
+    }
+
+    /**
+     * Specifies values to exclude from hashing.  Values selected by the filter,
+     * and everything nested within them, are still written but contribute nothing
+     * to the hash;  the digest is that of the same data with those values removed.
+     */
+    public IonHashWriterBuilder withExcludedPaths(IonHashPathFilter exclusions) {
+        this.exclusions = exclusions;
         return this;
     }
 
@@ -60,6 +165,29 @@ public class IonHashWriterBuilder {
      * @return a new IonHashWriter object
      */
     public IonHashWriter build() throws IOException {
-        return new IonHashWriterImpl(writer, hasherProvider);
+        return new IonHashWriterImpl(hashOnly ? new NullIonWriter() : writer, newHasher());
+    }
+
+    private Hasher newHasher() {
+        if (hasherProviders != null) {
+            if (topLevelHasher != null) {
+                throw new IllegalStateException("A top-level hasher cannot be combined with multiple hasher providers");
+            }
+            if (pipelineExecutor != null) {
+                throw new IllegalStateException("Pipelining cannot be combined with multiple hasher providers");
+            }
+            return new MultiHasherImpl(hasherProviders, listener, listenerFilter, exclusions);
+        }
+        if (pipelineExecutor == null) {
+            return new HasherImpl(hasherProvider, listener, listenerFilter, exclusions,
+                    topLevelHasher, new HasherImpl.SymbolHasher(), null);
+        }
+        if (hasherProvider == null) {
+            throw new NullPointerException("IonHasherProvider must not be null");
+        }
+        IonHasher pipelinedHasher = new PipelinedIonHasher(
+                topLevelHasher != null ? topLevelHasher : hasherProvider.newHasher());
+        return new HasherImpl(hasherProvider, listener, listenerFilter, exclusions,
+                pipelinedHasher, new HasherImpl.SymbolHasher(), pipelineExecutor);
     }
 }
@@ -47,16 +47,20 @@ class IonHashWriterImpl implements IonHashWriter {
     private SymbolToken fieldName = null;
     private List<SymbolToken> annotations = EMPTY_SYMBOLTOKEN_LIST;
 
+    // depth within a container that is excluded from the hash
+    private int excludedDepth;
+
     IonHashWriterImpl(IonWriter delegate, IonHasherProvider hasherProvider) throws IOException {
+        this(delegate, new HasherImpl(hasherProvider));
+    }
+
+    IonHashWriterImpl(IonWriter delegate, Hasher hasher) throws IOException {
         if (delegate == null) {
             throw new NullPointerException("IonWriter must not be null");
         }
-        if (hasherProvider == null) {
-            throw new NullPointerException("IonHasherProvider must not be null");
-        }
 
         this.delegate = delegate;
-        this.hasher = new HasherEngagerImpl(new HasherImpl(hasherProvider));
+        this.hasher = new HasherEngagerImpl(hasher);
     }
 
     @Override
@@ -64,10 +68,19 @@ class IonHashWriterImpl implements IonHashWriter {
         return hasher.digest();
     }
 
+    @Override
+    public byte[][] digests() {
+        return hasher.digests();
+    }
+
     @Override
     public void stepIn(IonType containerType) throws IOException {
         delegate.stepIn(containerType);
-        hasher.stepIn(containerType, fieldName, annotations());
+        if (excludedDepth > 0 || hasher.exclude(fieldName)) {
+            excludedDepth++;
+        } else {
+            hasher.stepIn(containerType, fieldName, annotations());
+        }
 
         fieldName = null;
         annotations = EMPTY_SYMBOLTOKEN_LIST;
@@ -75,7 +88,11 @@ class IonHashWriterImpl implements IonHashWriter {
 
     @Override
     public void stepOut() throws IOException {
-        hasher.stepOut();
+        if (excludedDepth > 0) {
+            excludedDepth--;
+        } else {
+            hasher.stepOut();
+        }
         delegate.stepOut();
     }
 
@@ -231,10 +248,12 @@ class IonHashWriterImpl implements IonHashWriter {
     }
 
     private void updateScalar(Updatable scalarUpdater) throws IOException {
-        hasher.scalar().withFieldName(fieldName);
-        hasher.scalar().withAnnotations(annotations());
-        hasher.scalar().prepare();
-        scalarUpdater.update();
+        if (excludedDepth == 0 && !hasher.exclude(fieldName)) {
+            hasher.scalar().withFieldName(fieldName);
+            hasher.scalar().withAnnotations(annotations());
+            hasher.scalar().prepare();
+            scalarUpdater.update();
+        }
 
         this.fieldName = null;
         this.annotations = EMPTY_SYMBOLTOKEN_LIST;
@@ -253,6 +272,8 @@ class IonHashWriterImpl implements IonHashWriter {
         writeValues(reader, true);
     }
 
+    // nested containers are tracked with a counter rather than by recursion,
+    // so arbitrarily deep data can be written
     private void writeValues(IonReader reader, boolean iterate) throws IOException {
         IonType type = reader.getType();
 
@@ -265,57 +286,71 @@ class IonHashWriterImpl implements IonHashWriter {
             return;
         }
 
-        do {
-            setTypeAnnotationSymbols(reader.getTypeAnnotationSymbols());
-            if (reader.isInStruct()) {
-                setFieldNameSymbol(reader.getFieldNameSymbol());
-            }
-
-            if (reader.isNullValue()) {
-                writeNull(type);
-                continue;
-            }
-
-            if (IonType.isContainer(type)) {
-                stepIn(type);
-                reader.stepIn();
-                writeValues(reader, true);
+        int depth = 0;
+        while (true) {
+            if (type == null) {
+                if (depth == 0) {
+                    return;
+                }
                 reader.stepOut();
                 stepOut();
+                depth--;
             } else {
-                switch (type) {
-                    case BLOB:
-                        writeBlob(reader.newBytes());
-                        break;
-                    case BOOL:
-                        writeBool(reader.booleanValue());
-                        break;
-                    case CLOB:
-                        writeClob(reader.newBytes());
-                        break;
-                    case DECIMAL:
-                        writeDecimal(reader.decimalValue());
-                        break;
-                    case FLOAT:
-                        writeFloat(reader.doubleValue());
-                        break;
-                    case INT:
-                        writeInt(reader.bigIntegerValue());
-                        break;
-                    case STRING:
-                        writeString(reader.stringValue());
-                        break;
-                    case SYMBOL:
-                        writeSymbolToken(reader.symbolValue());
-                        break;
-                    case TIMESTAMP:
-                        writeTimestamp(reader.timestampValue());
-                        break;
-                    default:
-                        throw new RuntimeException("Unexpected type '" + type + "'");
+                setTypeAnnotationSymbols(reader.getTypeAnnotationSymbols());
+                if (reader.isInStruct()) {
+                    setFieldNameSymbol(reader.getFieldNameSymbol());
+                }
+
+                if (reader.isNullValue()) {
+                    writeNull(type);
+                } else if (IonType.isContainer(type)) {
+                    stepIn(type);
+                    reader.stepIn();
+                    depth++;
+                } else {
+                    writeScalar(reader, type);
                 }
             }
-        } while (iterate && (type = reader.next()) != null);
+
+            if (depth == 0 && !iterate) {
+                return;
+            }
+            type = reader.next();
+        }
+    }
+
+    private void writeScalar(IonReader reader, IonType type) throws IOException {
+        switch (type) {
+            case BLOB:
+                writeBlob(reader.newBytes());
+                break;
+            case BOOL:
+                writeBool(reader.booleanValue());
+                break;
+            case CLOB:
+                writeClob(reader.newBytes());
+                break;
+            case DECIMAL:
+                writeDecimal(reader.decimalValue());
+                break;
+            case FLOAT:
+                writeFloat(reader.doubleValue());
+                break;
+            case INT:
+                writeInt(reader.bigIntegerValue());
+                break;
+            case STRING:
+                writeString(reader.stringValue());
+                break;
+            case SYMBOL:
+                writeSymbolToken(reader.symbolValue());
+                break;
+            case TIMESTAMP:
+                writeTimestamp(reader.timestampValue());
+                break;
+            default:
+                throw new RuntimeException("Unexpected type '" + type + "'");
+        }
     }
 
     @Override
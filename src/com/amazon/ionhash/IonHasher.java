@@ -33,4 +33,17 @@ public interface IonHasher {
      * so the hasher may be reused.
      */
     byte[] digest();
+
+    /**
+     * Returns an independent copy of this hasher, including the bytes it has been
+     * updated with since it was last reset;  updating or digesting either hasher
+     * doesn't affect the other.
+     * <p/>
+     * Optional;  the default implementation throws UnsupportedOperationException.
+     *
+     * @throws UnsupportedOperationException if this hasher can't be copied
+     */
+    default IonHasher copy() {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support copy()");
+    }
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonContainer;
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.SymbolToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Computes the hashes of IonValues, remembering what it computed for the containers
+ * within them, so that hashing a value again after a small modification only requires
+ * hashing the modified value's ancestors, e.g.:
+ * <pre>
+ *    byte[] before = cache.digest(config);
+ *    IonValue port = ((IonStruct) config.get("server")).get("port");
+ *    ((IonInt) port).setValue(8443);
+ *    cache.invalidate(port);
+ *    byte[] after = cache.digest(config);     // re-hashes only the ancestors of port
+ * </pre>
+ * Containers are remembered by identity, and only weakly, so values that are no longer
+ * referenced elsewhere are forgotten.  Each struct's encoding (its sorted field digests)
+ * is remembered, along with its digest as a field of its parent;  a list or sexp's
+ * elements other than structs are hashed again whenever the list or sexp is.
+ * <p/>
+ * A modified value must be provided to {@link #invalidate(IonValue)} before the next
+ * call to {@link #digest(IonValue)}:  after changing a scalar, or a container's
+ * annotations, invalidate the value itself;  after adding children to or removing
+ * children from a container, invalidate the container.
+ * <p/>
+ * This class is not thread-safe.
+ */
+public final class IonValueDigestCache implements Closeable {
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private final ReferenceQueue<IonValue> collected = new ReferenceQueue<>();
+
+    // hashes top-level values
+    private final HasherImpl hasher;
+    private final IonValueHasher valueHasher;
+    // computes the encodings of structs
+    private final HasherImpl encoder;
+    private final IonValueHasher structEncoder;
+    // computes the digests of structs as fields of their parents
+    private final HasherImpl fieldHasher;
+
+    public IonValueDigestCache(IonHasherProvider hasherProvider) {
+        HasherImpl.SymbolHasher symbolHasher = new HasherImpl.SymbolHasher();
+        this.hasher = new HasherImpl(hasherProvider, null, null, null, null, symbolHasher, null);
+        this.valueHasher = new IonValueHasher(hasher, (value, fieldName) -> update(hasher, value, fieldName));
+        this.encoder = new HasherImpl(hasherProvider, null, null, null,
+                new HasherImpl.EncodedValue(), symbolHasher, null);
+        this.structEncoder = new IonValueHasher(encoder, (value, fieldName) -> update(encoder, value, fieldName));
+        this.fieldHasher = new HasherImpl(hasherProvider, null, null, null, null, symbolHasher, null);
+    }
+
+    /**
+     * Returns the hash of the specified value;  as with {@link IonHash#digest(IonValue, IonHasherProvider)},
+     * the value's field name (if any) is not included in the hash.
+     *
+     * @throws IllegalArgumentException if the value is an IonDatagram
+     */
+    public byte[] digest(IonValue value) {
+        if (value.getType() == IonType.DATAGRAM) {
+            throw new IllegalArgumentException("Unable to hash a datagram;  hash each of its values instead");
+        }
+        expungeCollected();
+        if (!isContainer(value)) {
+            return valueHasher.digest(value);
+        }
+
+        Entry entry = entries.get(new Key(value, null));
+        if (entry == null || entry.digest == null) {
+            encodeStructs((IonContainer) value);
+            if (entry == null) {
+                entry = entry(value);
+            }
+            entry.digest = valueHasher.digest(value);
+        }
+        return entry.digest.clone();
+    }
+
+    /**
+     * Forgets what was computed for the specified value and its ancestors, which
+     * must be done whenever the value is modified.
+     */
+    public void invalidate(IonValue value) {
+        expungeCollected();
+        for (IonValue v = value; v != null; v = v.getContainer()) {
+            entries.remove(new Key(v, null));
+        }
+    }
+
+    /**
+     * Forgets everything.
+     */
+    public void clear() {
+        entries.clear();
+        while (collected.poll() != null) {
+            // discard
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            hasher.close();
+        } finally {
+            try {
+                encoder.close();
+            } finally {
+                fieldHasher.close();
+            }
+        }
+    }
+
+    // computes the encodings of the structs within (and including) the specified container
+    // that don't have one, children before parents;  structs that have an encoding are
+    // skipped along with their children, whose encodings are unchanged
+    private void encodeStructs(IonContainer root) {
+        if (isEncoded(root)) {
+            return;
+        }
+        Deque<IonContainer> containers = new ArrayDeque<>();
+        Deque<Iterator<IonValue>> iterators = new ArrayDeque<>();
+        containers.push(root);
+        iterators.push(root.iterator());
+        while (!containers.isEmpty()) {
+            Iterator<IonValue> children = iterators.peek();
+            if (children.hasNext()) {
+                IonValue child = children.next();
+                if (isContainer(child) && !isEncoded(child)) {
+                    containers.push((IonContainer) child);
+                    iterators.push(((IonContainer) child).iterator());
+                }
+                continue;
+            }
+            iterators.pop();
+            IonContainer container = containers.pop();
+            if (container.getType() == IonType.STRUCT) {
+                encoder.stepIn(IonType.STRUCT, null, container.getTypeAnnotationSymbols());
+                for (IonValue child : container) {
+                    structEncoder.hash(child, child.getFieldNameSymbol());
+                }
+                encoder.stepOut();
+                entry(container).encoding = encoder.digest();
+            }
+        }
+    }
+
+    // updates the specified hasher with the remembered encoding (or field digest) of a struct
+    private boolean update(HasherImpl target, IonValue value, SymbolToken fieldName) {
+        if (value.getType() != IonType.STRUCT || value.isNullValue()) {
+            return false;
+        }
+        Entry entry = entries.get(new Key(value, null));
+        if (fieldName == null) {
+            target.updateEncodedValue(entry.encoding);
+            return true;
+        }
+
+        String fieldText = fieldName.getText();
+        if (entry.fieldDigest == null || !Objects.equals(entry.fieldText, fieldText)) {
+            fieldHasher.updateFieldName(fieldName);
+            fieldHasher.updateEncodedValue(entry.encoding);
+            entry.fieldDigest = fieldHasher.digest();
+            entry.fieldText = fieldText;
+        }
+        target.updateFieldDigest(entry.fieldDigest);
+        return true;
+    }
+
+    private boolean isEncoded(IonValue value) {
+        if (value.getType() != IonType.STRUCT) {
+            return false;
+        }
+        Entry entry = entries.get(new Key(value, null));
+        return entry != null && entry.encoding != null;
+    }
+
+    private Entry entry(IonValue value) {
+        return entries.computeIfAbsent(new Key(value, collected), k -> new Entry());
+    }
+
+    private void expungeCollected() {
+        Reference<? extends IonValue> key;
+        while ((key = collected.poll()) != null) {
+            entries.remove(key);
+        }
+    }
+
+    private static boolean isContainer(IonValue value) {
+        return IonType.isContainer(value.getType()) && !value.isNullValue();
+    }
+
+    /**
+     * What's been computed for a container.
+     */
+    private static final class Entry {
+        // structs only:  the bytes the struct contributes to its parent's hash (other than its field name)
+        private byte[] encoding;
+        // structs only:  the digest of the struct as a field with the name fieldText
+        private byte[] fieldDigest;
+        private String fieldText;
+        // the digest of the container as a top-level value
+        private byte[] digest;
+    }
+
+    /**
+     * Weakly references a value, and compares by the value's identity.
+     */
+    private static final class Key extends WeakReference<IonValue> {
+        private final int hash;
+
+        private Key(IonValue value, ReferenceQueue<IonValue> queue) {
+            super(value, queue);
+            this.hash = System.identityHashCode(value);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            IonValue value = get();
+            return value != null && value == ((Key) other).get();
+        }
+    }
+}
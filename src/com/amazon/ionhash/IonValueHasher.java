@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IntegerSize;
+import com.amazon.ion.IonBool;
+import com.amazon.ion.IonContainer;
+import com.amazon.ion.IonDecimal;
+import com.amazon.ion.IonFloat;
+import com.amazon.ion.IonInt;
+import com.amazon.ion.IonLob;
+import com.amazon.ion.IonString;
+import com.amazon.ion.IonSymbol;
+import com.amazon.ion.IonTimestamp;
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.SymbolToken;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Computes the hash of an IonValue by walking the value (and its children) directly,
+ * rather than by reading it through an IonHashReader.  Containers are walked
+ * iteratively, so deeply nested values don't exhaust the stack.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class IonValueHasher {
+    private final Hasher hasher;
+    private final Shortcut shortcut;
+    private final Deque<Iterator<IonValue>> iterators = new ArrayDeque<>();
+
+    IonValueHasher(Hasher hasher) {
+        this(hasher, null);
+    }
+
+    // if specified, the shortcut is offered each value before the value is walked
+    IonValueHasher(Hasher hasher, Shortcut shortcut) {
+        this.hasher = hasher;
+        this.shortcut = shortcut;
+    }
+
+    /**
+     * Updates the hasher with a value by other means (e.g., with a previously computed
+     * digest of the value).
+     */
+    interface Shortcut {
+        /**
+         * Returns true if the hasher was updated with the specified value, which is a child of
+         * the hasher's current container (or a top-level value) with the specified field name;
+         * otherwise, the value is walked as usual.
+         */
+        boolean update(IonValue value, SymbolToken fieldName) throws IOException;
+    }
+
+    /**
+     * Returns the hash of the specified value;  as with values read by an IonHashReader
+     * at the top level, the value's field name (if any) is not included in the hash.
+     */
+    byte[] digest(IonValue value) {
+        if (value.getType() == IonType.DATAGRAM) {
+            throw new IllegalArgumentException("Unable to hash a datagram;  hash each of its values instead");
+        }
+        hash(value, null);
+        return hasher.digest();
+    }
+
+    /**
+     * Updates the hasher with the specified value (and its children), which is a child
+     * of the hasher's current container (or a top-level value) with the specified field name.
+     */
+    void hash(IonValue value, SymbolToken fieldName) {
+        try {
+            if (!hasher.exclude(fieldName) && !shortcut(value, fieldName) && enter(value, fieldName)) {
+                hashChildren();
+            }
+        } catch (IOException e) {
+            throw new IonHashException(e);
+        } finally {
+            iterators.clear();
+        }
+    }
+
+    private void hashChildren() throws IOException {
+        while (!iterators.isEmpty()) {
+            Iterator<IonValue> children = iterators.peekFirst();
+            if (!children.hasNext()) {
+                iterators.removeFirst();
+                hasher.stepOut();
+                continue;
+            }
+            IonValue child = children.next();
+            SymbolToken fieldName = child.getFieldNameSymbol();
+            if (!hasher.exclude(fieldName) && !shortcut(child, fieldName)) {
+                enter(child, fieldName);
+            }
+        }
+    }
+
+    private boolean shortcut(IonValue value, SymbolToken fieldName) throws IOException {
+        return shortcut != null && shortcut.update(value, fieldName);
+    }
+
+    // hashes a scalar, or steps into a container;  returns true if a container was entered
+    private boolean enter(IonValue value, SymbolToken fieldName) throws IOException {
+        IonType type = value.getType();
+        SymbolToken[] annotations = value.getTypeAnnotationSymbols();
+        if (IonType.isContainer(type) && !value.isNullValue()) {
+            hasher.stepIn(type, fieldName, annotations);
+            iterators.addFirst(((IonContainer) value).iterator());
+            return true;
+        }
+
+        Hasher.ScalarHasher scalar = hasher.scalar();
+        scalar.withFieldName(fieldName).withAnnotations(annotations);
+        scalar.prepare();
+        if (value.isNullValue()) {
+            scalar.updateNull(type);
+            return false;
+        }
+        switch (type) {
+            case BLOB:
+                scalar.updateBlob(((IonLob) value).getBytes());
+                break;
+            case BOOL:
+                scalar.updateBool(((IonBool) value).booleanValue());
+                break;
+            case CLOB:
+                scalar.updateClob(((IonLob) value).getBytes());
+                break;
+            case DECIMAL:
+                scalar.updateDecimal(((IonDecimal) value).decimalValue());
+                break;
+            case FLOAT:
+                scalar.updateFloat(((IonFloat) value).doubleValue());
+                break;
+            case INT:
+                IonInt intValue = (IonInt) value;
+                if (intValue.getIntegerSize() == IntegerSize.BIG_INTEGER) {
+                    scalar.updateInt(intValue.bigIntegerValue());
+                } else {
+                    scalar.updateInt(intValue.longValue());
+                }
+                break;
+            case STRING:
+                scalar.updateString(((IonString) value).stringValue());
+                break;
+            case SYMBOL:
+                scalar.updateSymbolToken(((IonSymbol) value).symbolValue());
+                break;
+            case TIMESTAMP:
+                scalar.updateTimestamp(((IonTimestamp) value).timestampValue());
+                break;
+            default:
+                throw new IonHashException("Unsupported IonType (" + type + ")");
+        }
+        return false;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream over a file that is memory-mapped one chunk at a time, so reads are
+ * served from the page cache without a read() system call (and kernel-to-user copy)
+ * per buffer fill.
+ * <p/>
+ * Mapped chunks are released when they are garbage collected.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class MappedFileInputStream extends InputStream {
+    static final long DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long chunkSize;
+
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+
+    MappedFileInputStream(Path file) throws IOException {
+        this(file, DEFAULT_CHUNK_SIZE);
+    }
+
+    MappedFileInputStream(Path file, long chunkSize) throws IOException {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunkSize must be positive and at most Integer.MAX_VALUE");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureChunk()) {
+            return -1;
+        }
+        return chunk.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > bytes.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureChunk()) {
+            return -1;
+        }
+        int n = Math.min(len, chunk.remaining());
+        chunk.get(bytes, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long position = position();
+        long skipped = Math.max(0, Math.min(n, size - position));
+        if (chunk != null && skipped < chunk.remaining()) {
+            ((Buffer) chunk).position(chunk.position() + (int) skipped);
+        } else {
+            chunk = null;
+            chunkStart = position + skipped;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, size - position());
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunk = null;
+        channel.close();
+    }
+
+    private long position() {
+        return chunk == null ? chunkStart : chunkStart + chunk.position();
+    }
+
+    // maps the next chunk if the current one is exhausted;  returns false at the end of the file
+    private boolean ensureChunk() throws IOException {
+        if (chunk != null && chunk.hasRemaining()) {
+            return true;
+        }
+        long position = position();
+        if (position >= size) {
+            return false;
+        }
+        chunkStart = position;
+        chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, size - position));
+        return true;
+    }
+}
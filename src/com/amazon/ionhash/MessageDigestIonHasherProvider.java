@@ -19,6 +19,8 @@ import java.security.NoSuchAlgorithmException;
 
 /**
  * IonHasherProvider implementation that delegates to java.security.MessageDigest.
+ * The hashers support {@link IonHasher#copy()} if the algorithm's MessageDigest
+ * implementation is cloneable (as the JDK's are).
  *
  * @see java.security.MessageDigest
  */
@@ -32,21 +34,36 @@ public class MessageDigestIonHasherProvider implements IonHasherProvider {
     @Override
     public IonHasher newHasher() {
         try {
-            return new IonHasher() {
-                private final MessageDigest md = MessageDigest.getInstance(algorithm);
-
-                @Override
-                public void update(byte[] bytes) {
-                    md.update(bytes);
-                }
-
-                @Override
-                public byte[] digest() {
-                    return md.digest();
-                }
-            };
+            return new MessageDigestIonHasher(MessageDigest.getInstance(algorithm));
         } catch (NoSuchAlgorithmException e) {
             throw new IonHashException(e);
         }
     }
+
+    private static final class MessageDigestIonHasher implements IonHasher {
+        private final MessageDigest md;
+
+        private MessageDigestIonHasher(MessageDigest md) {
+            this.md = md;
+        }
+
+        @Override
+        public void update(byte[] bytes) {
+            md.update(bytes);
+        }
+
+        @Override
+        public byte[] digest() {
+            return md.digest();
+        }
+
+        @Override
+        public IonHasher copy() {
+            try {
+                return new MessageDigestIonHasher((MessageDigest) md.clone());
+            } catch (CloneNotSupportedException e) {
+                throw new UnsupportedOperationException(md.getAlgorithm() + " MessageDigest is not cloneable", e);
+            }
+        }
+    }
 }
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonType;
+import com.amazon.ion.SymbolToken;
+import com.amazon.ion.Timestamp;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Hasher that computes hashes with several hash functions in a single pass.
+ * <p/>
+ * The bytes provided to each hash function are identical except for the digests
+ * of struct fields, which are computed (and sorted) per hash function;  so each
+ * hash function is given its own HasherImpl, but symbols and scalars are encoded
+ * only once, by the first HasherImpl, and the encoded bytes are provided to the
+ * others.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class MultiHasherImpl implements Hasher {
+    private final HasherImpl[] hashers;
+    private final ScalarHasher scalarHasher = new MultiScalarHasher();
+
+    MultiHasherImpl(IonHasherProvider[] hasherProviders,
+                    IonHashListener listener,
+                    IonHashPathFilter listenerFilter,
+                    IonHashPathFilter exclusions) {
+        if (hasherProviders.length == 0) {
+            throw new IllegalArgumentException("At least one IonHasherProvider must be specified");
+        }
+
+        HasherImpl.SymbolHasher symbolHasher = new HasherImpl.SymbolHasher();
+        hashers = new HasherImpl[hasherProviders.length];
+        for (int i = 0; i < hashers.length; i++) {
+            // the listener is provided the digests of the first hash function only
+            hashers[i] = i == 0
+                    ? new HasherImpl(hasherProviders[i], listener, listenerFilter, exclusions, null, symbolHasher, null)
+                    : new HasherImpl(hasherProviders[i], null, null, exclusions, null, symbolHasher, null);
+        }
+    }
+
+    @Override
+    public void enable() {
+        for (HasherImpl hasher : hashers) {
+            hasher.enable();
+        }
+    }
+
+    @Override
+    public void disable() {
+        for (HasherImpl hasher : hashers) {
+            hasher.disable();
+        }
+    }
+
+    @Override
+    public void stepIn(IonType containerType, SymbolToken fieldName, SymbolToken[] annotations) {
+        for (HasherImpl hasher : hashers) {
+            hasher.stepIn(containerType, fieldName, annotations);
+        }
+    }
+
+    @Override
+    public void stepOut() {
+        for (HasherImpl hasher : hashers) {
+            hasher.stepOut();
+        }
+    }
+
+    @Override
+    public byte[] digest() {
+        // every hash function is digested, so none carries the current value into the next
+        return digests()[0];
+    }
+
+    @Override
+    public byte[][] digests() {
+        byte[][] digests = new byte[hashers.length][];
+        for (int i = 0; i < hashers.length; i++) {
+            digests[i] = hashers[i].digest();
+        }
+        return digests;
+    }
+
+    @Override
+    public int hashFunctionCount() {
+        return hashers.length;
+    }
+
+    @Override
+    public boolean exclude(SymbolToken fieldName) {
+        boolean excluded = false;
+        for (HasherImpl hasher : hashers) {
+            excluded = hasher.exclude(fieldName);
+        }
+        return excluded;
+    }
+
+    @Override
+    public ScalarHasher scalar() {
+        return scalarHasher;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (HasherImpl hasher : hashers) {
+            hasher.close();
+        }
+    }
+
+    /**
+     * Hashes each scalar with the first HasherImpl, then provides the resulting
+     * TQ and representation to the others.
+     */
+    private final class MultiScalarHasher implements ScalarHasher {
+        @Override
+        public ScalarHasher withFieldName(SymbolToken fieldName) {
+            for (HasherImpl hasher : hashers) {
+                hasher.scalar().withFieldName(fieldName);
+            }
+            return this;
+        }
+
+        @Override
+        public ScalarHasher withAnnotations(SymbolToken[] annotations) {
+            for (HasherImpl hasher : hashers) {
+                hasher.scalar().withAnnotations(annotations);
+            }
+            return this;
+        }
+
+        @Override
+        public void prepare() {
+            for (HasherImpl hasher : hashers) {
+                hasher.scalar().prepare();
+            }
+        }
+
+        @Override
+        public void updateBlob(byte[] value) throws IOException {
+            hashers[0].scalar().updateBlob(value);
+            replicate();
+        }
+
+        @Override
+        public void updateBlob(byte[] value, int start, int len) throws IOException {
+            hashers[0].scalar().updateBlob(value, start, len);
+            replicate();
+        }
+
+        @Override
+        public void updateBool(boolean value) throws IOException {
+            hashers[0].scalar().updateBool(value);
+            replicate();
+        }
+
+        @Override
+        public void updateClob(byte[] value) throws IOException {
+            hashers[0].scalar().updateClob(value);
+            replicate();
+        }
+
+        @Override
+        public void updateClob(byte[] value, int start, int len) throws IOException {
+            hashers[0].scalar().updateClob(value, start, len);
+            replicate();
+        }
+
+        @Override
+        public void updateDecimal(BigDecimal value) throws IOException {
+            hashers[0].scalar().updateDecimal(value);
+            replicate();
+        }
+
+        @Override
+        public void updateFloat(double value) throws IOException {
+            hashers[0].scalar().updateFloat(value);
+            replicate();
+        }
+
+        @Override
+        public void updateInt(BigInteger value) throws IOException {
+            hashers[0].scalar().updateInt(value);
+            replicate();
+        }
+
+        @Override
+        public void updateInt(long value) throws IOException {
+            hashers[0].scalar().updateInt(value);
+            replicate();
+        }
+
+        @Override
+        public void updateNull() throws IOException {
+            hashers[0].scalar().updateNull();
+            replicate();
+        }
+
+        @Override
+        public void updateNull(IonType type) throws IOException {
+            hashers[0].scalar().updateNull(type);
+            replicate();
+        }
+
+        @Override
+        public void updateString(String value) throws IOException {
+            hashers[0].scalar().updateString(value);
+            replicate();
+        }
+
+        @Override
+        public void updateSymbol(String value) throws IOException {
+            hashers[0].scalar().updateSymbol(value);
+            replicate();
+        }
+
+        @Override
+        public void updateSymbolToken(SymbolToken value) throws IOException {
+            hashers[0].scalar().updateSymbolToken(value);
+            replicate();
+        }
+
+        @Override
+        public void updateTimestamp(Timestamp value) throws IOException {
+            hashers[0].scalar().updateTimestamp(value);
+            replicate();
+        }
+
+        private void replicate() throws IOException {
+            IonType type = hashers[0].lastScalarType();
+            byte[][] parts = hashers[0].lastScalarParts();
+            for (int i = 1; i < hashers.length; i++) {
+                hashers[i].updateScalarParts(type, parts);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
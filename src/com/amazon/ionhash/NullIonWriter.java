@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.IonWriter;
+import com.amazon.ion.SymbolTable;
+import com.amazon.ion.SymbolToken;
+import com.amazon.ion.Timestamp;
+import com.amazon.ion.system.IonSystemBuilder;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+
+/**
+ * IonWriter that discards everything written to it, for use as the delegate
+ * of an IonHashWriter that is only interested in the hash.  Only the container
+ * structure is tracked, so isInStruct() and unbalanced stepOut() calls behave
+ * as they would for a real writer.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class NullIonWriter implements IonWriter {
+    private final Deque<IonType> containerStack = new ArrayDeque<>();
+
+    @Override
+    public SymbolTable getSymbolTable() {
+        return SystemSymbolTableHolder.SYSTEM_SYMBOL_TABLE;
+    }
+
+    @Override
+    public void stepIn(IonType containerType) {
+        if (!IonType.isContainer(containerType)) {
+            throw new IllegalArgumentException("Cannot step into a " + containerType);
+        }
+        containerStack.push(containerType);
+    }
+
+    @Override
+    public void stepOut() {
+        if (containerStack.isEmpty()) {
+            throw new IllegalStateException("Cannot stepOut any further, already at top level");
+        }
+        containerStack.pop();
+    }
+
+    @Override
+    public boolean isInStruct() {
+        return containerStack.peek() == IonType.STRUCT;
+    }
+
+    @Override
+    public <T> T asFacet(Class<T> facetType) {
+        return null;
+    }
+
+    @Override public void flush() { }
+    @Override public void finish() { }
+    @Override public void close() { }
+    @Override public void setFieldName(String name) { }
+    @Override public void setFieldNameSymbol(SymbolToken name) { }
+    @Override public void setTypeAnnotations(String... annotations) { }
+    @Override public void setTypeAnnotationSymbols(SymbolToken... annotations) { }
+    @Override public void addTypeAnnotation(String annotation) { }
+    @Override @Deprecated public void writeValue(IonValue value) { }
+    @Override public void writeValue(IonReader reader) { }
+    @Override public void writeValues(IonReader reader) { }
+    @Override public void writeNull() { }
+    @Override public void writeNull(IonType type) { }
+    @Override public void writeBool(boolean value) { }
+    @Override public void writeInt(long value) { }
+    @Override public void writeInt(BigInteger value) { }
+    @Override public void writeFloat(double value) { }
+    @Override public void writeDecimal(BigDecimal value) { }
+    @Override public void writeTimestamp(Timestamp value) { }
+    @Override @Deprecated public void writeTimestampUTC(Date value) { }
+    @Override public void writeSymbol(String content) { }
+    @Override public void writeSymbolToken(SymbolToken content) { }
+    @Override public void writeString(String value) { }
+    @Override public void writeClob(byte[] value) { }
+    @Override public void writeClob(byte[] value, int start, int len) { }
+    @Override public void writeBlob(byte[] value) { }
+    @Override public void writeBlob(byte[] value, int start, int len) { }
+
+    // deferred until requested, as few callers ever ask for it
+    private static final class SystemSymbolTableHolder {
+        private static final SymbolTable SYSTEM_SYMBOL_TABLE =
+                IonSystemBuilder.standard().build().getSystemSymbolTable();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import static com.amazon.ionhash.HasherImpl.EMPTY_BYTE_ARRAY;
+
+/**
+ * IonHasher that, rather than hashing the bytes it is provided, writes them
+ * to an OutputStream or WritableByteChannel.
+ * <p/>
+ * When specified as the top-level hasher of an IonHashReader or IonHashWriter
+ * (see {@link IonHashReaderBuilder#withTopLevelHasher(IonHasher)}), the bytes
+ * written are exactly the bytes that would otherwise be provided to the hash
+ * function:  the escaped, marker-delimited representation of each top-level
+ * value, in which each struct's fields are represented by their (sorted)
+ * digests.  Hashing these bytes with the hash function specified by the
+ * IonHasherProvider produces the digest of each value.  The representation
+ * of each value begins with a begin marker and ends with the matching end
+ * marker, so consecutive values may be written to the same stream.
+ * <p/>
+ * Bytes are buffered, and written when the buffer is full or when digest()
+ * or flush() is called;  the underlying OutputStream or WritableByteChannel
+ * is neither flushed nor closed.  IOExceptions are rethrown as
+ * IonHashExceptions.
+ * <p/>
+ * This class is not thread-safe.
+ */
+public class OutputStreamIonHasher implements IonHasher {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer byteBuffer;
+    private int count;
+
+    public OutputStreamIonHasher(OutputStream out) {
+        this(out, null);
+    }
+
+    public OutputStreamIonHasher(WritableByteChannel channel) {
+        this(null, channel);
+    }
+
+    private OutputStreamIonHasher(OutputStream out, WritableByteChannel channel) {
+        if (out == null && channel == null) {
+            throw new NullPointerException("OutputStream or WritableByteChannel must not be null");
+        }
+
+        this.out = out;
+        this.channel = channel;
+        this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+        this.byteBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    @Override
+    public void update(byte[] bytes) {
+        if (bytes.length > buffer.length - count) {
+            flush();
+            if (bytes.length > buffer.length) {
+                write(bytes, bytes.length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    /**
+     * Writes any buffered bytes, and returns an empty array.
+     */
+    @Override
+    public byte[] digest() {
+        flush();
+        return EMPTY_BYTE_ARRAY;
+    }
+
+    /**
+     * Writes any buffered bytes.
+     */
+    public void flush() {
+        if (count > 0) {
+            write(buffer, count);
+            count = 0;
+        }
+    }
+
+    private void write(byte[] bytes, int len) {
+        try {
+            if (out != null) {
+                out.write(bytes, 0, len);
+            } else {
+                ByteBuffer bb = bytes == buffer ? byteBuffer : ByteBuffer.wrap(bytes);
+                // invoked via Buffer, whose methods are not overridden by ByteBuffer on Java 8
+                ((Buffer) bb).clear();
+                ((Buffer) bb).limit(len);
+                while (bb.hasRemaining()) {
+                    channel.write(bb);
+                }
+            }
+        } catch (IOException e) {
+            throw new IonHashException(e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonContainer;
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonValue;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the hash of a large IonValue using a ForkJoinPool.  Containers holding at
+ * least a threshold number of values ("large" containers) are hashed by their own tasks:
+ * <ul>
+ *   <li>the digest of a large struct field is computed independently (by hashing the
+ *       field's name followed by its value), and provided to the struct, which sorts
+ *       its field digests as usual</li>
+ *   <li>a large list or sexp element is encoded independently, and its bytes are
+ *       provided to the enclosing container's hasher in order</li>
+ * </ul>
+ * The tasks of a container's large children are forked before its other children are
+ * hashed, so they proceed concurrently;  the result is the same as that of IonValueHasher.
+ */
+final class ParallelIonValueHasher {
+    // beyond this depth, containers are hashed sequentially (bounding the depth of nested joins)
+    private static final int MAX_FORK_DEPTH = 64;
+
+    private final IonHasherProvider hasherProvider;
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    ParallelIonValueHasher(IonHasherProvider hasherProvider, ForkJoinPool pool, int threshold) {
+        if (hasherProvider == null) {
+            throw new NullPointerException("IonHasherProvider must not be null");
+        }
+        this.hasherProvider = hasherProvider;
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    byte[] digest(IonValue value) {
+        if (value.getType() == IonType.DATAGRAM) {
+            throw new IllegalArgumentException("Unable to hash a datagram;  hash each of its values instead");
+        }
+        Set<IonValue> large = largeContainers(value);
+        if (!large.contains(value)) {
+            return IonHash.digest(value, hasherProvider);
+        }
+        return pool.invoke(new ContainerTask((IonContainer) value, Role.TOP_LEVEL, large));
+    }
+
+    // returns the containers (within MAX_FORK_DEPTH) holding at least threshold values, by identity
+    private Set<IonValue> largeContainers(IonValue root) {
+        Set<IonValue> large = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (!IonType.isContainer(root.getType()) || root.isNullValue()) {
+            return large;
+        }
+        Deque<Weight> stack = new ArrayDeque<>();
+        stack.push(new Weight((IonContainer) root));
+        while (!stack.isEmpty()) {
+            Weight weight = stack.peek();
+            if (weight.children.hasNext()) {
+                IonValue child = weight.children.next();
+                if (IonType.isContainer(child.getType()) && !child.isNullValue()) {
+                    stack.push(new Weight((IonContainer) child));
+                } else {
+                    weight.values++;
+                }
+                continue;
+            }
+            stack.pop();
+            weight.values++;
+            if (weight.values >= threshold && stack.size() < MAX_FORK_DEPTH) {
+                large.add(weight.container);
+            }
+            if (!stack.isEmpty()) {
+                stack.peek().values += weight.values;
+            }
+        }
+        return large;
+    }
+
+    private static final class Weight {
+        private final IonContainer container;
+        private final Iterator<IonValue> children;
+        private long values;
+
+        private Weight(IonContainer container) {
+            this.container = container;
+            this.children = container.iterator();
+        }
+    }
+
+    private enum Role {
+        // the result is the digest of the value
+        TOP_LEVEL,
+        // the result is the digest of the field (its name and value)
+        FIELD,
+        // the result is the encoding of the value, to be hashed by its container
+        ELEMENT,
+    }
+
+    private final class ContainerTask extends RecursiveTask<byte[]> {
+        private final IonContainer container;
+        private final Role role;
+        private final Set<IonValue> large;
+
+        private ContainerTask(IonContainer container, Role role, Set<IonValue> large) {
+            this.container = container;
+            this.role = role;
+            this.large = large;
+        }
+
+        @Override
+        protected byte[] compute() {
+            HasherImpl hasher = role == Role.ELEMENT
+                    ? new HasherImpl(hasherProvider, null, null, null,
+                            new HasherImpl.EncodedValue(), new HasherImpl.SymbolHasher(), null)
+                    : new HasherImpl(hasherProvider);
+            try {
+                if (role == Role.FIELD) {
+                    hasher.updateFieldName(container.getFieldNameSymbol());
+                }
+                IonValueHasher valueHasher = new IonValueHasher(hasher);
+                boolean isStruct = container.getType() == IonType.STRUCT;
+
+                List<ForkJoinTask<byte[]>> tasks = new ArrayList<>();
+                for (IonValue child : container) {
+                    if (large.contains(child)) {
+                        tasks.add(new ContainerTask((IonContainer) child,
+                                isStruct ? Role.FIELD : Role.ELEMENT, large).fork());
+                    }
+                }
+
+                hasher.stepIn(container.getType(), null, container.getTypeAnnotationSymbols());
+                Iterator<ForkJoinTask<byte[]>> results = tasks.iterator();
+                for (IonValue child : container) {
+                    if (!large.contains(child)) {
+                        valueHasher.hash(child, child.getFieldNameSymbol());
+                    } else if (isStruct) {
+                        hasher.updateFieldDigest(results.next().join());
+                    } else {
+                        hasher.updateEncodedValue(results.next().join());
+                    }
+                }
+                hasher.stepOut();
+                return hasher.digest();
+            } finally {
+                try {
+                    hasher.close();
+                } catch (IOException e) {
+                    throw new IonHashException(e);
+                }
+            }
+        }
+    }
+}
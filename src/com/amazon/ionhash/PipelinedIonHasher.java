@@ -0,0 +1,302 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * IonHasher decorator that updates the decorated IonHasher on a separate thread,
+ * so a thread that encodes values for hashing need not wait for the hash function.
+ * <p/>
+ * Bytes are copied into fixed-size batches, which are handed to the digest thread
+ * through a bounded single-producer/single-consumer ring buffer;  spent batches are
+ * returned through a second ring for reuse.  digest() hands over the final partial
+ * batch, and waits for the digest thread to provide the digest.
+ * <p/>
+ * A thread that must wait (the digest thread for a request, or the calling thread for
+ * a free slot or a digest) spins briefly, then parks until the other thread unparks it.
+ * The digest thread is started when the first batch is full (values smaller than
+ * a batch are simply hashed by the calling thread), and stopped by close();  if
+ * no request arrives within an idle timeout, it stops, and the next request starts
+ * another, so an IonHasher that isn't closed doesn't retain a thread.
+ * <p/>
+ * This class is not thread-safe;  update(), digest(), and close() must be called
+ * by a single thread.
+ */
+final class PipelinedIonHasher implements IonHasher, Closeable {
+    private static final int BATCH_SIZE = 64 * 1024;
+    private static final int RING_CAPACITY = 16;
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // spinning only delays the other thread if there's just one processor
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 100 : 0;
+
+    // messages to the digest thread, in addition to batches of bytes (byte[]s)
+    private static final Object DIGEST = new Object();
+    private static final Object STOP = new Object();
+
+    private final IonHasher delegate;
+    private final long idleTimeoutNanos;
+    private final SpscRing<Object> requests = new SpscRing<>(RING_CAPACITY);
+    private final SpscRing<byte[]> spentBatches = new SpscRing<>(RING_CAPACITY);
+    private final SpscRing<byte[]> digests = new SpscRing<>(1);
+
+    // set while a digest thread consumes requests;  only the thread that sets it does so,
+    // so the rings have a single consumer even as digest threads stop and start
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Thread digestThread;
+    // the calling thread, while it waits for the digest thread
+    private volatile Thread waiter;
+    private volatile Throwable failure;
+
+    private byte[] batch;
+    private int count;
+
+    PipelinedIonHasher(IonHasher delegate) {
+        this(delegate, IDLE_TIMEOUT_NANOS);
+    }
+
+    PipelinedIonHasher(IonHasher delegate, long idleTimeoutNanos) {
+        if (delegate == null) {
+            throw new NullPointerException("IonHasher must not be null");
+        }
+        this.delegate = delegate;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+    }
+
+    @Override
+    public void update(byte[] bytes) {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (batch == null) {
+                batch = newBatch();
+            }
+            int len = Math.min(bytes.length - offset, BATCH_SIZE - count);
+            System.arraycopy(bytes, offset, batch, count, len);
+            count += len;
+            offset += len;
+            if (count == BATCH_SIZE) {
+                send(batch);
+                batch = null;
+                count = 0;
+            }
+        }
+    }
+
+    @Override
+    public byte[] digest() {
+        if (digestThread == null) {
+            // fewer than BATCH_SIZE bytes have been provided;  not worth handing over
+            if (count > 0) {
+                delegate.update(Arrays.copyOf(batch, count));
+                count = 0;
+            }
+            return delegate.digest();
+        }
+        if (count > 0) {
+            // IonHasher.update() has no length parameter, so a partial batch is sent as a copy
+            send(Arrays.copyOf(batch, count));
+            count = 0;
+        }
+        send(DIGEST);
+
+        waiter = Thread.currentThread();
+        try {
+            byte[] digest;
+            int spins = 0;
+            while ((digest = digests.poll()) == null) {
+                checkFailure();
+                if (spins < SPINS) {
+                    spins++;
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+            return digest;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (running.get() && failure == null) {
+            send(STOP);
+        }
+    }
+
+    // whether a digest thread is consuming requests
+    boolean isDigestThreadRunning() {
+        return running.get();
+    }
+
+    private byte[] newBatch() {
+        byte[] spent = spentBatches.poll();
+        return spent != null ? spent : new byte[BATCH_SIZE];
+    }
+
+    private void send(Object request) {
+        if (!requests.offer(request)) {
+            waiter = Thread.currentThread();
+            try {
+                int spins = 0;
+                while (!requests.offer(request)) {
+                    checkFailure();
+                    if (spins < SPINS) {
+                        spins++;
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+            } finally {
+                waiter = null;
+            }
+        }
+
+        if (running.compareAndSet(false, true)) {
+            Thread thread = new Thread(this::digestLoop, "ion-hash-digest");
+            thread.setDaemon(true);
+            digestThread = thread;
+            thread.start();
+        } else {
+            LockSupport.unpark(digestThread);
+        }
+    }
+
+    private void checkFailure() {
+        Throwable t = failure;
+        if (t != null) {
+            throw new IonHashException("Unable to update the hash", t);
+        }
+    }
+
+    private void digestLoop() {
+        try {
+            Object request;
+            while ((request = takeRequest()) != null) {
+                if (request == STOP) {
+                    running.set(false);
+                    return;
+                } else if (request == DIGEST) {
+                    digests.offer(delegate.digest());
+                    unparkWaiter();
+                } else {
+                    byte[] bytes = (byte[]) request;
+                    delegate.update(bytes);
+                    if (bytes.length == BATCH_SIZE) {
+                        spentBatches.offer(bytes);
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+            unparkWaiter();
+        }
+    }
+
+    // returns the next request, or null if none arrived within the idle timeout,
+    // in which case this thread no longer consumes requests
+    private Object takeRequest() {
+        int spins = 0;
+        long deadline = System.nanoTime() + idleTimeoutNanos;
+        while (true) {
+            Object request = requests.poll();
+            if (request != null) {
+                // a slot is free
+                unparkWaiter();
+                return request;
+            }
+            if (spins < SPINS) {
+                spins++;
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                continue;
+            }
+
+            running.set(false);
+            // a request may have been sent before the calling thread saw that this thread stopped;
+            // if so, this thread continues, unless the calling thread started another
+            if (requests.isEmpty() || !running.compareAndSet(false, true)) {
+                return null;
+            }
+            digestThread = Thread.currentThread();
+            deadline = System.nanoTime() + idleTimeoutNanos;
+        }
+    }
+
+    private void unparkWaiter() {
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Bounded, lock-free ring buffer for exactly one producer thread and one consumer thread.
+     * The producer publishes an element by advancing the tail after storing it;  the consumer
+     * releases a slot by advancing the head after clearing it.  The head and tail are advanced
+     * with volatile writes, so a thread that then checks whether the other is parked (or
+     * running) can't miss it.
+     */
+    static final class SpscRing<E> {
+        private final Object[] elements;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+
+        SpscRing(int capacity) {
+            int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+            elements = new Object[size];
+            mask = size - 1;
+        }
+
+        // returns false if the ring is full
+        boolean offer(E element) {
+            long t = tail.get();
+            if (t - head.get() == elements.length) {
+                return false;
+            }
+            elements[(int) t & mask] = element;
+            tail.set(t + 1);
+            return true;
+        }
+
+        // returns null if the ring is empty
+        @SuppressWarnings("unchecked")
+        E poll() {
+            long h = head.get();
+            if (h == tail.get()) {
+                return null;
+            }
+            int index = (int) h & mask;
+            E element = (E) elements[index];
+            elements[index] = null;
+            head.set(h + 1);
+            return element;
+        }
+
+        boolean isEmpty() {
+            return head.get() == tail.get();
+        }
+    }
+}
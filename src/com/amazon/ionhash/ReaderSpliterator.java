@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonType;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the top-level values of an IonHashReader;  not splittable, as an
+ * IonReader can only be read sequentially.
+ */
+final class ReaderSpliterator implements Spliterator<TopLevelDigest> {
+    private final IonHashReader hashReader;
+    private final long firstIndex;
+    private final long[] offsets;
+
+    private boolean started;
+    private IonType type;
+    private long index;
+
+    /**
+     * @param firstIndex the index of the reader's first value
+     * @param offsets the offsets of the reader's values, or null if unknown
+     */
+    ReaderSpliterator(IonHashReader hashReader, long firstIndex, long[] offsets) {
+        this.hashReader = hashReader;
+        this.firstIndex = firstIndex;
+        this.offsets = offsets;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super TopLevelDigest> action) {
+        if (!started) {
+            started = true;
+            type = hashReader.next();
+        }
+        if (type == null) {
+            return false;
+        }
+        // the digest of a value is available once the reader has moved past it
+        IonType nextType = hashReader.next();
+        byte[] digest = hashReader.digest();
+        long offset = offsets == null ? -1 : offsets[(int) index];
+        action.accept(new TopLevelDigest(type, digest, firstIndex + index, offset));
+        type = nextType;
+        index++;
+        return true;
+    }
+
+    @Override
+    public Spliterator<TopLevelDigest> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return offsets == null ? Long.MAX_VALUE : offsets.length - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
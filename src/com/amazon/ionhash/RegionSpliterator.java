@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonReader;
+import com.amazon.ion.system.IonReaderBuilder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the top-level values of a binary Ion file, which splits on
+ * the region boundaries found by a BinaryIonScanner.
+ * <p/>
+ * The root spliterator owns the scanner;  trySplit() scans a batch of regions
+ * (of increasing size, as Spliterators.AbstractSpliterator does) and returns a
+ * spliterator over them, which may in turn be split in half.  Values are hashed
+ * as they are traversed, so hashing happens on the threads that traverse the
+ * split-off spliterators.
+ */
+final class RegionSpliterator implements Spliterator<TopLevelDigest> {
+    private static final int BATCH_UNIT = 1;
+    private static final int MAX_BATCH = 64;
+
+    private final FileChannel channel;
+    private final IonHasherProvider hasherProvider;
+
+    // for the root spliterator, the source of regions;  otherwise null
+    private final BinaryIonScanner scanner;
+    private boolean scanned;
+    private int batch;
+
+    // for split-off spliterators, the regions to be traversed
+    private final BinaryIonScanner.Region[] regions;
+    private int lo;
+    private final int hi;
+
+    // the region currently being traversed
+    private IonReader reader;
+    private IonHashReader hashReader;
+    private ReaderSpliterator values;
+
+    RegionSpliterator(FileChannel channel, IonHasherProvider hasherProvider, BinaryIonScanner scanner) {
+        this(channel, hasherProvider, scanner, null, 0, 0);
+    }
+
+    private RegionSpliterator(FileChannel channel,
+                              IonHasherProvider hasherProvider,
+                              BinaryIonScanner scanner,
+                              BinaryIonScanner.Region[] regions,
+                              int lo,
+                              int hi) {
+        this.channel = channel;
+        this.hasherProvider = hasherProvider;
+        this.scanner = scanner;
+        this.regions = regions;
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super TopLevelDigest> action) {
+        while (true) {
+            if (values != null) {
+                if (values.tryAdvance(action)) {
+                    return true;
+                }
+                closeRegion();
+            }
+            BinaryIonScanner.Region region = nextRegion();
+            if (region == null) {
+                return false;
+            }
+            openRegion(region);
+        }
+    }
+
+    @Override
+    public Spliterator<TopLevelDigest> trySplit() {
+        if (scanner == null) {
+            if (hi - lo < 2) {
+                return null;
+            }
+            int mid = (lo + hi) >>> 1;
+            RegionSpliterator prefix = new RegionSpliterator(channel, hasherProvider, null, regions, lo, mid);
+            lo = mid;
+            return prefix;
+        }
+        if (values != null) {
+            // the prefix must precede the region being traversed
+            return null;
+        }
+
+        int n = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+        List<BinaryIonScanner.Region> batchRegions = new ArrayList<>(n);
+        BinaryIonScanner.Region region;
+        while (batchRegions.size() < n && (region = scan()) != null) {
+            batchRegions.add(region);
+        }
+        if (batchRegions.isEmpty()) {
+            return null;
+        }
+        batch = batchRegions.size();
+        BinaryIonScanner.Region[] array = batchRegions.toArray(new BinaryIonScanner.Region[0]);
+        return new RegionSpliterator(channel, hasherProvider, null, array, 0, array.length);
+    }
+
+    @Override
+    public long estimateSize() {
+        if (scanner != null) {
+            return scanned ? 0 : Long.MAX_VALUE;
+        }
+        long size = values == null ? 0 : values.estimateSize();
+        for (int i = lo; i < hi; i++) {
+            size += regions[i].valueOffsets.length;
+        }
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    private BinaryIonScanner.Region scan() {
+        if (scanned) {
+            return null;
+        }
+        try {
+            BinaryIonScanner.Region region = scanner.nextRegion();
+            scanned = region == null;
+            return region;
+        } catch (IOException e) {
+            throw new IonHashException(e);
+        }
+    }
+
+    private BinaryIonScanner.Region nextRegion() {
+        if (scanner != null) {
+            return scan();
+        }
+        return lo < hi ? regions[lo++] : null;
+    }
+
+    private void openRegion(BinaryIonScanner.Region region) {
+        try {
+            reader = IonReaderBuilder.standard().build(region.read(channel));
+        } catch (IOException e) {
+            throw new IonHashException(e);
+        }
+        hashReader = IonHashReaderBuilder.standard()
+                .withReader(reader)
+                .withHasherProvider(hasherProvider)
+                .build();
+        values = new ReaderSpliterator(hashReader, region.firstIndex, region.valueOffsets);
+    }
+
+    private void closeRegion() {
+        values = null;
+        try {
+            hashReader.close();
+            reader.close();
+        } catch (IOException e) {
+            throw new IonHashException(e);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonType;
+import com.amazon.ion.OffsetSpan;
+import com.amazon.ion.SpanProvider;
+import com.amazon.ion.SymbolToken;
+import com.amazon.ion.system.IonReaderBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Hashes the top-level values of a binary Ion file, periodically saving a
+ * {@link HashCheckpoint} from which hashing may be resumed after a failure.
+ * <p/>
+ * Checkpoints are saved at value boundaries (between top-level values, or between
+ * the values of a container).  To resume within a top-level value, the reader is
+ * provided with the symbol table context, followed by a header for each container
+ * in progress (whose length is that of the container's remaining bytes), followed
+ * by the remainder of the top-level value;  the reader steps into the containers,
+ * and the restored HasherImpl (which is already within them) hashes the rest.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class ResumableDigester {
+    // the target size of the regions of the file read by each IonReader
+    private static final long REGION_SIZE = 1024 * 1024;
+    // the field name of the synthetic container headers within structs;  it isn't hashed
+    private static final int HEADER_FIELD_NAME_SID = 4;
+
+    private static final int BINARY_TYPE_LIST = 0xB;
+    private static final int BINARY_TYPE_SEXP = 0xC;
+    private static final int BINARY_TYPE_STRUCT = 0xD;
+    private static final int L_VARUINT = 0xE;
+
+    private final FileChannel channel;
+    private final Path checkpointFile;
+    private final long checkpointInterval;
+    private final Consumer<TopLevelDigest> digestConsumer;
+    private final HasherImpl hasher;
+
+    // the containers of the top-level value in progress, and the offsets at which they end
+    private IonType[] types = new IonType[16];
+    private long[] ends = new long[16];
+    private int depth;
+
+    private byte[] context;
+    private long index;
+    private long valueOffset;
+    private long lastCheckpoint;
+
+    ResumableDigester(FileChannel channel,
+                      IonHasherProvider hasherProvider,
+                      Path checkpointFile,
+                      long checkpointInterval,
+                      Consumer<TopLevelDigest> digestConsumer) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("checkpointInterval must be positive");
+        }
+        this.channel = channel;
+        this.checkpointFile = checkpointFile;
+        this.checkpointInterval = checkpointInterval;
+        this.digestConsumer = digestConsumer;
+        this.hasher = new HasherImpl(hasherProvider);
+        if (!(hasher.topLevelHasher() instanceof StatefulIonHasher)) {
+            throw new UnsupportedOperationException(
+                    hasher.topLevelHasher().getClass().getName() + " does not support saving its state");
+        }
+    }
+
+    void run() throws IOException {
+        long position = 0;
+        if (Files.exists(checkpointFile)) {
+            HashCheckpoint checkpoint = HashCheckpoint.readFrom(checkpointFile);
+            if (checkpoint.offset > channel.size()) {
+                throw new IonHashException("Checkpoint offset " + checkpoint.offset + " is beyond the end of the file");
+            }
+            context = checkpoint.context;
+            index = checkpoint.index;
+            position = lastCheckpoint = checkpoint.offset;
+            if (checkpoint.isWithinValue()) {
+                resume(checkpoint);
+                position = checkpoint.ends[0];
+            }
+        }
+
+        BinaryIonScanner scanner = new BinaryIonScanner(channel, REGION_SIZE, position, index, context);
+        for (BinaryIonScanner.Region region; (region = scanner.nextRegion()) != null; ) {
+            context = region.context;
+            long base = region.start - context.length;
+            try (IonReader reader = newReader(context, region.start, region.end)) {
+                SpanProvider spanProvider = reader.asFacet(SpanProvider.class);
+                for (long offset : region.valueOffsets) {
+                    valueOffset = offset;
+                    IonType type = reader.next();
+                    long end = finishOffset(spanProvider, base);
+                    if (IonType.isContainer(type) && !reader.isNullValue()) {
+                        stepIn(reader, type, null, end);
+                        hashContainers(reader, spanProvider, base);
+                    } else {
+                        IonHashReaderImpl.hashScalar(hasher, reader, type, null);
+                    }
+                    valueCompleted(type, end);
+                }
+            }
+        }
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    // hashes the remainder of the top-level value in progress at the checkpoint
+    private void resume(HashCheckpoint checkpoint) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint.hasherState))) {
+            hasher.readState(in);
+        }
+        valueOffset = checkpoint.valueOffset;
+
+        byte[] headers = containerHeaders(checkpoint.types, checkpoint.ends, checkpoint.offset);
+        byte[] prefix = Arrays.copyOf(context, context.length + headers.length);
+        System.arraycopy(headers, 0, prefix, context.length, headers.length);
+        long base = checkpoint.offset - prefix.length;
+        try (IonReader reader = newReader(prefix, checkpoint.offset, checkpoint.ends[0])) {
+            for (int i = 0; i < checkpoint.types.length; i++) {
+                if (reader.next() != checkpoint.types[i]) {
+                    throw new IonHashException("Unable to resume from checkpoint at offset " + checkpoint.offset);
+                }
+                reader.stepIn();
+                push(checkpoint.types[i], checkpoint.ends[i]);
+            }
+            hashContainers(reader, reader.asFacet(SpanProvider.class), base);
+        }
+        valueCompleted(checkpoint.types[0], checkpoint.ends[0]);
+    }
+
+    // hashes the remainder of the containers stepped into, stepping out of each of them;  offsets
+    // within the reader's input plus the specified base are the corresponding offsets within the file
+    private void hashContainers(IonReader reader, SpanProvider spanProvider, long base) throws IOException {
+        while (depth > 0) {
+            IonType type = reader.next();
+            if (type == null) {
+                reader.stepOut();
+                hasher.stepOut();
+                depth--;
+                if (depth > 0) {
+                    childCompleted(ends[depth]);
+                }
+                continue;
+            }
+
+            SymbolToken fieldName = types[depth - 1] == IonType.STRUCT ? reader.getFieldNameSymbol() : null;
+            long end = finishOffset(spanProvider, base);
+            if (IonType.isContainer(type) && !reader.isNullValue()) {
+                stepIn(reader, type, fieldName, end);
+            } else {
+                IonHashReaderImpl.hashScalar(hasher, reader, type, fieldName);
+                childCompleted(end);
+            }
+        }
+    }
+
+    private void stepIn(IonReader reader, IonType type, SymbolToken fieldName, long end) {
+        hasher.stepIn(type, fieldName, reader.getTypeAnnotationSymbols());
+        reader.stepIn();
+        push(type, end);
+    }
+
+    private void push(IonType type, long end) {
+        if (depth == types.length) {
+            types = Arrays.copyOf(types, depth * 2);
+            ends = Arrays.copyOf(ends, depth * 2);
+        }
+        types[depth] = type;
+        ends[depth] = end;
+        depth++;
+    }
+
+    private void childCompleted(long end) throws IOException {
+        if (end - lastCheckpoint >= checkpointInterval) {
+            checkpoint(end);
+        }
+    }
+
+    private void valueCompleted(IonType type, long end) throws IOException {
+        digestConsumer.accept(new TopLevelDigest(type, hasher.digest(), index, valueOffset));
+        index++;
+        if (end - lastCheckpoint >= checkpointInterval) {
+            checkpoint(end);
+        }
+    }
+
+    private void checkpoint(long offset) throws IOException {
+        ByteArrayOutputStream hasherState = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(hasherState)) {
+            hasher.writeState(out);
+        }
+        new HashCheckpoint(offset, index, depth > 0 ? valueOffset : -1, context,
+                Arrays.copyOf(types, depth), Arrays.copyOf(ends, depth), hasherState.toByteArray())
+                .writeTo(checkpointFile);
+        lastCheckpoint = offset;
+    }
+
+    private IonReader newReader(byte[] prefix, long start, long end) {
+        InputStream in = new SequenceInputStream(new ByteArrayInputStream(prefix), new ChannelInputStream(channel, start, end));
+        IonReader reader = IonReaderBuilder.standard().build(in);
+        if (reader.asFacet(SpanProvider.class) == null) {
+            throw new IonHashException("Checkpoints require a reader that supports the SpanProvider facet");
+        }
+        return reader;
+    }
+
+    private static long finishOffset(SpanProvider spanProvider, long base) {
+        return ((OffsetSpan) spanProvider.currentSpan()).getFinishOffset() + base;
+    }
+
+    // returns a header for each of the specified containers (outermost first), each of which
+    // contains the next one, followed by the bytes of the file from offset to the container's end
+    static byte[] containerHeaders(IonType[] types, long[] ends, long offset) {
+        byte[] headers = new byte[0];
+        for (int i = types.length - 1; i >= 0; i--) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (i > 0 && types[i - 1] == IonType.STRUCT) {
+                writeVarUInt(out, HEADER_FIELD_NAME_SID);
+            }
+            out.write(binaryType(types[i]) << 4 | L_VARUINT);
+            writeVarUInt(out, headers.length + ends[i] - offset);
+            out.write(headers, 0, headers.length);
+            headers = out.toByteArray();
+        }
+        return headers;
+    }
+
+    private static int binaryType(IonType type) {
+        switch (type) {
+            case LIST:
+                return BINARY_TYPE_LIST;
+            case SEXP:
+                return BINARY_TYPE_SEXP;
+            case STRUCT:
+                return BINARY_TYPE_STRUCT;
+            default:
+                throw new IonHashException("Unexpected container type " + type);
+        }
+    }
+
+    private static void writeVarUInt(ByteArrayOutputStream out, long value) {
+        int shift = 63 - Long.numberOfLeadingZeros(value | 1);
+        for (int i = shift / 7 * 7; i > 0; i -= 7) {
+            out.write((int) (value >>> i) & 0x7F);
+        }
+        out.write((int) value & 0x7F | 0x80);
+    }
+
+    /**
+     * Reads the bytes of a channel from start to end, without changing the channel's position.
+     */
+    private static final class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        private ChannelInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(bytes, off, (int) Math.min(len, end - position)), position);
+            if (n < 0) {
+                throw new IonHashException("Unexpected end of file at offset " + position);
+            }
+            position += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Pure-Java implementation of SHA-256 (FIPS 180-4), whose internal state may be
+ * written and read (unlike that of a MessageDigest), so that a hash in progress
+ * can be resumed by another process.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class Sha256 {
+    static final int DIGEST_LENGTH = 32;
+    static final int BLOCK_LENGTH = 64;
+
+    static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2,
+    };
+
+    static final int[] INITIAL_STATE = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19,
+    };
+
+    private final int[] state = new int[8];
+    // the incomplete block, as big-endian words;  the bytes following those buffered are zero
+    private final int[] block = new int[16];
+    // the message schedule
+    private final int[] w = new int[64];
+    // the number of bytes hashed since the last reset;  the low six bits are the number of buffered bytes
+    private long byteCount;
+
+    Sha256() {
+        reset();
+    }
+
+    void reset() {
+        System.arraycopy(INITIAL_STATE, 0, state, 0, state.length);
+        Arrays.fill(block, 0);
+        byteCount = 0;
+    }
+
+    void update(byte[] bytes, int offset, int length) {
+        int buffered = (int) byteCount & (BLOCK_LENGTH - 1);
+        byteCount += length;
+        if (buffered > 0 || length < BLOCK_LENGTH) {
+            // most updates are a few bytes (e.g., a marker or a type qualifier), which are
+            // added to the words of the block directly, rather than buffered as bytes
+            int n = Math.min(length, BLOCK_LENGTH - buffered);
+            int[] block = this.block;
+            for (int i = 0; i < n; i++) {
+                int position = buffered + i;
+                block[position >>> 2] |= (bytes[offset + i] & 0xFF) << ((~position & 3) << 3);
+            }
+            if (buffered + n < BLOCK_LENGTH) {
+                return;
+            }
+            offset += n;
+            length -= n;
+            compressBlock();
+        }
+        while (length >= BLOCK_LENGTH) {
+            for (int i = 0; i < 16; i++) {
+                int j = offset + i * 4;
+                w[i] = (bytes[j] << 24) | ((bytes[j + 1] & 0xFF) << 16) | ((bytes[j + 2] & 0xFF) << 8) | (bytes[j + 3] & 0xFF);
+            }
+            compress();
+            offset += BLOCK_LENGTH;
+            length -= BLOCK_LENGTH;
+        }
+        for (int i = 0; i < length; i++) {
+            block[i >>> 2] |= (bytes[offset + i] & 0xFF) << ((~i & 3) << 3);
+        }
+    }
+
+    /**
+     * Returns the hash of the bytes provided since the last reset, and resets.
+     * The padding is added to the words of the block in place, so a message
+     * shorter than 56 bytes is finished with a single compression.
+     */
+    byte[] digest() {
+        long bitCount = byteCount << 3;
+        int buffered = (int) byteCount & (BLOCK_LENGTH - 1);
+        block[buffered >>> 2] |= 0x80 << ((~buffered & 3) << 3);
+        if (buffered >= BLOCK_LENGTH - 8) {
+            compressBlock();
+        }
+        block[14] = (int) (bitCount >>> 32);
+        block[15] = (int) bitCount;
+        compressBlock();
+
+        byte[] digest = new byte[DIGEST_LENGTH];
+        for (int i = 0; i < 8; i++) {
+            int h = state[i];
+            digest[i * 4] = (byte) (h >>> 24);
+            digest[i * 4 + 1] = (byte) (h >>> 16);
+            digest[i * 4 + 2] = (byte) (h >>> 8);
+            digest[i * 4 + 3] = (byte) h;
+        }
+        System.arraycopy(INITIAL_STATE, 0, state, 0, state.length);
+        byteCount = 0;
+        return digest;
+    }
+
+    Sha256 copy() {
+        Sha256 copy = new Sha256();
+        System.arraycopy(state, 0, copy.state, 0, state.length);
+        System.arraycopy(block, 0, copy.block, 0, block.length);
+        copy.byteCount = byteCount;
+        return copy;
+    }
+
+    /**
+     * Writes the state of the hash in progress:  the chaining values, the number of
+     * bytes hashed, and the bytes of the incomplete block (at most 63).
+     */
+    void writeState(DataOutput out) throws IOException {
+        for (int h : state) {
+            out.writeInt(h);
+        }
+        out.writeLong(byteCount);
+        int buffered = (int) byteCount & (BLOCK_LENGTH - 1);
+        for (int i = 0; i < buffered; i++) {
+            out.writeByte(block[i >>> 2] >>> ((~i & 3) << 3));
+        }
+    }
+
+    /**
+     * Replaces the state of this object with one written by writeState().
+     */
+    void readState(DataInput in) throws IOException {
+        for (int i = 0; i < state.length; i++) {
+            state[i] = in.readInt();
+        }
+        long count = in.readLong();
+        if (count < 0) {
+            throw new IonHashException("Invalid SHA-256 state");
+        }
+        byteCount = count;
+        Arrays.fill(block, 0);
+        int buffered = (int) count & (BLOCK_LENGTH - 1);
+        for (int i = 0; i < buffered; i++) {
+            block[i >>> 2] |= in.readUnsignedByte() << ((~i & 3) << 3);
+        }
+    }
+
+    // compresses the block, and clears it
+    private void compressBlock() {
+        System.arraycopy(block, 0, w, 0, 16);
+        Arrays.fill(block, 0);
+        compress();
+    }
+
+    // compresses the block whose words are the first 16 of the message schedule
+    private void compress() {
+        int[] w = this.w;
+        for (int i = 16; i < 64; i++) {
+            w[i] = sigma1(w[i - 2]) + w[i - 7] + sigma0(w[i - 15]) + w[i - 16];
+        }
+
+        int a = state[0];
+        int b = state[1];
+        int c = state[2];
+        int d = state[3];
+        int e = state[4];
+        int f = state[5];
+        int g = state[6];
+        int h = state[7];
+        // eight rounds per iteration, so the working variables are renamed rather than shifted
+        for (int i = 0; i < 64; i += 8) {
+            h += (Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25))
+                    + (g ^ (e & (f ^ g))) + K[i] + w[i];
+            d += h;
+            h += (Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22))
+                    + ((a & b) | (c & (a | b)));
+            g += (Integer.rotateRight(d, 6) ^ Integer.rotateRight(d, 11) ^ Integer.rotateRight(d, 25))
+                    + (f ^ (d & (e ^ f))) + K[i + 1] + w[i + 1];
+            c += g;
+            g += (Integer.rotateRight(h, 2) ^ Integer.rotateRight(h, 13) ^ Integer.rotateRight(h, 22))
+                    + ((h & a) | (b & (h | a)));
+            f += (Integer.rotateRight(c, 6) ^ Integer.rotateRight(c, 11) ^ Integer.rotateRight(c, 25))
+                    + (e ^ (c & (d ^ e))) + K[i + 2] + w[i + 2];
+            b += f;
+            f += (Integer.rotateRight(g, 2) ^ Integer.rotateRight(g, 13) ^ Integer.rotateRight(g, 22))
+                    + ((g & h) | (a & (g | h)));
+            e += (Integer.rotateRight(b, 6) ^ Integer.rotateRight(b, 11) ^ Integer.rotateRight(b, 25))
+                    + (d ^ (b & (c ^ d))) + K[i + 3] + w[i + 3];
+            a += e;
+            e += (Integer.rotateRight(f, 2) ^ Integer.rotateRight(f, 13) ^ Integer.rotateRight(f, 22))
+                    + ((f & g) | (h & (f | g)));
+            d += (Integer.rotateRight(a, 6) ^ Integer.rotateRight(a, 11) ^ Integer.rotateRight(a, 25))
+                    + (c ^ (a & (b ^ c))) + K[i + 4] + w[i + 4];
+            h += d;
+            d += (Integer.rotateRight(e, 2) ^ Integer.rotateRight(e, 13) ^ Integer.rotateRight(e, 22))
+                    + ((e & f) | (g & (e | f)));
+            c += (Integer.rotateRight(h, 6) ^ Integer.rotateRight(h, 11) ^ Integer.rotateRight(h, 25))
+                    + (b ^ (h & (a ^ b))) + K[i + 5] + w[i + 5];
+            g += c;
+            c += (Integer.rotateRight(d, 2) ^ Integer.rotateRight(d, 13) ^ Integer.rotateRight(d, 22))
+                    + ((d & e) | (f & (d | e)));
+            b += (Integer.rotateRight(g, 6) ^ Integer.rotateRight(g, 11) ^ Integer.rotateRight(g, 25))
+                    + (a ^ (g & (h ^ a))) + K[i + 6] + w[i + 6];
+            f += b;
+            b += (Integer.rotateRight(c, 2) ^ Integer.rotateRight(c, 13) ^ Integer.rotateRight(c, 22))
+                    + ((c & d) | (e & (c | d)));
+            a += (Integer.rotateRight(f, 6) ^ Integer.rotateRight(f, 11) ^ Integer.rotateRight(f, 25))
+                    + (h ^ (f & (g ^ h))) + K[i + 7] + w[i + 7];
+            e += a;
+            a += (Integer.rotateRight(b, 2) ^ Integer.rotateRight(b, 13) ^ Integer.rotateRight(b, 22))
+                    + ((b & c) | (d & (b | c)));
+        }
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+        state[5] += f;
+        state[6] += g;
+        state[7] += h;
+    }
+
+    private static int sigma0(int x) {
+        return Integer.rotateRight(x, 7) ^ Integer.rotateRight(x, 18) ^ (x >>> 3);
+    }
+
+    private static int sigma1(int x) {
+        return Integer.rotateRight(x, 17) ^ Integer.rotateRight(x, 19) ^ (x >>> 10);
+    }
+}
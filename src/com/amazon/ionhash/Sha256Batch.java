@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+/**
+ * Computes the SHA-256 digests of many short messages (each of which fits, with its
+ * padding, in a single block) at once.  Each message is assigned a lane, and the lanes'
+ * message schedules and working variables are stored in arrays indexed by lane, so each
+ * step of the compression function is a loop over the lanes;  such loops have no
+ * dependencies between iterations, and the JIT may compile them to SIMD instructions.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class Sha256Batch {
+    // the longest message that fits in a single block with its padding
+    static final int MAX_MESSAGE_LENGTH = Sha256.BLOCK_LENGTH - 9;
+    // the maximum number of messages digested by each pass over the lanes
+    static final int MAX_LANES = 256;
+
+    private static final int[] K = Sha256.K;
+    private static final int[] INITIAL_STATE = Sha256.INITIAL_STATE;
+
+    // w[i * lanes + l] is word i of the message schedule of lane l
+    private final int[][] w = new int[64][MAX_LANES];
+    private final int[][] vars = new int[8][MAX_LANES];
+    private final int[] t1 = new int[MAX_LANES];
+
+    /**
+     * Computes the digests of messages[0] through messages[count - 1], storing each in
+     * the corresponding element of digests.
+     *
+     * @throws IllegalArgumentException if a message is longer than MAX_MESSAGE_LENGTH
+     */
+    void digest(byte[][] messages, int count, byte[][] digests) {
+        for (int first = 0; first < count; first += MAX_LANES) {
+            int lanes = Math.min(MAX_LANES, count - first);
+            for (int l = 0; l < lanes; l++) {
+                load(messages[first + l], l, lanes);
+            }
+            compress(lanes);
+            for (int l = 0; l < lanes; l++) {
+                digests[first + l] = lane(l);
+            }
+        }
+    }
+
+    // sets the lane's message schedule to the padded message
+    private void load(byte[] message, int lane, int lanes) {
+        int length = message.length;
+        if (length > MAX_MESSAGE_LENGTH) {
+            throw new IllegalArgumentException("Message is too long for a single block");
+        }
+        int[][] w = this.w;
+        int words = length >>> 2;
+        for (int i = 0; i < words; i++) {
+            int j = i * 4;
+            w[i][lane] = (message[j] << 24) | ((message[j + 1] & 0xFF) << 16)
+                    | ((message[j + 2] & 0xFF) << 8) | (message[j + 3] & 0xFF);
+        }
+        // the last bytes of the message (if any) and the first byte of the padding
+        int word = 0x80 << ((3 - (length & 3)) << 3);
+        for (int j = words * 4; j < length; j++) {
+            word |= (message[j] & 0xFF) << ((3 - (j & 3)) << 3);
+        }
+        w[words][lane] = word;
+        for (int i = words + 1; i < 14; i++) {
+            w[i][lane] = 0;
+        }
+        w[14][lane] = 0;
+        w[15][lane] = length << 3;
+    }
+
+    private void compress(int lanes) {
+        int[][] w = this.w;
+        for (int i = 16; i < 64; i++) {
+            int[] wi = w[i];
+            int[] w2 = w[i - 2];
+            int[] w7 = w[i - 7];
+            int[] w15 = w[i - 15];
+            int[] w16 = w[i - 16];
+            for (int l = 0; l < lanes; l++) {
+                int x = w15[l];
+                int y = w2[l];
+                int s0 = Integer.rotateRight(x, 7) ^ Integer.rotateRight(x, 18) ^ (x >>> 3);
+                int s1 = Integer.rotateRight(y, 17) ^ Integer.rotateRight(y, 19) ^ (y >>> 10);
+                wi[l] = w16[l] + s0 + w7[l] + s1;
+            }
+        }
+
+        int[] a = vars[0];
+        int[] b = vars[1];
+        int[] c = vars[2];
+        int[] d = vars[3];
+        int[] e = vars[4];
+        int[] f = vars[5];
+        int[] g = vars[6];
+        int[] h = vars[7];
+        for (int i = 0; i < 8; i++) {
+            int[] v = vars[i];
+            for (int l = 0; l < lanes; l++) {
+                v[l] = INITIAL_STATE[i];
+            }
+        }
+        int[] t1 = this.t1;
+        for (int i = 0; i < 64; i++) {
+            int k = K[i];
+            int[] wi = w[i];
+            for (int l = 0; l < lanes; l++) {
+                int x = e[l];
+                int s1 = Integer.rotateRight(x, 6) ^ Integer.rotateRight(x, 11) ^ Integer.rotateRight(x, 25);
+                t1[l] = h[l] + s1 + (g[l] ^ (x & (f[l] ^ g[l]))) + k + wi[l];
+            }
+            // the new a replaces h, and the new e replaces d
+            for (int l = 0; l < lanes; l++) {
+                int x = a[l];
+                int s0 = Integer.rotateRight(x, 2) ^ Integer.rotateRight(x, 13) ^ Integer.rotateRight(x, 22);
+                h[l] = t1[l] + s0 + ((x & b[l]) | (c[l] & (x | b[l])));
+                d[l] += t1[l];
+            }
+            int[] t = h;
+            h = g;
+            g = f;
+            f = e;
+            e = d;
+            d = c;
+            c = b;
+            b = a;
+            a = t;
+        }
+        // after 64 rounds, the working variables are back in vars[0] through vars[7]
+        for (int i = 0; i < 8; i++) {
+            int[] v = vars[i];
+            for (int l = 0; l < lanes; l++) {
+                v[l] += INITIAL_STATE[i];
+            }
+        }
+    }
+
+    private byte[] lane(int lane) {
+        byte[] digest = new byte[Sha256.DIGEST_LENGTH];
+        for (int i = 0; i < 8; i++) {
+            int s = vars[i][lane];
+            digest[i * 4] = (byte) (s >>> 24);
+            digest[i * 4 + 1] = (byte) (s >>> 16);
+            digest[i * 4 + 2] = (byte) (s >>> 8);
+            digest[i * 4 + 3] = (byte) s;
+        }
+        return digest;
+    }
+}
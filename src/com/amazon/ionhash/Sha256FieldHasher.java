@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The FieldHasher of a struct hashed with {@link Sha256IonHasherProvider}, which
+ * defers the digests of short fields (whose bytes fit in a single SHA-256 block) so
+ * they may be computed together by a {@link Sha256Batch};  the digests of longer
+ * fields are computed as their bytes are provided, so that they aren't buffered.
+ * <p/>
+ * The order of the digests provided to the struct differs from the order of its fields,
+ * which doesn't matter, as the struct sorts them.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class Sha256FieldHasher implements StatefulFieldHasher {
+    // fewer pending fields than this are digested one at a time
+    private static final int MIN_BATCH_SIZE = 8;
+
+    // a batch's working arrays are large, so they're shared by the field hashers of a thread
+    private static final ThreadLocal<Sha256Batch> BATCHES = ThreadLocal.withInitial(Sha256Batch::new);
+
+    private final Sha256 sha256 = new Sha256();
+    // digests pending fields if there are too few for the batch (sha256 may be in use)
+    private final Sha256 single = new Sha256();
+
+    // the bytes of the current field, unless they've been provided to sha256
+    private final byte[] field = new byte[Sha256Batch.MAX_MESSAGE_LENGTH];
+    private int fieldLength;
+    private boolean streaming;
+
+    private byte[][] pending = new byte[MIN_BATCH_SIZE][];
+    private byte[][] digests = new byte[MIN_BATCH_SIZE][];
+    private int pendingCount;
+
+    @Override
+    public void update(byte[] bytes) {
+        if (streaming) {
+            sha256.update(bytes, 0, bytes.length);
+        } else if (fieldLength + bytes.length <= field.length) {
+            System.arraycopy(bytes, 0, field, fieldLength, bytes.length);
+            fieldLength += bytes.length;
+        } else {
+            sha256.update(field, 0, fieldLength);
+            sha256.update(bytes, 0, bytes.length);
+            fieldLength = 0;
+            streaming = true;
+        }
+    }
+
+    @Override
+    public void fieldCompleted(List<byte[]> hashes) {
+        if (streaming) {
+            hashes.add(sha256.digest());
+            streaming = false;
+            return;
+        }
+        if (pendingCount == pending.length) {
+            if (pendingCount == Sha256Batch.MAX_LANES) {
+                flush(hashes);
+            } else {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+        }
+        pending[pendingCount++] = Arrays.copyOf(field, fieldLength);
+        fieldLength = 0;
+    }
+
+    @Override
+    public void flush(List<byte[]> hashes) {
+        if (pendingCount < MIN_BATCH_SIZE) {
+            for (int i = 0; i < pendingCount; i++) {
+                single.update(pending[i], 0, pending[i].length);
+                hashes.add(single.digest());
+            }
+        } else {
+            if (digests.length < pendingCount) {
+                digests = new byte[pending.length][];
+            }
+            BATCHES.get().digest(pending, pendingCount, digests);
+            for (int i = 0; i < pendingCount; i++) {
+                hashes.add(digests[i]);
+            }
+        }
+        Arrays.fill(pending, 0, pendingCount, null);
+        pendingCount = 0;
+    }
+
+    // the state is that of the current field;  pending fields must be flushed first
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        if (pendingCount > 0) {
+            throw new IllegalStateException("Pending field digests must be flushed before the state is written");
+        }
+        out.writeBoolean(streaming);
+        if (streaming) {
+            sha256.writeState(out);
+        } else {
+            out.writeByte(fieldLength);
+            out.write(field, 0, fieldLength);
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        Arrays.fill(pending, 0, pendingCount, null);
+        pendingCount = 0;
+        streaming = in.readBoolean();
+        if (streaming) {
+            sha256.readState(in);
+            fieldLength = 0;
+        } else {
+            sha256.reset();
+            int length = in.readUnsignedByte();
+            if (length > field.length) {
+                throw new IonHashException("Invalid field hasher state");
+            }
+            in.readFully(field, 0, length);
+            fieldLength = length;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * IonHasherProvider implementation whose hashers compute SHA-256 in pure Java.
+ * The results are identical to those of
+ * {@code new MessageDigestIonHasherProvider("SHA-256")};  unlike those of a
+ * MessageDigest, the internal state of these hashers may be saved and restored,
+ * which {@link IonHash#digestTopLevelValues(java.nio.file.Path, IonHasherProvider, java.nio.file.Path, long, java.util.function.Consumer)}
+ * relies on to checkpoint a hash in progress.  The hashers support {@link IonHasher#copy()}.
+ * <p/>
+ * The hashers are specialized for the short inputs that make up most of an Ion hash
+ * (e.g., each field of a struct is digested separately):  updates of a few bytes are
+ * added directly to the words of the pending block, and digest() pads the block in
+ * place, so an input shorter than 56 bytes is digested with a single compression and
+ * no allocation other than the result.  Note that on JVMs that implement MessageDigest's
+ * SHA-256 with CPU instructions (e.g., x86 SHA extensions), MessageDigestIonHasherProvider
+ * is faster;  otherwise, these hashers avoid the overhead of the JCA.
+ * <p/>
+ * The digests of the short fields of a struct are computed together, several at a time.
+ */
+public final class Sha256IonHasherProvider implements IonHasherProvider, FieldHasherProvider {
+    @Override
+    public IonHasher newHasher() {
+        return new Sha256IonHasher(new Sha256());
+    }
+
+    /**
+     * Used by the Ion hash implementation to digest the fields of structs;  not intended for other use.
+     */
+    @Override
+    public FieldHasher newFieldHasher() {
+        return new Sha256FieldHasher();
+    }
+
+    private static final class Sha256IonHasher implements StatefulIonHasher {
+        private final Sha256 sha256;
+
+        private Sha256IonHasher(Sha256 sha256) {
+            this.sha256 = sha256;
+        }
+
+        @Override
+        public void update(byte[] bytes) {
+            sha256.update(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public byte[] digest() {
+            return sha256.digest();
+        }
+
+        @Override
+        public IonHasher copy() {
+            return new Sha256IonHasher(sha256.copy());
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            sha256.writeState(out);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            sha256.readState(in);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A FieldHasher whose state (the bytes of the current field) may be written, and
+ * restored in another field hasher of the same kind;  see {@link StatefulIonHasher}.
+ */
+interface StatefulFieldHasher extends FieldHasher {
+    /**
+     * Writes the state of this field hasher;  any deferred digests must be flushed first.
+     */
+    void writeState(DataOutput out) throws IOException;
+
+    /**
+     * Replaces the state of this field hasher with one written by writeState().
+     */
+    void readState(DataInput in) throws IOException;
+}
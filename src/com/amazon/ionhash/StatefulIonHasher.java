@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * An IonHasher whose state (the bytes it has been updated with since it was last
+ * reset) may be written, and restored in another hasher of the same kind, so that
+ * a hash in progress may be resumed later (e.g., by another process).
+ */
+interface StatefulIonHasher extends IonHasher {
+    /**
+     * Writes the state of this hasher.
+     */
+    void writeState(DataOutput out) throws IOException;
+
+    /**
+     * Replaces the state of this hasher with one written by writeState().
+     */
+    void readState(DataInput in) throws IOException;
+}
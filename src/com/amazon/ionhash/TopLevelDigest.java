@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonType;
+
+/**
+ * The hash of a top-level value, as provided by the streams of {@link IonHash}.
+ */
+public final class TopLevelDigest {
+    private final IonType type;
+    private final byte[] digest;
+    private final long index;
+    private final long offset;
+
+    TopLevelDigest(IonType type, byte[] digest, long index, long offset) {
+        this.type = type;
+        this.digest = digest;
+        this.index = index;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the type of the value.
+     */
+    public IonType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the hash of the value.  The returned array is not copied, and should not be modified.
+     */
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    /**
+     * Returns the zero-based position of the value among the top-level values of its source.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the offset of the value's first byte (including any annotation wrapper) within
+     * its source, or -1 if the offset isn't known (e.g., for text Ion, or values read from an IonReader).
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("TopLevelDigest{type=").append(type)
+                .append(", index=").append(index)
+                .append(", offset=").append(offset)
+                .append(", digest=");
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -14,57 +14,233 @@
  */
 package com.amazon.ionhash.tools;
 
-import com.amazon.ion.IonReader;
-import com.amazon.ion.IonType;
-import com.amazon.ion.system.IonReaderBuilder;
-import com.amazon.ionhash.IonHashReader;
-import com.amazon.ionhash.IonHashReaderBuilder;
+import com.amazon.ionhash.IonHash;
+import com.amazon.ionhash.IonHasherProvider;
 import com.amazon.ionhash.MessageDigestIonHasherProvider;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Cli {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private boolean parallel;
+    private boolean summary;
+    private int threads = 1;
+    private DigestWriter.Format format = DigestWriter.Format.HEX;
+    private IonHasherProvider hasherProvider;
+    private final List<Path> files = new ArrayList<>();
+
+    private long valueCount;
+
     public static void main(String[] args) throws Exception {
-        if (args.length < 2) {
-            System.out.println("Utility that prints the Ion Hash of the top-level values in a file.");
+        Cli cli = new Cli();
+        if (!cli.parseArgs(args)) {
+            System.out.println("Utility that prints the Ion Hash of the top-level values in files.");
             System.out.println();
             System.out.println("Usage:");
-            System.out.println("  ion-hash [algorithm] [filename]");
+            System.out.println("  ion-hash [options] [algorithm] [file or directory]...");
             System.out.println();
             System.out.println("where [algorithm] is a hash function such as sha-256");
             System.out.println();
+            System.out.println("Files are hashed in the order specified (the files in a directory are hashed");
+            System.out.println("in lexicographic order of their paths), and one digest is printed per value.");
+            System.out.println("Files may be text or binary Ion, and a directory may contain both.");
+            System.out.println();
+            System.out.println("Options:");
+            System.out.println("  --format hex|base64|binary  how digests are printed (default: hex)");
+            System.out.println("  --threads N                 hash up to N files concurrently (default: 1)");
+            System.out.println("  --parallel                  hash regions of each binary Ion file concurrently");
+            System.out.println("                              (text Ion files are hashed sequentially)");
+            System.out.println("  --summary                   print throughput statistics to standard error");
+            System.out.println();
             System.exit(1);
         }
+        cli.run(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), OUTPUT_BUFFER_SIZE));
+    }
+
+    boolean parseArgs(String[] args) throws IOException {
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            switch (args[i]) {
+                case "--parallel":
+                    parallel = true;
+                    break;
+                case "--summary":
+                    summary = true;
+                    break;
+                case "--format":
+                    if (++i == args.length) {
+                        return false;
+                    }
+                    try {
+                        format = DigestWriter.Format.valueOf(args[i].toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                    break;
+                case "--threads":
+                    if (++i == args.length) {
+                        return false;
+                    }
+                    try {
+                        threads = Integer.parseInt(args[i]);
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                    if (threads < 1) {
+                        return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+        if (args.length - i < 2) {
+            return false;
+        }
 
-        String algorithm = args[0];
-        String fileName = args[1];
+        hasherProvider = new MessageDigestIonHasherProvider(args[i++]);
+        for (; i < args.length; i++) {
+            Path path = Paths.get(args[i]);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> paths = Files.walk(path)) {
+                    files.addAll(paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return true;
+    }
 
-        try (InputStream inputStream = new FileInputStream(fileName);
-             IonReader reader = IonReaderBuilder.standard().build(inputStream);
-             IonHashReader hashReader = IonHashReaderBuilder.standard()
-                     .withReader(reader)
-                     .withHasherProvider(new MessageDigestIonHasherProvider(algorithm))
-                     .build()) {
+    void run(OutputStream out) throws Exception {
+        long start = System.nanoTime();
+        long byteCount = 0;
+        for (Path file : files) {
+            if (Files.isRegularFile(file)) {
+                byteCount += Files.size(file);
+            }
+        }
 
-            IonType type = hashReader.next();
-            while (type != null) {
+        DigestWriter writer = new DigestWriter(out, format);
+        if (threads == 1) {
+            for (Path file : files) {
+                valueCount += digest(file, writer);
+            }
+        } else {
+            digestConcurrently(out);
+        }
+        writer.flush();
+
+        if (summary) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.println(String.format(Locale.ROOT,
+                    "files: %d, values: %d, bytes: %d, seconds: %.3f, values/s: %.0f, MB/s: %.1f",
+                    files.size(), valueCount, byteCount, seconds,
+                    valueCount / seconds, byteCount / seconds / (1024 * 1024)));
+        }
+    }
+
+    // hashes up to `threads` files at a time, buffering each file's output until
+    // the output of the files preceding it has been written
+    private void digestConcurrently(OutputStream out) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Deque<Future<FileResult>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < files.size() || !pending.isEmpty()) {
+                while (next < files.size() && pending.size() < threads * 2) {
+                    Path file = files.get(next++);
+                    pending.add(executor.submit(() -> {
+                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                        DigestWriter writer = new DigestWriter(baos, format);
+                        long count = digest(file, writer);
+                        return new FileResult(baos, count);
+                    }));
+                }
+                FileResult result;
                 try {
-                    type = hashReader.next();
-                    System.out.println(bytesToHex(hashReader.digest()));
-                } catch (Exception e) {
-                    System.out.println("[unable to digest: " + e + "]");
+                    result = pending.remove().get();
+                } catch (ExecutionException e) {
+                    throw new IOException(e.getCause());
                 }
+                result.output.writeTo(out);
+                valueCount += result.valueCount;
             }
+        } finally {
+            executor.shutdown();
         }
     }
 
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x ", b));
+    // returns the number of values digested
+    private long digest(Path file, DigestWriter writer) throws IOException {
+        long[] count = new long[1];
+        try {
+            // text Ion can't be split into regions, so it's always hashed sequentially
+            if (parallel && IonHash.isBinary(file)) {
+                IonHash.digestTopLevelValues(file, hasherProvider, ForkJoinPool.commonPool(),
+                        digest -> write(writer, digest, count),
+                        e -> writeError(writer, e));
+            } else {
+                IonHash.digestTopLevelValues(file, hasherProvider,
+                        digest -> write(writer, digest, count),
+                        e -> writeError(writer, e));
+            }
+        } catch (UncheckedIOException e) {
+            // failure to write the output, as opposed to failure to digest the file
+            throw e.getCause();
+        } catch (Exception e) {
+            // failure to read the file;  values that can't be digested are reported individually
+            writer.writeError(e);
         }
-        return sb.toString().trim();
+        return count[0];
     }
-}
 
+    private static void write(DigestWriter writer, byte[] digest, long[] count) {
+        try {
+            writer.write(digest);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        count[0]++;
+    }
+
+    private static void writeError(DigestWriter writer, Exception e) {
+        try {
+            writer.writeError(e);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private static final class FileResult {
+        private final ByteArrayOutputStream output;
+        private final long valueCount;
+
+        private FileResult(ByteArrayOutputStream output, long valueCount) {
+            this.output = output;
+            this.valueCount = valueCount;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash.tools;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Writes digests to an OutputStream, one per line (except in binary format, where
+ * digests are simply concatenated).
+ * <p/>
+ * Digests are encoded into a reused line buffer via lookup tables, and written to the
+ * stream with a single write() per digest;  the stream should be buffered.
+ */
+final class DigestWriter implements Flushable {
+    enum Format {
+        /** lowercase hex, with bytes separated by spaces */
+        HEX,
+        BASE64,
+        BINARY,
+    }
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final Format format;
+    private final Base64.Encoder base64 = Base64.getEncoder();
+    private byte[] line = new byte[128];
+
+    DigestWriter(OutputStream out, Format format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    void write(byte[] digest) throws IOException {
+        switch (format) {
+            case HEX:
+                int hexLength = Math.max(1, digest.length * 3);
+                ensureLineCapacity(hexLength);
+                int i = 0;
+                for (byte b : digest) {
+                    line[i++] = HEX_DIGITS[(b >> 4) & 0x0F];
+                    line[i++] = HEX_DIGITS[b & 0x0F];
+                    line[i++] = ' ';
+                }
+                // the final separator is replaced by the line terminator
+                line[hexLength - 1] = '\n';
+                out.write(line, 0, hexLength);
+                break;
+            case BASE64:
+                int base64Length = 4 * ((digest.length + 2) / 3);
+                ensureLineCapacity(base64Length + 1);
+                base64.encode(digest, line);
+                line[base64Length] = '\n';
+                out.write(line, 0, base64Length + 1);
+                break;
+            case BINARY:
+                out.write(digest);
+                break;
+        }
+    }
+
+    /**
+     * Writes a line describing a value that couldn't be digested;  in binary format,
+     * where there are no lines, the message is written to standard error instead.
+     */
+    void writeError(Exception e) throws IOException {
+        String message = "[unable to digest: " + e + "]";
+        if (format == Format.BINARY) {
+            System.err.println(message);
+        } else {
+            out.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void ensureLineCapacity(int length) {
+        if (line.length < length) {
+            line = new byte[length];
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonList;
+import com.amazon.ion.IonStruct;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AppendOnlyListHashTest {
+    private static final IonSystem ION = IonSystemBuilder.standard().build();
+
+    @Test
+    public void testAppend() throws IOException {
+        IonHasherProvider provider = new MessageDigestIonHasherProvider("SHA-256");
+        IonList list = ION.newEmptyList();
+        try (AppendOnlyListHash hash = new AppendOnlyListHash(provider)) {
+            assertArrayEquals(IonHash.digest(list, provider), hash.digest());
+            for (IonValue value : ION.getLoader().load(IonValueHasherTest.VALUES)) {
+                hash.append(value);
+                list.add(value.clone());
+                assertArrayEquals(value.toString(), IonHash.digest(list, provider), hash.digest());
+                // digest() doesn't disturb the list's hasher
+                assertArrayEquals(value.toString(), IonHash.digest(list, provider), hash.digest());
+            }
+            assertEquals(list.size(), hash.size());
+        }
+    }
+
+    @Test
+    public void testFieldNameIgnored() throws IOException {
+        IonHasherProvider provider = new MessageDigestIonHasherProvider("SHA-256");
+        try (AppendOnlyListHash hash = new AppendOnlyListHash(provider)) {
+            IonStruct struct = (IonStruct) ION.singleValue("{a:{b:1}}");
+            hash.append(struct.get("a"));
+            assertArrayEquals(IonHash.digest(ION.singleValue("[{b:1}]"), provider), hash.digest());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCopyUnsupported() {
+        new AppendOnlyListHash(TestIonHasherProviders.getInstance("identity"));
+    }
+}
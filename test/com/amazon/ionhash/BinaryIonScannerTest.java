@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonWriter;
+import com.amazon.ion.system.IonBinaryWriterBuilder;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryIonScannerTest {
+    private static IonSystem ION = IonSystemBuilder.standard().build();
+    private static IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("SHA-256");
+
+    @Test
+    public void testParallelDigests() throws IOException {
+        byte[] data = data();
+        List<byte[]> expected = sequentialDigests(data);
+        Path file = tempFile(data);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (long regionSize : new long[] {1, 50, 1000, Long.MAX_VALUE}) {
+                List<byte[]> actual = new ArrayList<>();
+                IonHash.digestTopLevelValues(file, hasherProvider, pool, actual::add, e -> { throw e; }, regionSize);
+
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertArrayEquals("region size " + regionSize + ", value " + i, expected.get(i), actual.get(i));
+                }
+            }
+        } finally {
+            pool.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRegions() throws IOException {
+        Path file = tempFile(data());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BinaryIonScanner scanner = new BinaryIonScanner(channel, 1);
+            long previousEnd = 0;
+            int regions = 0;
+            BinaryIonScanner.Region region;
+            while ((region = scanner.nextRegion()) != null) {
+                assertTrue(region.start >= previousEnd);
+                assertTrue(region.end > region.start);
+                previousEnd = region.end;
+                regions++;
+            }
+            assertEquals(channel.size(), previousEnd);
+            assertEquals(sequentialDigests(data()).size(), regions);
+            assertNull(scanner.nextRegion());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testNoValues() throws IOException {
+        Path file = tempFile(BinaryIonScanner.IVM);
+        try {
+            assertTrue(IonHash.digestTopLevelValues(file, hasherProvider, ForkJoinPool.commonPool()).isEmpty());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IonHashException.class)
+    public void testTextIon() throws IOException {
+        Path file = tempFile("{a:1}".getBytes("UTF-8"));
+        try {
+            IonHash.digestTopLevelValues(file, hasherProvider, ForkJoinPool.commonPool());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testUnhashableValues() throws IOException {
+        // symbols $10 through $19 have unknown text
+        String text = "$ion_symbol_table::{imports:[{name:\"missing\", version:1, max_id:10}]} "
+                + "1 $10 {a:$11, b:2} [x, ($12 y)] {$13:1} 5";
+        List<byte[]> expected = sequentialDigests(ION.getLoader().load("1 5").getBytes());
+        for (byte[] data : new byte[][] {text.getBytes("UTF-8"), ION.getLoader().load(text).getBytes()}) {
+            Path file = tempFile(data);
+            try {
+                assertUnhashableValues(expected, consumers ->
+                        IonHash.digestTopLevelValues(file, hasherProvider, consumers.digestConsumer, consumers.errorConsumer));
+                if (data[0] == (byte) 0xE0) {
+                    for (long regionSize : new long[] {1, Long.MAX_VALUE}) {
+                        assertUnhashableValues(expected, consumers ->
+                                IonHash.digestTopLevelValues(file, hasherProvider, ForkJoinPool.commonPool(),
+                                        consumers.digestConsumer, consumers.errorConsumer, regionSize));
+                    }
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private interface DigestCall {
+        void digest(Consumers consumers) throws IOException;
+    }
+
+    private static class Consumers {
+        private final List<Object> results = new ArrayList<>();
+        private final Consumer<byte[]> digestConsumer = results::add;
+        private final Consumer<IonHashException> errorConsumer = results::add;
+    }
+
+    private static void assertUnhashableValues(List<byte[]> expected, DigestCall call) throws IOException {
+        Consumers consumers = new Consumers();
+        call.digest(consumers);
+
+        List<Object> results = consumers.results;
+        assertEquals(6, results.size());
+        assertArrayEquals(expected.get(0), (byte[]) results.get(0));
+        for (int i = 1; i < 5; i++) {
+            assertTrue(results.get(i) instanceof IonHashException);
+        }
+        assertArrayEquals(expected.get(1), (byte[]) results.get(5));
+    }
+
+    @Test
+    public void testAppendsSymbols() {
+        // $ion_symbol_table::{imports:$ion_symbol_table, symbols:["a"]}
+        assertTrue(BinaryIonScanner.appendsSymbols(TestUtil.sexpToBytes(
+                "(0xEA 0x81 0x83 0xD7 0x86 0x71 0x03 0x87 0xB2 0x81 0x61)")));
+        // $ion_symbol_table::{symbols:["a"]}
+        assertFalse(BinaryIonScanner.appendsSymbols(TestUtil.sexpToBytes(
+                "(0xE7 0x81 0x83 0xD4 0x87 0xB2 0x81 0x61)")));
+    }
+
+    // several binary streams (so version markers appear mid-stream), with local symbol
+    // tables that append to, and replace, the symbol table in effect
+    static byte[] data() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (int stream = 0; stream < 3; stream++) {
+            IonBinaryWriterBuilder builder = IonBinaryWriterBuilder.standard();
+            if (stream != 1) {
+                builder = builder.withLocalSymbolTableAppendEnabled();
+            }
+            try (IonWriter writer = builder.build(baos)) {
+                for (int i = 0; i < 10; i++) {
+                    writer.stepIn(IonType.STRUCT);
+                    writer.setFieldName("field" + stream + "_" + i);
+                    writer.writeSymbol("symbol" + i);
+                    writer.setFieldName("common");
+                    writer.stepIn(IonType.LIST);
+                    for (int j = 0; j < i * 10; j++) {
+                        writer.writeInt(j);
+                    }
+                    writer.stepOut();
+                    writer.stepOut();
+                    writer.setTypeAnnotations("annotation" + i);
+                    writer.writeSymbol("value" + stream + "_" + i);
+                    writer.writeBool(i % 2 == 0);
+                    writer.flush();
+                }
+            }
+            if (stream < 2) {
+                // NOP padding between streams
+                baos.write(0x02);
+                baos.write(0x00);
+                baos.write(0x00);
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    static List<byte[]> sequentialDigests(byte[] data) throws IOException {
+        List<byte[]> digests = new ArrayList<>();
+        try (IonHashReader ihr = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(data))
+                .build()) {
+            ihr.next();
+            while (ihr.next() != null) {
+                digests.add(ihr.digest());
+            }
+            digests.add(ihr.digest());
+        }
+        return digests;
+    }
+
+    static Path tempFile(byte[] data) throws IOException {
+        Path file = Files.createTempFile("ion-hash", ".10n");
+        Files.write(file, data);
+        return file;
+    }
+}
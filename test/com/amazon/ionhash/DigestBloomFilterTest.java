@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DigestBloomFilterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testNoFalseNegatives() throws Exception {
+        DigestBloomFilter filter = new DigestBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(digest(i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(digest(i)));
+            assertTrue(filter.mightContain(IonHashDigest.of(digest(i))));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() throws Exception {
+        DigestBloomFilter filter = new DigestBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(IonHashDigest.of(digest(i)));
+        }
+        int falsePositives = 0;
+        for (int i = 10_000; i < 30_000; i++) {
+            if (filter.mightContain(digest(i))) {
+                falsePositives++;
+            }
+        }
+        // blocking costs some accuracy, but not much
+        assertTrue("false positives: " + falsePositives, falsePositives < 20_000 * 0.02);
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        DigestBloomFilter filter = new DigestBloomFilter(50_000, 0.001);
+        for (int i = 0; i < 50_000; i++) {
+            filter.add(digest(i));
+        }
+        Path file = folder.newFile().toPath();
+        filter.writeTo(file);
+
+        DigestBloomFilter read = DigestBloomFilter.readFrom(file);
+        for (int i = 0; i < 60_000; i++) {
+            byte[] digest = digest(i);
+            assertTrue(filter.mightContain(digest) == read.mightContain(digest));
+        }
+    }
+
+    @Test(expected = IonHashException.class)
+    public void testReadInvalidFile() throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[100]);
+        DigestBloomFilter.readFrom(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShortDigest() {
+        new DigestBloomFilter(100, 0.01).mightContain(new byte[8]);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertFalse(new DigestBloomFilter(100, 0.01).mightContain(digest(0)));
+    }
+
+    @Test
+    public void testKnownDigests() throws Exception {
+        IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("SHA-256");
+        IonSystem ion = IonSystemBuilder.standard().build();
+        StringBuilder data = new StringBuilder();
+        Set<IonHashDigest> store = new HashSet<>();
+        DigestBloomFilter filter = new DigestBloomFilter(500, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            String value = "{a:" + i + ", b:[x, \"" + i + "\"]} ";
+            data.append(value);
+            if (i % 2 == 0) {
+                byte[] digest = IonHash.digest(ion.singleValue(value), hasherProvider);
+                store.add(IonHashDigest.of(digest));
+                filter.add(digest);
+            }
+        }
+
+        List<byte[]> lookups = new ArrayList<>();
+        try (IonHashReader reader = IonHashReaderBuilder.standard()
+                .withReader(ion.newReader(data.toString()))
+                .withHasherProvider(hasherProvider)
+                .withKnownDigests(filter, digest -> {
+                    lookups.add(digest);
+                    return store.contains(IonHashDigest.of(digest));
+                })
+                .build()) {
+            int i = 0;
+            reader.next();
+            while (reader.next() != null) {
+                assertUnknown(i++, reader.digestIfUnknown(), store);
+            }
+            assertUnknown(i++, reader.digestIfUnknown(), store);
+            assertEquals(1000, i);
+        }
+
+        // the store is only consulted for known digests and the filter's false positives
+        assertTrue("lookups: " + lookups.size(), lookups.size() >= 500 && lookups.size() < 500 + 500 * 0.05);
+        for (byte[] digest : lookups) {
+            assertTrue(filter.mightContain(digest));
+        }
+    }
+
+    private static void assertUnknown(int i, byte[] digest, Set<IonHashDigest> store) {
+        if (i % 2 == 0) {
+            assertNull("value " + i, digest);
+        } else {
+            assertFalse("value " + i, store.contains(IonHashDigest.of(digest)));
+        }
+    }
+
+    private static byte[] digest(int i) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(ByteBuffer.allocate(4).putInt(i).array());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DigestCacheTest {
+    @Test
+    public void testSeen() throws NoSuchAlgorithmException {
+        for (boolean offHeap : new boolean[] {false, true}) {
+            DigestCache cache = new DigestCache(32, 10_000, offHeap);
+            for (int i = 0; i < 1_000; i++) {
+                assertFalse(cache.seen(digest(i)));
+            }
+            for (int i = 0; i < 1_000; i++) {
+                assertTrue(cache.contains(digest(i)));
+                assertTrue(cache.seen(IonHashDigest.of(digest(i))));
+            }
+            assertFalse(cache.contains(digest(-1)));
+            assertEquals(1_000, cache.hits());
+            assertEquals(1_000, cache.misses());
+            assertEquals(0, cache.evictions());
+        }
+    }
+
+    @Test
+    public void testEviction() throws NoSuchAlgorithmException {
+        DigestCache cache = new DigestCache(16, 100);
+        long capacity = cache.capacity();
+        assertTrue(capacity >= 100);
+
+        int count = (int) capacity * 10;
+        for (int i = 0; i < count; i++) {
+            cache.seen(truncate(digest(i)));
+        }
+        assertEquals(count, cache.misses());
+        assertTrue(cache.evictions() >= count - capacity);
+
+        int present = 0;
+        for (int i = 0; i < count; i++) {
+            if (cache.contains(truncate(digest(i)))) {
+                present++;
+            }
+        }
+        assertEquals(count - cache.evictions(), present);
+        assertTrue(present <= capacity);
+    }
+
+    @Test
+    public void testReferencedDigestsSurvive() throws NoSuchAlgorithmException {
+        DigestCache cache = new DigestCache(32, 64);
+        byte[] hot = digest(-1);
+        cache.seen(hot);
+        for (int i = 0; i < 10_000; i++) {
+            cache.seen(digest(i));
+            // seen frequently, so it keeps getting a second chance
+            assertTrue(cache.seen(hot));
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        DigestCache cache = new DigestCache(32, 1_000_000);
+        int threadCount = 4;
+        int perThread = 20_000;
+        AtomicLong firstSightings = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    // every thread sees the same digests
+                    for (int i = 0; i < perThread; i++) {
+                        if (!cache.seen(digest(i))) {
+                            firstSightings.incrementAndGet();
+                        }
+                    }
+                } catch (NoSuchAlgorithmException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, cache.evictions());
+        assertEquals(perThread, firstSightings.get());
+        assertEquals(perThread, cache.misses());
+        assertEquals((long) perThread * (threadCount - 1), cache.hits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongLength() {
+        new DigestCache(32, 10).seen(new byte[16]);
+    }
+
+    private static byte[] digest(int i) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(ByteBuffer.allocate(4).putInt(i).array());
+    }
+
+    private static byte[] truncate(byte[] digest) {
+        return Arrays.copyOf(digest, 16);
+    }
+}
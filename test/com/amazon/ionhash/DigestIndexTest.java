@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DigestIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAddAndReopen() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        int count = 5_000;
+        try (DigestIndex index = DigestIndex.open(directory, 32)) {
+            for (int i = 0; i < count; i++) {
+                assertTrue(index.add(digest(i), i * 10L));
+            }
+            assertFalse(index.add(digest(0), -1));
+            assertEquals(count, index.size());
+            assertAllPresent(index, count, 10);
+        }
+
+        try (DigestIndex index = DigestIndex.open(directory, 32)) {
+            assertEquals(count, index.size());
+            assertAllPresent(index, count, 10);
+            assertFalse(index.contains(digest(count)));
+            assertEquals(-7, index.get(digest(count), -7));
+
+            assertTrue(index.add(digest(count), 123));
+        }
+
+        try (DigestIndex index = DigestIndex.open(directory, 32)) {
+            assertEquals(count + 1, index.size());
+            assertEquals(123, index.get(digest(count), -1));
+        }
+    }
+
+    @Test
+    public void testRecoveryAfterCrash() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        DigestIndex crashed = DigestIndex.open(directory, 20);
+        for (int i = 0; i < 2_000; i++) {
+            crashed.add(truncate(digest(i)), i);
+        }
+        crashed.checkpoint();
+        // not checkpointed, so lost (and the hash table is marked as modified)
+        crashed.add(truncate(digest(-1)), -1);
+
+        // a record torn by the crash
+        try (FileChannel log = FileChannel.open(
+                directory.resolve(DigestIndex.LOG_FILE), StandardOpenOption.APPEND)) {
+            log.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5}));
+        }
+        long logSize = Files.size(directory.resolve(DigestIndex.LOG_FILE));
+
+        try (DigestIndex index = DigestIndex.open(directory, 20)) {
+            assertEquals(2_000, index.size());
+            for (int i = 0; i < 2_000; i++) {
+                assertEquals(i, index.get(truncate(digest(i)), -1));
+            }
+            assertFalse(index.contains(truncate(digest(-1))));
+            assertEquals(logSize - 5, Files.size(directory.resolve(DigestIndex.LOG_FILE)));
+        }
+    }
+
+    @Test
+    public void testCorruptRecord() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (DigestIndex index = DigestIndex.open(directory, 16)) {
+            for (int i = 0; i < 10; i++) {
+                index.add(truncate16(digest(i)), i);
+            }
+        }
+
+        // corrupt the last record, and discard the hash table
+        Path logPath = directory.resolve(DigestIndex.LOG_FILE);
+        byte[] log = Files.readAllBytes(logPath);
+        log[log.length - 10] ^= 1;
+        Files.write(logPath, log);
+        Files.delete(directory.resolve(DigestIndex.INDEX_FILE));
+
+        try (DigestIndex index = DigestIndex.open(directory, 16)) {
+            assertEquals(9, index.size());
+            assertFalse(index.contains(truncate16(digest(9))));
+            assertEquals(8, index.get(truncate16(digest(8)), -1));
+        }
+    }
+
+    @Test
+    public void testRebuild() throws Exception {
+        try (DigestIndex index = DigestIndex.open(folder.getRoot().toPath(), 32)) {
+            for (int i = 0; i < 3_000; i++) {
+                index.add(digest(i), i);
+            }
+            index.rebuild();
+            assertEquals(3_000, index.size());
+            assertAllPresent(index, 3_000, 1);
+        }
+    }
+
+    @Test
+    public void testBloomFilter() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        int count = 2_000;
+        try (DigestIndex index = DigestIndex.open(directory, 32, true)) {
+            // enough to grow the table (and filter)
+            for (int i = 0; i < count; i++) {
+                index.add(digest(i), i);
+            }
+            assertAllPresent(index, count, 1);
+            assertFalse(index.contains(digest(-1)));
+        }
+        assertTrue(Files.exists(directory.resolve(DigestIndex.FILTER_FILE)));
+
+        // read from the filter file
+        try (DigestIndex index = DigestIndex.open(directory, 32, true)) {
+            assertAllPresent(index, count, 1);
+            index.add(digest(count), count);
+        }
+
+        // modified without the filter, so the filter file is stale and must be rebuilt from the table
+        try (DigestIndex index = DigestIndex.open(directory, 32)) {
+            index.add(digest(count + 1), count + 1);
+        }
+        try (DigestIndex index = DigestIndex.open(directory, 32, true)) {
+            assertAllPresent(index, count + 2, 1);
+            assertEquals(-1, index.get(digest(-1), -1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBloomFilterRequiresLongDigests() throws IOException {
+        DigestIndex.open(folder.getRoot().toPath(), 8, true);
+    }
+
+    @Test(expected = IonHashException.class)
+    public void testDigestLengthMismatch() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        DigestIndex.open(directory, 32).close();
+        DigestIndex.open(directory, 16);
+    }
+
+    // asserts that the index maps digest(i) to i * multiplier, for i in [0, count)
+    private static void assertAllPresent(DigestIndex index, int count, long multiplier) throws NoSuchAlgorithmException {
+        for (int i = 0; i < count; i++) {
+            assertEquals(i * multiplier, index.get(digest(i), -1));
+        }
+    }
+
+    private static byte[] digest(int i) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(ByteBuffer.allocate(4).putInt(i).array());
+    }
+
+    private static byte[] truncate(byte[] digest) {
+        return Arrays.copyOf(digest, 20);
+    }
+
+    private static byte[] truncate16(byte[] digest) {
+        return Arrays.copyOf(digest, 16);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DigestSetTest {
+    @Test
+    public void testSet() throws NoSuchAlgorithmException {
+        for (String algorithm : new String[] {"MD5", "SHA-1", "SHA-256"}) {
+            MessageDigest md = MessageDigest.getInstance(algorithm);
+            DigestSet set = new DigestSet(md.getDigestLength());
+            Set<IonHashDigest> expected = new HashSet<>();
+            for (int i = 0; i < 10_000; i++) {
+                // every value is added twice
+                byte[] digest = md.digest(Integer.toString(i % 5_000).getBytes());
+                assertEquals(expected.add(IonHashDigest.of(digest)), set.add(digest));
+                assertTrue(set.contains(digest));
+                assertTrue(set.contains(IonHashDigest.of(digest)));
+            }
+            assertEquals(5_000, set.size());
+            assertFalse(set.contains(md.digest("absent".getBytes())));
+
+            Set<IonHashDigest> actual = new HashSet<>();
+            set.forEach(actual::add);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testNonUniformDigests() {
+        // e.g., all-zero digests, and digests that differ only in their last byte
+        DigestSet set = new DigestSet(32, 10);
+        for (int i = 0; i < 1000; i++) {
+            byte[] digest = new byte[32];
+            digest[31] = (byte) i;
+            digest[30] = (byte) (i >> 8);
+            assertTrue(set.add(digest));
+        }
+        assertFalse(set.add(IonHashDigest.of(new byte[32])));
+        assertEquals(1000, set.size());
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(new byte[32]));
+    }
+
+    @Test
+    public void testMap() throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        DigestMap map = new DigestMap(32);
+        Map<IonHashDigest, Long> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            byte[] digest = md.digest(Integer.toString(i % 3_000).getBytes());
+            long count = map.addTo(digest, 1);
+            expected.merge(IonHashDigest.of(digest), 1L, Long::sum);
+            assertEquals((long) expected.get(IonHashDigest.of(digest)), count);
+        }
+        assertEquals(3_000, map.size());
+
+        byte[] digest = md.digest("0".getBytes());
+        assertFalse(map.put(digest, -5));
+        assertEquals(-5, map.get(digest, 0));
+        assertEquals(-5, map.get(IonHashDigest.of(digest), 0));
+        expected.put(IonHashDigest.of(digest), -5L);
+        assertEquals(42, map.get(md.digest("absent".getBytes()), 42));
+        assertTrue(map.put(IonHashDigest.of(md.digest("new".getBytes())), 7));
+        expected.put(IonHashDigest.of(md.digest("new".getBytes())), 7L);
+
+        Map<IonHashDigest, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongLength() {
+        new DigestSet(32).add(new byte[20]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDigestLength() {
+        new DigestMap(33);
+    }
+}
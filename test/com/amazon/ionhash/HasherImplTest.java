@@ -14,8 +14,16 @@
  */
 package com.amazon.ionhash;
 
+import com.amazon.ion.IonType;
+import com.amazon.ion.SymbolToken;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
@@ -48,4 +56,49 @@ public class HasherImplTest {
         assertArrayEquals(    new byte[] {0x0C, 0x0C, 0x10, 0x0C, 0x0C, 0x11, 0x0C, 0x0C, 0x12, 0x0C, 0x0C},
             HasherImpl.escape(new byte[] {      0x0C, 0x10,       0x0C, 0x11,       0x0C, 0x12,       0x0C}));
     }
+
+    @Test
+    public void testState() throws IOException {
+        IonHasherProvider provider = new Sha256IonHasherProvider();
+        HasherImpl hasher = new HasherImpl(provider);
+        hashPrefix(hasher);
+        hashSuffix(hasher);
+        byte[] expected = hasher.digest();
+
+        hasher = new HasherImpl(provider);
+        hashPrefix(hasher);
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        hasher.writeState(new DataOutputStream(state));
+
+        HasherImpl restored = new HasherImpl(provider);
+        restored.readState(new DataInputStream(new ByteArrayInputStream(state.toByteArray())));
+        hashSuffix(restored);
+        assertArrayEquals(expected, restored.digest());
+    }
+
+    // a::{b:1, c:[d::(e
+    private static void hashPrefix(HasherImpl hasher) throws IOException {
+        hasher.stepIn(IonType.STRUCT, null, new SymbolToken[] {Hasher.newSymbolToken("a")});
+        hasher.scalar().withFieldName(Hasher.newSymbolToken("b")).withAnnotations(null).prepare();
+        hasher.scalar().updateInt(1);
+        hasher.stepIn(IonType.LIST, Hasher.newSymbolToken("c"), null);
+        hasher.stepIn(IonType.SEXP, null, new SymbolToken[] {Hasher.newSymbolToken("d")});
+        hasher.scalar().withFieldName(null).withAnnotations(null).prepare();
+        hasher.scalar().updateSymbol("e");
+    }
+
+    // {f:2}), 3], g:4}
+    private static void hashSuffix(HasherImpl hasher) throws IOException {
+        hasher.stepIn(IonType.STRUCT, null, null);
+        hasher.scalar().withFieldName(Hasher.newSymbolToken("f")).withAnnotations(null).prepare();
+        hasher.scalar().updateInt(2);
+        hasher.stepOut();
+        hasher.stepOut();
+        hasher.scalar().withFieldName(null).withAnnotations(null).prepare();
+        hasher.scalar().updateInt(3);
+        hasher.stepOut();
+        hasher.scalar().withFieldName(Hasher.newSymbolToken("g")).withAnnotations(null).prepare();
+        hasher.scalar().updateInt(4);
+        hasher.stepOut();
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonStruct;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalStructHashTest {
+    private static final IonSystem ION = IonSystemBuilder.standard().build();
+
+    @Test
+    public void testEmpty() throws IOException {
+        IonHasherProvider provider = TestIonHasherProviders.getInstance("identity");
+        try (IncrementalStructHash hash = new IncrementalStructHash(provider)) {
+            assertArrayEquals(IonHash.digest(ION.newEmptyStruct(), provider), hash.digest());
+        }
+    }
+
+    @Test
+    public void testPutAndRemove() throws IOException {
+        IonHasherProvider provider = TestIonHasherProviders.getInstance("identity");
+        IonStruct struct = ION.newEmptyStruct();
+        try (IncrementalStructHash hash = new IncrementalStructHash(provider)) {
+            for (IonValue value : ION.getLoader().load(IonValueHasherTest.VALUES)) {
+                String fieldName = "f" + struct.size() % 7;
+                hash.put(fieldName, value);
+                struct.add(fieldName, value.clone());
+                assertArrayEquals(IonHash.digest(struct, provider), hash.digest());
+            }
+
+            // duplicate fields
+            hash.put("a", ION.newInt(1));
+            hash.put("a", ION.newInt(1));
+            struct.add("a", ION.newInt(1));
+            struct.add("a", ION.newInt(1));
+            assertArrayEquals(IonHash.digest(struct, provider), hash.digest());
+
+            assertTrue(hash.remove("a", ION.newInt(1)));
+            struct.remove(struct.get("a"));
+            assertArrayEquals(IonHash.digest(struct, provider), hash.digest());
+            assertEquals(struct.size(), hash.size());
+
+            assertFalse(hash.remove("a", ION.newInt(2)));
+            assertFalse(hash.remove("b", ION.newInt(1)));
+            assertEquals(struct.size(), hash.size());
+        }
+    }
+
+    @Test
+    public void testRandomUpdates() throws IOException {
+        IonHasherProvider provider = new MessageDigestIonHasherProvider("SHA-256");
+        Random random = new Random(42);
+        IonStruct struct = ION.newEmptyStruct();
+        try (IncrementalStructHash hash = new IncrementalStructHash(provider)) {
+            for (int i = 0; i < 2_000; i++) {
+                String fieldName = "field" + random.nextInt(500);
+                IonValue existing = struct.get(fieldName);
+                if (existing != null && random.nextBoolean()) {
+                    assertTrue(hash.remove(fieldName, existing));
+                    struct.remove(existing);
+                } else {
+                    IonValue value = random.nextBoolean()
+                            ? ION.newInt(random.nextInt(10))
+                            : ION.singleValue("{nested:[" + random.nextInt(10) + "]}");
+                    hash.put(fieldName, value);
+                    struct.add(fieldName, value.clone());
+                }
+            }
+            assertEquals(struct.size(), hash.size());
+            assertArrayEquals(IonHash.digest(struct, provider), hash.digest());
+        }
+    }
+}
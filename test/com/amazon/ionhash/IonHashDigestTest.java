@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class IonHashDigestTest {
+    @Test
+    public void testRoundTrip() {
+        for (int length = 0; length <= IonHashDigest.MAX_LENGTH; length++) {
+            byte[] bytes = bytes(length, 7);
+            IonHashDigest digest = IonHashDigest.of(bytes);
+            assertEquals(length, digest.length());
+            assertArrayEquals(bytes, digest.toByteArray());
+        }
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(IonHashDigest.of(bytes(32, 1)), IonHashDigest.of(bytes(32, 1)));
+        assertEquals(IonHashDigest.of(bytes(32, 1)).hashCode(), IonHashDigest.of(bytes(32, 1)).hashCode());
+        assertNotEquals(IonHashDigest.of(bytes(32, 1)), IonHashDigest.of(bytes(32, 2)));
+        // same words, different lengths
+        assertNotEquals(IonHashDigest.of(new byte[16]), IonHashDigest.of(new byte[20]));
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("00ff10", IonHashDigest.of(new byte[] {0x00, (byte) 0xFF, 0x10}).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLong() {
+        IonHashDigest.of(new byte[IonHashDigest.MAX_LENGTH + 1]);
+    }
+
+    static byte[] bytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) ((i + 1) * 37 + seed * 101);
+        }
+        return bytes;
+    }
+}
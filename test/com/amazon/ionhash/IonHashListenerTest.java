@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *  
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonDatagram;
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonSequence;
+import com.amazon.ion.IonStruct;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class IonHashListenerTest {
+    private static IonSystem ION = IonSystemBuilder.standard().build();
+    private static IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("MD5");
+
+    private static final String DATA = "{a:[1,x::{b:2}],c:\"x\",d:(e f)} 5";
+
+    @Test
+    public void testReaderReportsEveryValue() {
+        Recorder recorder = new Recorder();
+        IonHashReader ihr = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(DATA))
+                .withDigestListener(recorder)
+                .build();
+
+        // skip over the first value, step through the second
+        ihr.next();
+        ihr.next();
+        byte[] firstDigest = ihr.digest();
+        ihr.next();
+        byte[] secondDigest = ihr.digest();
+
+        assertEquals(Arrays.asList("/0/a/0", "/0/a/1/b", "/0/a/1", "/0/a", "/0/c",
+                                   "/0/d/0", "/0/d/1", "/0/d", "/0", "/1"),
+                     recorder.paths);
+        assertEquals(Arrays.asList(2, 3, 2, 1, 1, 2, 2, 1, 0, 0), recorder.depths);
+        assertEquals(IonType.STRUCT, recorder.types.get(2));
+        recorder.assertStandaloneDigests();
+
+        // the top-level digests are unaffected
+        assertArrayEquals(hash("{a:[1,x::{b:2}],c:\"x\",d:(e f)}"), firstDigest);
+        assertArrayEquals(hash("5"), secondDigest);
+    }
+
+    @Test
+    public void testWriterReportsEveryValue() throws IOException {
+        Recorder readerRecorder = new Recorder();
+        IonHashReader ihr = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(DATA))
+                .withDigestListener(readerRecorder)
+                .build();
+        while (ihr.next() != null) {
+            ihr.digest();
+        }
+        ihr.next();
+        ihr.digest();
+
+        Recorder writerRecorder = new Recorder();
+        IonHashWriter ihw = IonHashWriterBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withWriter(ION.newBinaryWriter(new ByteArrayOutputStream()))
+                .withDigestListener(writerRecorder)
+                .build();
+        IonReader reader = ION.newReader(DATA);
+        while (reader.next() != null) {
+            ihw.writeValue(reader);
+            ihw.digest();
+        }
+
+        assertEquals(readerRecorder.paths, writerRecorder.paths);
+        assertEquals(readerRecorder.depths, writerRecorder.depths);
+        assertEquals(readerRecorder.types, writerRecorder.types);
+        for (int i = 0; i < readerRecorder.digests.size(); i++) {
+            assertArrayEquals(readerRecorder.digests.get(i), writerRecorder.digests.get(i));
+        }
+    }
+
+    @Test
+    public void testFilter() {
+        Recorder recorder = new Recorder();
+        IonHashReader ihr = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(DATA + " " + DATA))
+                .withDigestListener(recorder, IonHashPathFilter.compile("/*/a/**", "/1"))
+                .build();
+        while (ihr.next() != null) {
+        }
+
+        assertEquals(Arrays.asList("/0/a/0", "/0/a/1/b", "/0/a/1", "/0/a", "/1",
+                                   "/2/a/0", "/2/a/1/b", "/2/a/1", "/2/a"),
+                     recorder.paths);
+        recorder.assertStandaloneDigests();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLazyDigestNotSupported() {
+        IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(DATA))
+                .withLazyDigest(ION.newReader(DATA))
+                .withDigestListener(new Recorder())
+                .build();
+    }
+
+    private static byte[] hash(String ionText) {
+        IonHashReader ihr = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(ionText))
+                .build();
+        ihr.next();
+        ihr.next();
+        return ihr.digest();
+    }
+
+    private static class Recorder implements IonHashListener {
+        private final List<Integer> depths = new ArrayList<>();
+        private final List<String> paths = new ArrayList<>();
+        private final List<IonType> types = new ArrayList<>();
+        private final List<byte[]> digests = new ArrayList<>();
+
+        @Override
+        public void onDigest(int depth, String path, IonType type, byte[] digest) {
+            depths.add(depth);
+            paths.add(path);
+            types.add(type);
+            digests.add(digest);
+        }
+
+        // verifies each reported digest against the digest of the value hashed on its own
+        private void assertStandaloneDigests() {
+            IonDatagram datagram = ION.getLoader().load(DATA + " " + DATA);
+            for (int i = 0; i < paths.size(); i++) {
+                IonValue value = resolve(datagram, paths.get(i));
+                assertEquals(paths.get(i), value.getType(), types.get(i));
+                IonValue clone = value.clone();
+                clone.setTypeAnnotationSymbols(value.getTypeAnnotationSymbols());
+                assertArrayEquals(paths.get(i), hash(clone.toString()), digests.get(i));
+            }
+        }
+
+        private static IonValue resolve(IonDatagram datagram, String path) {
+            String[] components = path.substring(1).split("/");
+            IonValue value = datagram.get(Integer.parseInt(components[0]));
+            for (int i = 1; i < components.length; i++) {
+                value = value instanceof IonStruct
+                        ? ((IonStruct)value).get(components[i])
+                        : ((IonSequence)value).get(Integer.parseInt(components[i]));
+            }
+            return value;
+        }
+    }
+}
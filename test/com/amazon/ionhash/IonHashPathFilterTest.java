@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *  
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.SymbolToken;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IonHashPathFilterTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoLeadingSlash() {
+        IonHashPathFilter.compile("a/b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyComponent() {
+        IonHashPathFilter.compile("/a//b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDescendantsNotLast() {
+        IonHashPathFilter.compile("/**/a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoPatterns() {
+        IonHashPathFilter.compile();
+    }
+
+    @Test
+    public void testLiteralsAndWildcards() {
+        IonHashPathFilter filter = IonHashPathFilter.compile("/*/metadata/traceId");
+        assertTrue(matches(filter, 0, "metadata", "traceId"));
+        assertTrue(matches(filter, 7, "metadata", "traceId"));
+        assertFalse(matches(filter, 0, "metadata"));
+        assertFalse(matches(filter, 0, "metadata", "updatedAt"));
+        assertFalse(matches(filter, 0, "metadata", "traceId", "x"));
+        assertFalse(matches(filter, 0, "data", "traceId"));
+    }
+
+    @Test
+    public void testIndexes() {
+        IonHashPathFilter filter = IonHashPathFilter.compile("/1/2");
+        assertTrue(matches(filter, 1, 2));
+        assertFalse(matches(filter, 1, 3));
+        assertFalse(matches(filter, 0, 2));
+    }
+
+    @Test
+    public void testDescendants() {
+        IonHashPathFilter filter = IonHashPathFilter.compile("/*/a/**");
+        assertFalse(matches(filter, 0));
+        assertTrue(matches(filter, 0, "a"));
+        assertTrue(matches(filter, 0, "a", "b"));
+        assertTrue(matches(filter, 0, "a", 3, "c"));
+        assertFalse(matches(filter, 0, "b", "a"));
+
+        IonHashPathFilter all = IonHashPathFilter.compile("/**");
+        assertTrue(matches(all, 0));
+        assertTrue(matches(all, 0, "a", 3));
+    }
+
+    @Test
+    public void testMultiplePatterns() {
+        IonHashPathFilter filter = IonHashPathFilter.compile("/*/updatedAt", "/*/traceId");
+        assertTrue(matches(filter, 0, "updatedAt"));
+        assertTrue(matches(filter, 0, "traceId"));
+        assertFalse(matches(filter, 0, "id"));
+        assertEquals("/*/updatedAt, /*/traceId", filter.toString());
+    }
+
+    @Test
+    public void testEscapes() {
+        IonHashPathFilter filter = IonHashPathFilter.compile("/*/a\\/b/\\*");
+        assertTrue(matches(filter, 0, "a/b", "*"));
+        assertFalse(matches(filter, 0, "a/b", "c"));
+
+        StringBuilder sb = new StringBuilder();
+        IonHashPathFilter.appendComponent(sb, null, 0);
+        IonHashPathFilter.appendComponent(sb, Hasher.newSymbolToken("a/b"), 0);
+        IonHashPathFilter.appendComponent(sb, Hasher.newSymbolToken("*"), 0);
+        IonHashPathFilter.appendComponent(sb, null, 12);
+        assertEquals("/0/a\\/b/\\*/12", sb.toString());
+    }
+
+    // components are either field names (String) or indexes (Integer);  the first is a top-level index
+    private static boolean matches(IonHashPathFilter filter, Object... components) {
+        long state = filter.initialState();
+        for (int depth = 0; depth < components.length; depth++) {
+            Object component = components[depth];
+            SymbolToken fieldName = component instanceof String ? Hasher.newSymbolToken((String)component) : null;
+            int index = component instanceof Integer ? (Integer)component : 0;
+            state = filter.step(state, depth, fieldName, index);
+        }
+        return filter.matches(state, components.length - 1);
+    }
+}
@@ -22,9 +22,12 @@ import com.amazon.ion.UnknownSymbolException;
 import com.amazon.ion.system.IonSystemBuilder;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -177,4 +180,189 @@ public class IonHashReaderImplTest {
 
         ReaderCompare.compare(ir, ihr);
     }
+
+    private static final String LAZY_TEST_DATA =
+            "1 a::b::\"hi\" {x:[1,2,{y:3}],z:null.int} (a b) [] null hi::{{aGVsbG8=}} {a:1,b:{c:2}}";
+
+    @Test
+    public void testLazyDigest_text() {
+        assertLazyDigestsMatch(() -> ION.newReader(LAZY_TEST_DATA));
+    }
+
+    @Test
+    public void testLazyDigest_binary() {
+        byte[] ionBinary = ION.getLoader().load(LAZY_TEST_DATA).getBytes();
+        assertLazyDigestsMatch(() -> ION.newReader(ionBinary));
+    }
+
+    @Test
+    public void testLazyDigest_sparse() {
+        // digests that are never requested must not affect the digests that are
+        byte[] ionBinary = ION.getLoader().load(LAZY_TEST_DATA).getBytes();
+        List<byte[]> expected = digests(newHashReader(ION.newReader(ionBinary), null));
+
+        IonHashReader ihr = newHashReader(ION.newReader(ionBinary), ION.newReader(ionBinary));
+        int i = 0;
+        while (ihr.next() != null) {
+            if (i % 3 == 2) {
+                assertArrayEquals(expected.get(i - 1), ihr.digest());
+            }
+            i++;
+        }
+        assertArrayEquals(expected.get(i - 1), ihr.digest());
+        assertArrayEquals(new byte[] {}, ihr.digest());
+    }
+
+    @Test
+    public void testLazyDigest_stepInStepOut() {
+        IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("MD5");
+        byte[] ionBinary = ION.getLoader().load("{x:[1,2,{y:3}],z:4} 5").getBytes();
+        IonHashReader eager = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(ionBinary))
+                .build();
+        IonHashReader lazy = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(ionBinary))
+                .withLazyDigest(ION.newReader(ionBinary))
+                .build();
+
+        for (IonHashReader ihr : new IonHashReader[] {eager, lazy}) {
+            ihr.next();
+            ihr.stepIn();
+              ihr.next();
+              ihr.stepIn();
+                ihr.next();
+                assertArrayEquals(new byte[] {}, ihr.digest());
+              ihr.stepOut();  // we've only partially consumed the list
+            ihr.stepOut();    // we haven't consumed the second field
+        }
+        assertArrayEquals(eager.digest(), lazy.digest());
+
+        assertEquals(IonType.INT, eager.next());
+        assertEquals(IonType.INT, lazy.next());
+        eager.next();
+        lazy.next();
+        assertArrayEquals(eager.digest(), lazy.digest());
+    }
+
+    @Test(expected = IonHashException.class)
+    public void testLazyDigest_notSeekable() {
+        byte[] ionBinary = ION.getLoader().load("1 2 3").getBytes();
+        newHashReader(ION.newReader(ionBinary), ION.newReader(new ByteArrayInputStream(ionBinary)));
+    }
+
+    @Test
+    public void testDeeplyNested() {
+        // skipping over, or bailing out of, deeply nested data must not exhaust the stack
+        byte[] ionBinary = TestUtil.deeplyNested(100_000);
+        IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("SHA-256");
+
+        IonHashReader ihr = new IonHashReaderImpl(ION.newReader(ionBinary), hasherProvider);
+        ihr.next();
+        ihr.next();
+        byte[] skipped = ihr.digest();
+
+        ihr = new IonHashReaderImpl(ION.newReader(ionBinary), hasherProvider);
+        ihr.next();
+        for (int i = 0; i < 1000; i++) {
+            ihr.stepIn();
+            ihr.next();
+        }
+        ihr.stepOut();
+        for (int i = 1; i < 1000; i++) {
+            ihr.stepOut();
+        }
+        ihr.next();
+        assertArrayEquals(skipped, ihr.digest());
+    }
+
+    @Test
+    public void testExcludedPaths() {
+        IonHashPathFilter exclusions = IonHashPathFilter.compile("/*/meta", "/0/a/1", "/1");
+        String data = "{a:[1,{b:2},3],meta:{t:4},c:5} 6 {meta:[7],d:8}";
+        List<byte[]> expected = digests(newHashReader("{a:[1,3],c:5} {d:8}", null));
+
+        // skipping over each value
+        IonHashReader ihr = newHashReader(data, exclusions);
+        ihr.next();
+        ihr.next();
+        assertArrayEquals(expected.get(0), ihr.digest());
+        ihr.next();
+        ihr.next();
+        assertArrayEquals(expected.get(1), ihr.digest());
+
+        // stepping through each value
+        ihr = newHashReader(data, exclusions);
+        List<byte[]> actual = new ArrayList<>();
+        while (ihr.next() != null) {
+            if (ihr.getType() == IonType.STRUCT) {
+                ihr.stepIn();
+                while (ihr.next() != null) {
+                    if (IonType.isContainer(ihr.getType())) {
+                        ihr.stepIn();
+                        while (ihr.next() != null) {
+                        }
+                        ihr.stepOut();
+                    }
+                }
+                ihr.stepOut();
+                actual.add(ihr.digest());
+            }
+        }
+        assertEquals(2, actual.size());
+        assertArrayEquals(expected.get(0), actual.get(0));
+        assertArrayEquals(expected.get(1), actual.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testExcludedPaths_lazy() {
+        byte[] ionBinary = ION.getLoader().load("1 2 3").getBytes();
+        IonHashReaderBuilder.standard()
+                .withHasherProvider(new MessageDigestIonHasherProvider("SHA-256"))
+                .withReader(ION.newReader(ionBinary))
+                .withLazyDigest(ION.newReader(ionBinary))
+                .withExcludedPaths(IonHashPathFilter.compile("/1"))
+                .build();
+    }
+
+    private static IonHashReader newHashReader(String data, IonHashPathFilter exclusions) {
+        return IonHashReaderBuilder.standard()
+                .withHasherProvider(new MessageDigestIonHasherProvider("SHA-256"))
+                .withReader(ION.newReader(data))
+                .withExcludedPaths(exclusions)
+                .build();
+    }
+
+    private void assertLazyDigestsMatch(ReaderFactory readerFactory) {
+        List<byte[]> expected = digests(newHashReader(readerFactory.newReader(), null));
+        List<byte[]> actual = digests(newHashReader(readerFactory.newReader(), readerFactory.newReader()));
+        assertEquals(8, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static IonHashReader newHashReader(IonReader reader, IonReader lazyReader) {
+        return IonHashReaderBuilder.standard()
+                .withHasherProvider(new MessageDigestIonHasherProvider("SHA-256"))
+                .withReader(reader)
+                .withLazyDigest(lazyReader)
+                .build();
+    }
+
+    private static List<byte[]> digests(IonHashReader ihr) {
+        List<byte[]> digests = new ArrayList<>();
+        ihr.next();
+        while (ihr.getType() != null) {
+            ihr.next();
+            digests.add(ihr.digest());
+        }
+        return digests;
+    }
+
+    interface ReaderFactory {
+        IonReader newReader();
+    }
 }
@@ -15,13 +15,18 @@
 package com.amazon.ionhash;
 
 import org.junit.Test;
+import com.amazon.ion.IonReader;
 import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonType;
 import com.amazon.ion.system.IonSystemBuilder;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class IonHashWriterBuilderTest {
     private static IonSystem ION = IonSystemBuilder.standard().build();
@@ -48,4 +53,45 @@ public class IonHashWriterBuilderTest {
                 .build();
         assertNotNull(ihw);
     }
+
+    @Test
+    public void testWithoutWriter() throws IOException {
+        IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("SHA-256");
+        IonHashWriter expected = IonHashWriterBuilder.standard()
+                .withWriter(ION.newBinaryWriter(new ByteArrayOutputStream()))
+                .withHasherProvider(hasherProvider)
+                .build();
+        IonHashWriter ihw = IonHashWriterBuilder.standard()
+                .withoutWriter()
+                .withHasherProvider(hasherProvider)
+                .build();
+
+        IonReader expectedReader = ION.newReader("{a:[1,b::2e0,\"c\"],d:{e:f}} null.int (g h)");
+        IonReader reader = ION.newReader("{a:[1,b::2e0,\"c\"],d:{e:f}} null.int (g h)");
+        while (reader.next() != null) {
+            expectedReader.next();
+            expected.writeValue(expectedReader);
+            ihw.writeValue(reader);
+            assertArrayEquals(expected.digest(), ihw.digest());
+        }
+
+        ihw.stepIn(IonType.STRUCT);
+        assertTrue(ihw.isInStruct());
+        ihw.setFieldName("a");
+        ihw.stepIn(IonType.LIST);
+        assertFalse(ihw.isInStruct());
+        ihw.stepOut();
+        ihw.stepOut();
+        assertFalse(ihw.isInStruct());
+        ihw.digest();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWithoutWriter_extraStepOut() throws IOException {
+        IonHashWriterBuilder.standard()
+                .withoutWriter()
+                .withHasherProvider(TestIonHasherProviders.getInstance("identity"))
+                .build()
+                .stepOut();
+    }
 }
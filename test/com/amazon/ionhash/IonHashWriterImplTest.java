@@ -148,6 +148,51 @@ public class IonHashWriterImplTest {
         writer.writeSymbolToken(symbolUnresolvedSid);
     }
 
+    @Test
+    public void testDeeplyNested() throws IOException {
+        // writing deeply nested data from a reader must not exhaust the stack
+        byte[] ionBinary = TestUtil.deeplyNested(100_000);
+        IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("SHA-256");
+
+        IonHashReader ihr = new IonHashReaderImpl(ION.newReader(ionBinary), hasherProvider);
+        ihr.next();
+        ihr.next();
+
+        IonHashWriter ihw = IonHashWriterBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withoutWriter()
+                .build();
+        IonReader reader = ION.newReader(ionBinary);
+        reader.next();
+        ihw.writeValue(reader);
+        assertArrayEquals(ihr.digest(), ihw.digest());
+    }
+
+    @Test
+    public void testExcludedPaths() throws IOException {
+        IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("SHA-256");
+        IonHashWriter expected = IonHashWriterBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withWriter(IonBinaryWriterBuilder.standard().build(new ByteArrayOutputStream()))
+                .build();
+        expected.writeValues(ION.newReader("{a:[1,3],c:5}"));
+        byte[] expectedDigest = expected.digest();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IonHashWriter ihw = IonHashWriterBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withWriter(IonTextWriterBuilder.standard().build(baos))
+                .withExcludedPaths(IonHashPathFilter.compile("/*/meta", "/0/a/1"))
+                .build();
+        String data = "{a:[1,{b:2},3],meta:{t:4},c:5}";
+        ihw.writeValues(ION.newReader(data));
+        assertArrayEquals(expectedDigest, ihw.digest());
+
+        // excluded values are still written
+        ihw.finish();
+        assertEquals(ION.getLoader().load(data), ION.getLoader().load(baos.toByteArray()));
+    }
+
     interface TestHelper {
         void help(IonReader reader, IonWriter writer) throws IOException;
     }
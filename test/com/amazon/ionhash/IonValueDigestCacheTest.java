@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonInt;
+import com.amazon.ion.IonList;
+import com.amazon.ion.IonStruct;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static com.amazon.ionhash.TestUtil.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IonValueDigestCacheTest {
+    private static final IonSystem ION = IonSystemBuilder.standard().build();
+
+    @Test
+    public void testMatchesIonHash() throws IOException {
+        IonHasherProvider provider = TestIonHasherProviders.getInstance("identity");
+        try (IonValueDigestCache cache = new IonValueDigestCache(provider)) {
+            for (IonValue value : ION.getLoader().load(IonValueHasherTest.VALUES)) {
+                assertEquals(value.toString(), IonHash.digest(value, provider), cache.digest(value));
+                // again, from the cache
+                assertEquals(value.toString(), IonHash.digest(value, provider), cache.digest(value));
+            }
+        }
+    }
+
+    @Test
+    public void testModifications() throws IOException {
+        IonHasherProvider provider = TestIonHasherProviders.getInstance("identity");
+        IonStruct root = (IonStruct) ION.singleValue(
+                "{a:{b:{c:1, d:[{e:2}, f::{g:3}, (h {i:4})]}}, j:{k:5}, l:[[{m:6}]]}");
+        try (IonValueDigestCache cache = new IonValueDigestCache(provider)) {
+            assertMatches(cache, provider, root);
+
+            IonStruct b = (IonStruct) ((IonStruct) root.get("a")).get("b");
+            IonInt c = (IonInt) b.get("c");
+            c.setValue(10);
+            cache.invalidate(c);
+            assertMatches(cache, provider, root);
+
+            IonStruct g = (IonStruct) ((IonList) b.get("d")).get(1);
+            g.put("n", ION.newString("added"));
+            cache.invalidate(g);
+            assertMatches(cache, provider, root);
+
+            g.setTypeAnnotations("o");
+            cache.invalidate(g);
+            assertMatches(cache, provider, root);
+
+            IonList d = (IonList) b.get("d");
+            d.remove(0);
+            cache.invalidate(d);
+            assertMatches(cache, provider, root);
+
+            // move an unmodified struct to a field of another name
+            IonValue j = root.remove("j");
+            root.put("p", j);
+            cache.invalidate(root);
+            assertMatches(cache, provider, root);
+
+            // digests of nested values
+            assertEquals(IonHash.digest(b, provider), cache.digest(b));
+            assertEquals(IonHash.digest(g, provider), cache.digest(g));
+        }
+    }
+
+    @Test
+    public void testOnlyAncestorsRehashed() throws Exception {
+        IonStruct root = ION.newEmptyStruct();
+        for (int i = 0; i < 100; i++) {
+            IonStruct child = ION.newEmptyStruct();
+            for (int j = 0; j < 100; j++) {
+                child.put("f" + j, ION.newInt(i * j));
+            }
+            root.put("c" + i, child);
+        }
+
+        CountingProvider provider = new CountingProvider();
+        try (IonValueDigestCache cache = new IonValueDigestCache(provider)) {
+            byte[] before = cache.digest(root);
+            long initialBytes = provider.bytes;
+
+            IonInt value = (IonInt) ((IonStruct) root.get("c50")).get("f50");
+            value.setValue(-1);
+            cache.invalidate(value);
+            provider.bytes = 0;
+            byte[] after = cache.digest(root);
+            long rehashedBytes = provider.bytes;
+
+            assertFalse(MessageDigest.isEqual(before, after));
+            assertEquals(IonHash.digest(root, provider), after);
+            // the modified struct's fields and the root's field digests, rather than everything
+            assertTrue("re-hashed " + rehashedBytes + " of " + initialBytes, rehashedBytes < initialBytes / 10);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDatagram() throws IOException {
+        try (IonValueDigestCache cache = new IonValueDigestCache(TestIonHasherProviders.getInstance("identity"))) {
+            cache.digest(ION.newDatagram(ION.newInt(1)));
+        }
+    }
+
+    private static void assertMatches(IonValueDigestCache cache, IonHasherProvider provider, IonValue value) {
+        assertEquals(value.toString(), IonHash.digest(value, provider), cache.digest(value));
+    }
+
+    // counts the bytes hashed
+    private static final class CountingProvider implements IonHasherProvider {
+        private long bytes;
+
+        @Override
+        public IonHasher newHasher() {
+            MessageDigest md;
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+            return new IonHasher() {
+                @Override
+                public void update(byte[] update) {
+                    bytes += update.length;
+                    md.update(update);
+                }
+
+                @Override
+                public byte[] digest() {
+                    return md.digest();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonDatagram;
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonStruct;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.amazon.ionhash.TestUtil.assertEquals;
+
+public class IonValueHasherTest {
+    private static final IonSystem ION = IonSystemBuilder.standard().build();
+
+    static final String VALUES =
+            "null null.bool null.int null.struct null.list null.sexp true false "
+            + "0 -1 1 9223372036854775807 -9223372036854775808 9223372036854775808 -9223372036854775809 "
+            + "123456789012345678901234567890 -123456789012345678901234567890 "
+            + "0. -0. 1.5 -1.5d-3 123456789012345678901234567890.1 "
+            + "0e0 -0e0 1.5e0 nan +inf -inf "
+            + "\"\" \"abc\" \"\\u00e9\\u20ac\\U0001f600\" '' abc 'a b' $0 "
+            + "2017T 2017-01-02T03:04:05.678-07:00 "
+            + "{{}} {{aGVsbG8=}} {{\"clob\"}} {{\"\\x0b\\x0c\\x0e\"}} "
+            + "a::b::1 a::{x:1, y:[2, c::3], z:(4 5 {w:null.string})} "
+            + "{a:1, a:2, b:{}, c:[], d:()} [[[[]]], {a:{b:{c:[1, 2]}}}] "
+            + "{$0:1} ($0 a::$0) [1, {}, ()]";
+
+    @Test
+    public void testMatchesReader() throws IOException {
+        assertMatchesReader(TestIonHasherProviders.getInstance("identity"));
+        assertMatchesReader(TestIonHasherProviders.getInstance("md5"));
+    }
+
+    @Test
+    public void testFieldNameIgnored() {
+        IonStruct struct = (IonStruct) ION.singleValue("{a:{b:1}}");
+        IonValue field = struct.get("a");
+        IonHasherProvider provider = TestIonHasherProviders.getInstance("identity");
+        assertEquals(IonHash.digest(ION.singleValue("{b:1}"), provider), IonHash.digest(field, provider));
+    }
+
+    @Test
+    public void testDeeplyNested() throws IOException {
+        IonDatagram datagram = ION.getLoader().load(TestUtil.deeplyNested(5_000));
+        IonHasherProvider provider = TestIonHasherProviders.getInstance("md5");
+        assertEquals(readerDigest(datagram.get(0), provider), IonHash.digest(datagram.get(0), provider));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDatagram() {
+        IonHash.digest(ION.newDatagram(ION.newInt(1)), TestIonHasherProviders.getInstance("identity"));
+    }
+
+    private static void assertMatchesReader(IonHasherProvider provider) throws IOException {
+        for (IonValue value : ION.getLoader().load(VALUES)) {
+            assertEquals(value.toString(), readerDigest(value, provider), IonHash.digest(value, provider));
+        }
+    }
+
+    private static byte[] readerDigest(IonValue value, IonHasherProvider provider) throws IOException {
+        try (IonReader reader = ION.newReader(value);
+             IonHashReader hashReader = IonHashReaderBuilder.standard()
+                     .withReader(reader)
+                     .withHasherProvider(provider)
+                     .build()) {
+            hashReader.next();
+            hashReader.next();
+            return hashReader.digest();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MappedFileInputStreamTest {
+    private static IonSystem ION = IonSystemBuilder.standard().build();
+
+    private Path file;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[10_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        file = Files.createTempFile("ion-hash", ".bin");
+        Files.write(file, data);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        for (long chunkSize : new long[] {1, 7, 4096, data.length, MappedFileInputStream.DEFAULT_CHUNK_SIZE}) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (InputStream in = new MappedFileInputStream(file, chunkSize)) {
+                assertEquals(data.length, in.available());
+                baos.write(in.read());
+                byte[] buffer = new byte[1000];
+                int n;
+                while ((n = in.read(buffer, 0, buffer.length)) > 0) {
+                    baos.write(buffer, 0, n);
+                }
+                assertEquals(-1, in.read());
+                assertEquals(0, in.available());
+            }
+            assertArrayEquals("chunk size " + chunkSize, data, baos.toByteArray());
+        }
+    }
+
+    @Test
+    public void testSkip() throws IOException {
+        try (InputStream in = new MappedFileInputStream(file, 100)) {
+            assertEquals(50, in.skip(50));
+            assertEquals(data[50] & 0xFF, in.read());
+            assertEquals(1000, in.skip(1000));
+            assertEquals(data[1051] & 0xFF, in.read());
+            assertEquals(data.length - 1052, in.skip(Long.MAX_VALUE));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChunkSize() throws IOException {
+        new MappedFileInputStream(file, 0);
+    }
+
+    @Test
+    public void testDigestFile() throws IOException {
+        IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("SHA-256");
+        String text = "{a:[1,b::2],c:{d:\"e\"},f:g} h (i {j:k}) 5";
+        Files.write(file, text.getBytes("UTF-8"));
+
+        List<byte[]> expected = new ArrayList<>();
+        IonHashReader ihr = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(text))
+                .build();
+        ihr.next();
+        while (ihr.next() != null) {
+            expected.add(ihr.digest());
+        }
+        expected.add(ihr.digest());
+
+        List<byte[]> actual = IonHash.digestTopLevelValues(file, hasherProvider);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
@@ -41,4 +41,20 @@ public class MessageDigestIonHasherProviderTest {
         // verify that the hasher resets after digest:
         assertEquals(emptyHasherDigest, hasher.digest());
     }
+
+    @Test
+    public void testCopy() {
+        IonHasher hasher = new MessageDigestIonHasherProvider("SHA-256").newHasher();
+        hasher.update(new byte[] {0x01, 0x02});
+        IonHasher copy = hasher.copy();
+        copy.update(new byte[] {0x03});
+        hasher.update(new byte[] {0x03});
+        assertEquals(hasher.digest(), copy.digest());
+
+        // independent after copying
+        hasher.update(new byte[] {0x04});
+        IonHasher other = hasher.copy();
+        assertEquals(hasher.digest(), other.digest());
+        assertEquals(copy.digest(), hasher.digest());
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonType;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MultiHasherImplTest {
+    private static IonSystem ION = IonSystemBuilder.standard().build();
+
+    private static final IonHasherProvider MD5 = new MessageDigestIonHasherProvider("MD5");
+    private static final IonHasherProvider SHA256 = new MessageDigestIonHasherProvider("SHA-256");
+
+    private static final String DATA =
+            "{a:b::c::[1,2e0,3.0,\"x\",y,z::null.int],d:{e:f,g:2017T,h:{{aGVsbG8=}}}} null (s e x p) a::b::true";
+
+    @Test
+    public void testReader() {
+        List<byte[]> md5 = digests(IonHashReaderBuilder.standard().withHasherProvider(MD5));
+        List<byte[]> sha256 = digests(IonHashReaderBuilder.standard().withHasherProvider(SHA256));
+        assertEquals(4, md5.size());
+
+        IonHashReader ihr = IonHashReaderBuilder.standard()
+                .withHasherProviders(MD5, SHA256)
+                .withReader(ION.newReader(DATA))
+                .build();
+        List<byte[][]> actual = new ArrayList<>();
+        IonType type = ihr.next();
+        while (type != null) {
+            if (IonType.isContainer(type) && !ihr.isNullValue() && actual.size() % 2 == 0) {
+                // digests are independent of whether containers are stepped into or skipped
+                ihr.stepIn();
+                ihr.next();
+                ihr.stepOut();
+                actual.add(ihr.digests());
+                type = ihr.next();
+            } else {
+                type = ihr.next();
+                actual.add(ihr.digests());
+            }
+        }
+
+        assertDigests(md5, sha256, actual);
+    }
+
+    @Test
+    public void testWriter() throws IOException {
+        List<byte[]> md5 = digests(IonHashReaderBuilder.standard().withHasherProvider(MD5));
+        List<byte[]> sha256 = digests(IonHashReaderBuilder.standard().withHasherProvider(SHA256));
+
+        IonHashWriter ihw = IonHashWriterBuilder.standard()
+                .withHasherProviders(MD5, SHA256)
+                .withoutWriter()
+                .build();
+        List<byte[][]> actual = new ArrayList<>();
+        IonReader reader = ION.newReader(DATA);
+        while (reader.next() != null) {
+            ihw.writeValue(reader);
+            actual.add(ihw.digests());
+        }
+
+        assertDigests(md5, sha256, actual);
+    }
+
+    @Test
+    public void testDigestMatchesFirstHasher() {
+        List<byte[]> sha256 = digests(IonHashReaderBuilder.standard().withHasherProvider(SHA256));
+        List<byte[]> actual = digests(IonHashReaderBuilder.standard().withHasherProviders(SHA256, MD5));
+        assertEquals(sha256.size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertArrayEquals(sha256.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void testDisabledDigests() {
+        Hasher hasher = new HasherEngagerImpl(new MultiHasherImpl(
+                new IonHasherProvider[] { MD5, SHA256 }, null, null, null));
+        hasher.disable();
+        byte[][] digests = hasher.digests();
+        assertEquals(2, digests.length);
+        assertArrayEquals(new byte[0], digests[0]);
+        assertArrayEquals(new byte[0], digests[1]);
+
+        hasher.enable();
+        hasher.stepIn(IonType.LIST, null, null);
+        hasher.stepOut();
+        assertEquals(2, hasher.digests().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoHasherProviders() {
+        IonHashReaderBuilder.standard()
+                .withHasherProviders()
+                .withReader(ION.newReader(DATA))
+                .build();
+    }
+
+    private static void assertDigests(List<byte[]> md5, List<byte[]> sha256, List<byte[][]> actual) {
+        assertEquals(md5.size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(2, actual.get(i).length);
+            assertArrayEquals(md5.get(i), actual.get(i)[0]);
+            assertArrayEquals(sha256.get(i), actual.get(i)[1]);
+        }
+    }
+
+    private static List<byte[]> digests(IonHashReaderBuilder builder) {
+        IonHashReader ihr = builder.withReader(ION.newReader(DATA)).build();
+        List<byte[]> digests = new ArrayList<>();
+        ihr.next();
+        while (ihr.next() != null) {
+            digests.add(ihr.digest());
+        }
+        digests.add(ihr.digest());
+        return digests;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class OutputStreamIonHasherTest {
+    private static IonSystem ION = IonSystemBuilder.standard().build();
+
+    private static final String DATA = "{a:[1,b::2],c:{d:\"e\"},f:g} h (i {j:k})";
+
+    @Test
+    public void testReader() throws NoSuchAlgorithmException {
+        IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("SHA-256");
+        IonHashReader ihr = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(DATA))
+                .build();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IonHashReader exporter = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withTopLevelHasher(new OutputStreamIonHasher(baos))
+                .withReader(ION.newReader(DATA))
+                .build();
+
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        ihr.next();
+        exporter.next();
+        while (ihr.next() != null) {
+            exporter.next();
+            exporter.digest();
+            assertArrayEquals(ihr.digest(), md.digest(baos.toByteArray()));
+            baos.reset();
+        }
+    }
+
+    @Test
+    public void testWriterToChannel() throws IOException {
+        // with the identity hasher, the digest is the byte stream provided to the top-level hasher
+        IonHasherProvider hasherProvider = TestIonHasherProviders.getInstance("identity");
+        IonHashWriter ihw = IonHashWriterBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withoutWriter()
+                .build();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IonHashWriter exporter = IonHashWriterBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withTopLevelHasher(new OutputStreamIonHasher(Channels.newChannel(baos)))
+                .withoutWriter()
+                .build();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        IonReader reader = ION.newReader(DATA);
+        while (reader.next() != null) {
+            ihw.writeValue(reader);
+            expected.write(ihw.digest());
+        }
+        exporter.writeValues(ION.newReader(DATA));
+        exporter.digest();
+
+        assertArrayEquals(expected.toByteArray(), baos.toByteArray());
+    }
+
+    @Test
+    public void testLargeUpdates() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        OutputStreamIonHasher hasher = new OutputStreamIonHasher(Channels.newChannel(baos));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = new byte[i * 331];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = (byte) (i + j);
+            }
+            hasher.update(bytes);
+            expected.write(bytes, 0, bytes.length);
+        }
+        hasher.flush();
+
+        assertArrayEquals(expected.toByteArray(), baos.toByteArray());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullOutputStream() {
+        new OutputStreamIonHasher((OutputStream) null);
+    }
+}
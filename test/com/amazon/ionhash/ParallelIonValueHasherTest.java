@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonDatagram;
+import com.amazon.ion.IonList;
+import com.amazon.ion.IonStruct;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static com.amazon.ionhash.TestUtil.assertEquals;
+
+public class ParallelIonValueHasherTest {
+    private static final IonSystem ION = IonSystemBuilder.standard().build();
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void testMatchesSequential() {
+        IonHasherProvider provider = TestIonHasherProviders.getInstance("identity");
+        for (IonValue value : ION.getLoader().load(IonValueHasherTest.VALUES)) {
+            for (int threshold = 1; threshold <= 4; threshold++) {
+                assertEquals(value + " (threshold " + threshold + ")",
+                        IonHash.digest(value, provider),
+                        IonHash.digest(value, provider, POOL, threshold));
+            }
+        }
+    }
+
+    @Test
+    public void testLargeValue() {
+        IonValue value = largeValue();
+        IonHasherProvider provider = TestIonHasherProviders.getInstance("md5");
+        byte[] expected = IonHash.digest(value, provider);
+        assertEquals(expected, IonHash.digest(value, provider, POOL));
+        assertEquals(expected, IonHash.digest(value, provider, POOL, 50));
+        assertEquals(expected, IonHash.digest(value, provider, POOL, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testDeeplyNested() {
+        IonDatagram datagram = ION.getLoader().load(TestUtil.deeplyNested(2_000));
+        IonHasherProvider provider = TestIonHasherProviders.getInstance("md5");
+        assertEquals(IonHash.digest(datagram.get(0), provider),
+                IonHash.digest(datagram.get(0), provider, POOL, 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDatagram() {
+        IonHash.digest(ION.newDatagram(ION.newInt(1)), TestIonHasherProviders.getInstance("md5"), POOL);
+    }
+
+    // a struct of annotated structs and lists of structs, with duplicate field names
+    private static IonValue largeValue() {
+        IonStruct root = ION.newEmptyStruct();
+        for (int i = 0; i < 10; i++) {
+            IonStruct struct = ION.newEmptyStruct();
+            struct.addTypeAnnotation("s" + i);
+            IonList list = ION.newEmptyList();
+            for (int j = 0; j < 200; j++) {
+                IonStruct element = ION.newEmptyStruct();
+                element.put("j", ION.newInt(j));
+                element.put("name", ION.newString("element " + i + "." + j));
+                element.add("name", ION.newSymbol("dup"));
+                list.add(element);
+            }
+            struct.put("list", list);
+            struct.put("i", ION.newInt(i));
+            root.add(i % 2 == 0 ? "even" : "odd", struct);
+        }
+        root.put("small", ION.newDecimal(1.5));
+        return root;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonWriter;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class PipelinedIonHasherTest {
+    private static IonSystem ION = IonSystemBuilder.standard().build();
+    private static IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("SHA-256");
+
+    @Test
+    public void testReader() throws IOException {
+        byte[] data = largeValues();
+        List<byte[]> expected = digests(IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(data))
+                .build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<byte[]> actual = digests(IonHashReaderBuilder.standard()
+                    .withHasherProvider(hasherProvider)
+                    .withReader(ION.newReader(data))
+                    .withPipelining(executor)
+                    .build());
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), actual.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWriter() throws IOException {
+        byte[] data = largeValues();
+        IonHashWriter expected = IonHashWriterBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withoutWriter()
+                .build();
+        IonHashWriter actual = IonHashWriterBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withoutWriter()
+                .withPipelining()
+                .build();
+
+        IonReader reader = ION.newReader(data);
+        IonReader reader2 = ION.newReader(data);
+        while (reader.next() != null) {
+            reader2.next();
+            expected.writeValue(reader);
+            actual.writeValue(reader2);
+            assertArrayEquals(expected.digest(), actual.digest());
+        }
+        actual.close();
+    }
+
+    @Test(expected = IonHashException.class)
+    public void testFailure() {
+        PipelinedIonHasher hasher = new PipelinedIonHasher(new IonHasher() {
+            @Override
+            public void update(byte[] bytes) {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            public byte[] digest() {
+                return new byte[0];
+            }
+        });
+        hasher.update(new byte[1024 * 1024]);
+        hasher.digest();
+    }
+
+    @Test
+    public void testSpscRing() throws InterruptedException {
+        PipelinedIonHasher.SpscRing<Integer> ring = new PipelinedIonHasher.SpscRing<>(64);
+        int count = 10_000;
+        List<Integer> received = new ArrayList<>();
+        Thread consumer = new Thread(() -> {
+            while (received.size() < count) {
+                Integer i = ring.poll();
+                if (i == null) {
+                    Thread.yield();
+                } else {
+                    received.add(i);
+                }
+            }
+        });
+        consumer.start();
+
+        for (int i = 0; i < count; i++) {
+            while (!ring.offer(i)) {
+                Thread.yield();
+            }
+        }
+        consumer.join();
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, (int) received.get(i));
+        }
+        assertNull(ring.poll());
+    }
+
+    // the digest thread of a hasher that isn't closed stops when idle, and is restarted by the next request
+    @Test
+    public void testIdleTimeout() throws Exception {
+        byte[] bytes = new byte[200_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        IonHasher expected = hasherProvider.newHasher();
+        expected.update(bytes);
+        byte[] expectedDigest = expected.digest();
+
+        PipelinedIonHasher hasher = new PipelinedIonHasher(hasherProvider.newHasher(), TimeUnit.MILLISECONDS.toNanos(10));
+        for (int i = 0; i < 3; i++) {
+            hasher.update(bytes);
+            assertArrayEquals(expectedDigest, hasher.digest());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (hasher.isDigestThreadRunning() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertFalse(hasher.isDigestThreadRunning());
+        }
+        hasher.close();
+    }
+
+    // top-level values larger than a batch, and structs with fields large enough to be digested concurrently
+    private static byte[] largeValues() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (IonWriter writer = ION.newBinaryWriter(baos)) {
+            for (int i = 0; i < 3; i++) {
+                writer.stepIn(IonType.STRUCT);
+                for (int j = 0; j < 50; j++) {
+                    writer.setFieldName("f" + (j % 7));
+                    if (j % 3 == 0) {
+                        writer.stepIn(IonType.LIST);
+                        for (int k = 0; k < 1000; k++) {
+                            writer.writeInt(i * j * k);
+                        }
+                        writer.stepOut();
+                    } else {
+                        byte[] blob = new byte[j * 300];
+                        for (int k = 0; k < blob.length; k++) {
+                            blob[k] = (byte) (i + j + k);
+                        }
+                        writer.writeBlob(blob);
+                    }
+                }
+                writer.stepOut();
+                writer.writeString("small " + i);
+                writer.stepIn(IonType.LIST);
+                for (int k = 0; k < 20_000; k++) {
+                    writer.writeString("element " + k);
+                }
+                writer.stepOut();
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private static List<byte[]> digests(IonHashReader ihr) throws IOException {
+        List<byte[]> digests = new ArrayList<>();
+        ihr.next();
+        while (ihr.next() != null) {
+            digests.add(ihr.digest());
+        }
+        digests.add(ihr.digest());
+        ihr.close();
+        return digests;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonType;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.amazon.ionhash.BinaryIonScannerTest.data;
+import static com.amazon.ionhash.BinaryIonScannerTest.sequentialDigests;
+import static com.amazon.ionhash.BinaryIonScannerTest.tempFile;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RegionSpliteratorTest {
+    private static IonSystem ION = IonSystemBuilder.standard().build();
+    private static IonHasherProvider hasherProvider = new MessageDigestIonHasherProvider("SHA-256");
+
+    @Test
+    public void testReaderStream() throws IOException {
+        String text = "{a:1} b::[2, 3] \"c\" null.int";
+        List<TopLevelDigest> digests;
+        try (IonReader reader = ION.newReader(text);
+             Stream<TopLevelDigest> stream = IonHash.stream(reader, hasherProvider)) {
+            digests = stream.collect(Collectors.toList());
+        }
+
+        List<byte[]> expected = sequentialDigests(ION.getLoader().load(text).getBytes());
+        IonType[] expectedTypes = {IonType.STRUCT, IonType.LIST, IonType.STRING, IonType.INT};
+        assertEquals(expected.size(), digests.size());
+        for (int i = 0; i < expected.size(); i++) {
+            TopLevelDigest digest = digests.get(i);
+            assertEquals(expectedTypes[i], digest.getType());
+            assertEquals(i, digest.getIndex());
+            assertEquals(-1, digest.getOffset());
+            assertArrayEquals(expected.get(i), digest.getDigest());
+        }
+    }
+
+    @Test
+    public void testBinaryFileStream() throws IOException {
+        byte[] data = data();
+        List<byte[]> expected = sequentialDigests(data);
+        Path file = tempFile(data);
+        try {
+            for (boolean parallel : new boolean[] {false, true}) {
+                for (long regionSize : new long[] {1, 100, Long.MAX_VALUE}) {
+                    List<TopLevelDigest> actual;
+                    try (Stream<TopLevelDigest> stream = IonHash.stream(file, hasherProvider, regionSize)) {
+                        actual = (parallel ? stream.parallel() : stream).collect(Collectors.toList());
+                    }
+
+                    assertEquals(expected.size(), actual.size());
+                    long previousOffset = -1;
+                    for (int i = 0; i < expected.size(); i++) {
+                        TopLevelDigest digest = actual.get(i);
+                        assertEquals(i, digest.getIndex());
+                        assertArrayEquals(expected.get(i), digest.getDigest());
+                        assertTrue(digest.getOffset() > previousOffset);
+                        previousOffset = digest.getOffset();
+
+                        // the offset is that of a type descriptor of the value's type (or its annotation wrapper)
+                        int typeCode = (data[(int) digest.getOffset()] & 0xFF) >>> 4;
+                        if (typeCode != 0xE) {
+                            assertEquals(expectedTypeCode(digest.getType()), typeCode);
+                        }
+                    }
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTextFileStream() throws IOException {
+        String text = "{a:1} b::[2, 3] \"c\" null.int";
+        Path file = tempFile(text.getBytes("UTF-8"));
+        try (Stream<TopLevelDigest> stream = IonHash.stream(file, hasherProvider)) {
+            List<byte[]> expected = sequentialDigests(ION.getLoader().load(text).getBytes());
+            List<byte[]> actual = new ArrayList<>();
+            stream.parallel().forEachOrdered(digest -> actual.add(digest.getDigest()));
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), actual.get(i));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static int expectedTypeCode(IonType type) {
+        switch (type) {
+            case BOOL:
+                return 0x1;
+            case SYMBOL:
+                return 0x7;
+            case STRUCT:
+                return 0xD;
+            default:
+                throw new IllegalArgumentException(type.toString());
+        }
+    }
+}
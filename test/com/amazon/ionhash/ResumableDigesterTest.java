@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonWriter;
+import com.amazon.ion.system.IonBinaryWriterBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResumableDigesterTest {
+    private static final IonHasherProvider hasherProvider = new Sha256IonHasherProvider();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWithoutFailures() throws IOException {
+        byte[] data = data();
+        List<byte[]> expected = BinaryIonScannerTest.sequentialDigests(data);
+        Path file = write(data);
+        Path checkpointFile = folder.getRoot().toPath().resolve("checkpoint");
+        for (long interval : new long[] {1, 100, Long.MAX_VALUE}) {
+            List<TopLevelDigest> actual = new ArrayList<>();
+            IonHash.digestTopLevelValues(file, hasherProvider, checkpointFile, interval, actual::add);
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(i, actual.get(i).getIndex());
+                assertArrayEquals("interval " + interval + ", value " + i, expected.get(i), actual.get(i).getDigest());
+            }
+            assertFalse(Files.exists(checkpointFile));
+        }
+    }
+
+    @Test
+    public void testResumeAfterFailures() throws IOException {
+        byte[] data = data();
+        List<byte[]> expected = BinaryIonScannerTest.sequentialDigests(data);
+        Path file = write(data);
+        Path checkpointFile = folder.getRoot().toPath().resolve("checkpoint");
+
+        // each run fails upon the digest of the next value, so the following run
+        // resumes from the last checkpoint saved within (or before) that value
+        Map<Long, byte[]> actual = new HashMap<>();
+        int resumedWithinValue = 0;
+        for (long failAt = 0; failAt < expected.size(); failAt++) {
+            long target = failAt;
+            try {
+                IonHash.digestTopLevelValues(file, hasherProvider, checkpointFile, 5, digest -> {
+                    actual.put(digest.getIndex(), digest.getDigest());
+                    if (digest.getIndex() == target) {
+                        throw new Failure();
+                    }
+                });
+            } catch (Failure e) {
+                HashCheckpoint checkpoint = HashCheckpoint.readFrom(checkpointFile);
+                assertTrue(checkpoint.getIndex() <= target);
+                if (checkpoint.isWithinValue()) {
+                    resumedWithinValue++;
+                }
+            }
+            for (Map.Entry<Long, byte[]> entry : actual.entrySet()) {
+                assertArrayEquals("value " + entry.getKey(), expected.get((int) (long) entry.getKey()), entry.getValue());
+            }
+        }
+        IonHash.digestTopLevelValues(file, hasherProvider, checkpointFile, 5, digest -> actual.put(digest.getIndex(), digest.getDigest()));
+
+        assertEquals(expected.size(), actual.size());
+        assertTrue(resumedWithinValue > 0);
+        assertFalse(Files.exists(checkpointFile));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUnsupportedHasher() throws IOException {
+        Path file = write(data());
+        IonHash.digestTopLevelValues(file, new MessageDigestIonHasherProvider("SHA-256"),
+                folder.getRoot().toPath().resolve("checkpoint"), 100, digest -> { });
+    }
+
+    @Test(expected = IonHashException.class)
+    public void testTextIon() throws IOException {
+        Path file = write("{a:1}".getBytes("UTF-8"));
+        IonHash.digestTopLevelValues(file, hasherProvider, folder.getRoot().toPath().resolve("checkpoint"), 100, digest -> { });
+    }
+
+    private Path write(byte[] data) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, data);
+        return file;
+    }
+
+    // the scanner's test data (several streams, with local symbol tables that append to and
+    // replace the symbol table in effect), followed by deeply nested and annotated containers
+    private static byte[] data() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write(BinaryIonScannerTest.data());
+        try (IonWriter writer = IonBinaryWriterBuilder.standard().build(baos)) {
+            for (int i = 0; i < 5; i++) {
+                writer.setTypeAnnotations("outer" + i);
+                writer.stepIn(IonType.STRUCT);
+                for (int j = 0; j < 20; j++) {
+                    writer.setFieldName("f" + j % 7);
+                    if (j % 3 == 0) {
+                        writer.setTypeAnnotations("a", "b" + j);
+                        writer.stepIn(j % 2 == 0 ? IonType.SEXP : IonType.LIST);
+                        writer.writeString("s" + j);
+                        writer.stepIn(IonType.STRUCT);
+                        writer.setFieldName("g");
+                        writer.stepIn(IonType.LIST);
+                        writer.stepOut();
+                        writer.setFieldName("h");
+                        writer.writeNull(IonType.STRUCT);
+                        writer.setFieldName("i");
+                        writer.writeDecimal(new java.math.BigDecimal("1.5"));
+                        writer.stepOut();
+                        writer.stepOut();
+                    } else {
+                        writer.writeInt((long) i * j);
+                    }
+                }
+                writer.stepOut();
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private static final class Failure extends RuntimeException {
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class Sha256BatchTest {
+    @Test
+    public void testMatchesMessageDigest() throws Exception {
+        Random random = new Random(3);
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        Sha256Batch batch = new Sha256Batch();
+        for (int count : new int[] {1, 2, 7, 8, 100, Sha256Batch.MAX_LANES, Sha256Batch.MAX_LANES + 1, 600}) {
+            byte[][] messages = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                messages[i] = new byte[random.nextInt(Sha256Batch.MAX_MESSAGE_LENGTH + 1)];
+                random.nextBytes(messages[i]);
+            }
+            byte[][] digests = new byte[count][];
+            batch.digest(messages, count, digests);
+            for (int i = 0; i < count; i++) {
+                assertArrayEquals("count " + count + ", message " + i, md.digest(messages[i]), digests[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testEveryLength() throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[][] messages = new byte[Sha256Batch.MAX_MESSAGE_LENGTH + 1][];
+        for (int length = 0; length < messages.length; length++) {
+            messages[length] = new byte[length];
+            for (int i = 0; i < length; i++) {
+                messages[length][i] = (byte) (length * 31 + i);
+            }
+        }
+        byte[][] digests = new byte[messages.length][];
+        new Sha256Batch().digest(messages, messages.length, digests);
+        for (int length = 0; length < messages.length; length++) {
+            assertArrayEquals("length " + length, md.digest(messages[length]), digests[length]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMessageTooLong() {
+        byte[][] messages = new byte[][] {new byte[Sha256Batch.MAX_MESSAGE_LENGTH + 1]};
+        new Sha256Batch().digest(messages, 1, new byte[1][]);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash;
+
+import com.amazon.ion.IonStruct;
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Sha256IonHasherProviderTest {
+    private static final IonSystem ION = IonSystemBuilder.standard().build();
+    private static final Sha256IonHasherProvider provider = new Sha256IonHasherProvider();
+
+    @Test
+    public void testMatchesMessageDigest() throws Exception {
+        Random random = new Random(42);
+        IonHasher hasher = provider.newHasher();
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        for (int length = 0; length < 300; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            // in pieces of random lengths
+            for (int offset = 0; offset < length; ) {
+                int n = Math.min(length - offset, random.nextInt(70));
+                hasher.update(Arrays.copyOfRange(bytes, offset, offset + n));
+                offset += n;
+            }
+            assertArrayEquals("length " + length, md.digest(bytes), hasher.digest());
+        }
+    }
+
+    @Test
+    public void testSingleUpdateAndByteAtATime() throws Exception {
+        Random random = new Random(11);
+        IonHasher hasher = provider.newHasher();
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        for (int length = 0; length < 200; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            byte[] expected = md.digest(bytes);
+
+            hasher.update(bytes);
+            assertArrayEquals("length " + length, expected, hasher.digest());
+
+            for (byte b : bytes) {
+                hasher.update(new byte[] {b});
+            }
+            assertArrayEquals("length " + length, expected, hasher.digest());
+        }
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        IonHasher hasher = provider.newHasher();
+        hasher.update(new byte[100]);
+        IonHasher copy = hasher.copy();
+        hasher.update(new byte[] {1});
+        copy.update(new byte[] {2});
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(new byte[100]);
+        md.update((byte) 2);
+        assertArrayEquals(md.digest(), copy.digest());
+    }
+
+    @Test
+    public void testState() throws Exception {
+        byte[] bytes = new byte[1000];
+        new Random(7).nextBytes(bytes);
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(bytes);
+        for (int split : new int[] {0, 1, 63, 64, 65, 500, 1000}) {
+            StatefulIonHasher hasher = (StatefulIonHasher) provider.newHasher();
+            hasher.update(Arrays.copyOfRange(bytes, 0, split));
+            ByteArrayOutputStream state = new ByteArrayOutputStream();
+            hasher.writeState(new DataOutputStream(state));
+
+            StatefulIonHasher restored = (StatefulIonHasher) provider.newHasher();
+            restored.update(new byte[] {42});
+            restored.readState(new DataInputStream(new ByteArrayInputStream(state.toByteArray())));
+            restored.update(Arrays.copyOfRange(bytes, split, bytes.length));
+            assertArrayEquals("split " + split, expected, restored.digest());
+        }
+    }
+
+    // the digests of the short fields of structs are computed by a Sha256Batch
+    @Test
+    public void testStructs() throws Exception {
+        IonHasherProvider messageDigestProvider = new MessageDigestIonHasherProvider("SHA-256");
+        for (IonValue value : ION.getLoader().load(IonValueHasherTest.VALUES)) {
+            assertArrayEquals(value.toString(), IonHash.digest(value, messageDigestProvider), IonHash.digest(value, provider));
+        }
+
+        // wide structs, whose fields are short and long (including nested wide structs)
+        Random random = new Random(5);
+        IonStruct struct = ION.newEmptyStruct();
+        for (int i = 0; i < 1000; i++) {
+            IonStruct nested = ION.newEmptyStruct();
+            for (int j = 0; j < random.nextInt(20); j++) {
+                nested.add("n" + j, ION.newInt(random.nextInt()));
+            }
+            char[] chars = new char[random.nextInt(100)];
+            Arrays.fill(chars, 'x');
+            struct.add("f" + i % 50, random.nextBoolean() ? nested : ION.newString(new String(chars)));
+        }
+        assertArrayEquals(IonHash.digest(struct, messageDigestProvider), IonHash.digest(struct, provider));
+        assertArrayEquals(IonHash.digest(struct, messageDigestProvider), readerDigest(struct));
+    }
+
+    // the bytes of nested values are teed from the field hashers of their structs to the listener's hashers
+    @Test
+    public void testListener() {
+        String data = "{a:[1,x::{b:2,c:{d:\"0123456789012345678901234567890123456789012345678901234567890\"}}],e:\"x\"} 5";
+        assertEquals(listenerDigests(data, new MessageDigestIonHasherProvider("SHA-256")), listenerDigests(data, provider));
+    }
+
+    private static List<String> listenerDigests(String data, IonHasherProvider hasherProvider) {
+        List<String> digests = new ArrayList<>();
+        IonHashReader reader = IonHashReaderBuilder.standard()
+                .withHasherProvider(hasherProvider)
+                .withReader(ION.newReader(data))
+                .withDigestListener((depth, path, type, digest) -> digests.add(path + " " + Arrays.toString(digest)))
+                .build();
+        while (reader.next() != null) {
+            digests.add(Arrays.toString(reader.digest()));
+        }
+        return digests;
+    }
+
+    private static byte[] readerDigest(IonValue value) throws IOException {
+        try (IonHashReader reader = IonHashReaderBuilder.standard()
+                .withReader(ION.newReader(value.toString()))
+                .withHasherProvider(provider)
+                .build()) {
+            reader.next();
+            reader.next();
+            return reader.digest();
+        }
+    }
+}
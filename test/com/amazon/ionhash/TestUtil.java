@@ -18,10 +18,13 @@ import org.junit.Assert;
 import com.amazon.ion.IonInt;
 import com.amazon.ion.IonSexp;
 import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonType;
 import com.amazon.ion.IonValue;
+import com.amazon.ion.IonWriter;
 import com.amazon.ion.system.IonSystemBuilder;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Iterator;
 
 /**
@@ -56,4 +59,28 @@ class TestUtil {
         }
         return baos.toByteArray();
     }
+
+    // returns binary Ion for a single value of alternating lists and structs nested
+    // to the specified depth, each container holding a scalar after the nested container
+    static byte[] deeplyNested(int depth) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (IonWriter writer = ION.newBinaryWriter(baos)) {
+            for (int i = 0; i < depth; i++) {
+                if (i > 0 && i % 2 == 0) {
+                    writer.setFieldName("f");
+                }
+                writer.stepIn(i % 2 == 0 ? IonType.LIST : IonType.STRUCT);
+            }
+            for (int i = depth - 1; i >= 0; i--) {
+                if (i % 2 == 1) {
+                    writer.setFieldName("g");
+                }
+                writer.writeInt(i);
+                writer.stepOut();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return baos.toByteArray();
+    }
 }
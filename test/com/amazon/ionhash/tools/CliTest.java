@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash.tools;
+
+import com.amazon.ion.IonSystem;
+import com.amazon.ion.system.IonSystemBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CliTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParallelTextFile() throws Exception {
+        Path file = folder.newFile("values.ion").toPath();
+        Files.write(file, "{a:1, b:[x, y]} \"text\"".getBytes(StandardCharsets.UTF_8));
+
+        String expected = run("sha-256", file.toString());
+        assertEquals(2, expected.split("\n").length);
+        assertFalse(expected.contains("unable to digest"));
+        assertEquals(expected, run("--parallel", "sha-256", file.toString()));
+    }
+
+    @Test
+    public void testMixedDirectory() throws Exception {
+        IonSystem ion = IonSystemBuilder.standard().build();
+        String text = "{a:1, b:[x, y]} \"text\" sym::2.5";
+        Path directory = folder.newFolder("values").toPath();
+        Files.write(directory.resolve("a.10n"), ion.getLoader().load(text).getBytes());
+        Files.write(directory.resolve("b.ion"), text.getBytes(StandardCharsets.UTF_8));
+
+        // the binary file, then the text file, each with the same values
+        String expected = run("sha-256", directory.toString());
+        String[] lines = expected.split("\n");
+        assertEquals(6, lines.length);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(lines[i], lines[i + 3]);
+        }
+        assertFalse(expected.contains("unable to digest"));
+        assertEquals(expected, run("--parallel", "sha-256", directory.toString()));
+        assertEquals(expected, run("--parallel", "--threads", "2", "sha-256", directory.toString()));
+    }
+
+    private static String run(String... args) throws Exception {
+        Cli cli = new Cli();
+        assertTrue(cli.parseArgs(args));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cli.run(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.ionhash.tools;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DigestWriterTest {
+    private static final byte[][] DIGESTS = {
+            {},
+            {0x00},
+            {(byte) 0xFF, 0x10, 0x0A},
+            new byte[64],
+    };
+
+    @Test
+    public void testHex() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        for (byte[] digest : DIGESTS) {
+            // the CLI's original formatting
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x ", b));
+            }
+            expected.append(sb.toString().trim()).append('\n');
+        }
+        assertEquals(expected.toString(), write(DigestWriter.Format.HEX));
+    }
+
+    @Test
+    public void testBase64() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        for (byte[] digest : DIGESTS) {
+            expected.append(Base64.getEncoder().encodeToString(digest)).append('\n');
+        }
+        assertEquals(expected.toString(), write(DigestWriter.Format.BASE64));
+    }
+
+    @Test
+    public void testBinary() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        DigestWriter writer = new DigestWriter(actual, DigestWriter.Format.BINARY);
+        for (byte[] digest : DIGESTS) {
+            expected.write(digest);
+            writer.write(digest);
+        }
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    private static String write(DigestWriter.Format format) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DigestWriter writer = new DigestWriter(baos, format);
+        for (byte[] digest : DIGESTS) {
+            writer.write(digest);
+        }
+        writer.flush();
+        return baos.toString("US-ASCII");
+    }
+}